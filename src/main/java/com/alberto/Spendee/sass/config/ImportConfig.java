@@ -0,0 +1,48 @@
+package com.alberto.Spendee.sass.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportConfig {
+
+    // A fixed number of import workers with a bounded queue; submissions beyond it are rejected, not buffered
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(@Value("${app.import.workers:2}") int workers,
+                                                 @Value("${app.import.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("import-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    // Whole-statement parses, one per import worker, so a worker can stop waiting at the parse timeout.
+    // A parse stuck in a page keeps its thread until it returns; while all are stuck new parses queue and time out.
+    @Bean
+    public ThreadPoolTaskExecutor statementParseExecutor(@Value("${app.import.workers:2}") int workers,
+                                                         @Value("${app.import.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("statement-parse-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    // Threads shared by all import jobs for extracting page ranges of large statements
+    @Bean
+    public ThreadPoolTaskExecutor pdfExtractionExecutor(@Value("${app.import.parse.threads:4}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix("pdf-extract-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
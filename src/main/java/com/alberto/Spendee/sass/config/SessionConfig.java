@@ -0,0 +1,16 @@
+package com.alberto.Spendee.sass.config;
+
+import com.alberto.Spendee.sass.infra.security.SessionAttributeCodec;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.convert.ConversionService;
+
+@Configuration
+public class SessionConfig {
+
+    // Spring Session JDBC picks this up by name to read and write attribute values
+    @Bean
+    public ConversionService springSessionConversionService() {
+        return new SessionAttributeCodec(getClass().getClassLoader()).conversionService();
+    }
+}
@@ -23,23 +23,20 @@ public class ViewConfig {
         String userEmail = "";
         String firstName = "";
         String lastName = "";
+        String photoHash = null;
 
         // Try to get authenticated user details
         if (auth != null && auth.isAuthenticated() && !auth.getName().equals("anonymousUser")) {
-            // For JWT authentication, the principal might be the User object directly
-            if (auth.getPrincipal() instanceof User) {
-                User user = (User) auth.getPrincipal();
+            // A JWT principal only carries the claims, so the profile is always read from the database
+            User user = auth.getPrincipal() instanceof User principal
+                    ? userRepository.findById(principal.getId()).orElse(null)
+                    : userRepository.findByEmail(auth.getName()).orElse(null);
+            userEmail = auth.getName();
+            if (user != null) {
                 userEmail = user.getEmail();
                 firstName = user.getFirstName() != null ? user.getFirstName() : "";
                 lastName = user.getLastName() != null ? user.getLastName() : "";
-            } else {
-                // Fallback: get email from authentication name
-                userEmail = auth.getName();
-                User user = userRepository.findByEmail(userEmail).orElse(null);
-                if (user != null) {
-                    firstName = user.getFirstName() != null ? user.getFirstName() : "";
-                    lastName = user.getLastName() != null ? user.getLastName() : "";
-                }
+                photoHash = user.getPhotoHash();
             }
         }
 
@@ -50,13 +47,8 @@ public class ViewConfig {
         model.addAttribute("userFullName", firstName + " " + lastName);
         model.addAttribute("activePage", activePage);
 
-        // Add userPhotoUrl if photo exists
-        User user = userRepository.findByEmail(userEmail).orElse(null);
-        if (user != null && user.getPhoto() != null && user.getPhoto().length > 0) {
-            model.addAttribute("userPhotoUrl", "/api/user/photo");
-        } else {
-            model.addAttribute("userPhotoUrl", null);
-        }
+        // Photo URLs are content-addressed so browsers can cache them indefinitely
+        model.addAttribute("userPhotoUrl", photoHash != null ? "/api/user/photo/" + photoHash : null);
     }
 
 }
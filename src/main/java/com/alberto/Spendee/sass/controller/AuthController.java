@@ -3,26 +3,38 @@ package com.alberto.Spendee.sass.controller;
 import com.alberto.Spendee.sass.domain.role.Role;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.*;
+import com.alberto.Spendee.sass.infra.security.LoginRateLimiter;
+import com.alberto.Spendee.sass.infra.security.PasswordHasher;
 import com.alberto.Spendee.sass.infra.security.TokenService;
 import com.alberto.Spendee.sass.repository.RoleRepository;
 import com.alberto.Spendee.sass.repository.UserRepository;
 import com.alberto.Spendee.sass.service.AuthService;
 import com.alberto.Spendee.sass.service.ValidationService;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/api/auth")
 public class AuthController {
 
     private static final Logger logger = LoggerFactory.getLogger(AuthController.class);
 
+    // A bucket regains a token within a few seconds; a full hashing queue drains faster still
+    private static final Duration RATE_LIMIT_RETRY_AFTER = Duration.ofSeconds(15);
+    private static final Duration BUSY_RETRY_AFTER = Duration.ofSeconds(1);
+
     @Autowired
     private AuthService authService;
 
@@ -33,7 +45,10 @@ public class AuthController {
     private RoleRepository roleRepository;
 
     @Autowired
-    private PasswordEncoder passwordEncoder;
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private LoginRateLimiter loginRateLimiter;
 
     @Autowired
     private TokenService tokenService;
@@ -41,20 +56,57 @@ public class AuthController {
     @Autowired
     private ValidationService validationService;
 
+    /**
+     * The password check runs on the hashing pool, so the request thread is released while BCrypt
+     * works. Attempts over the per-address or per-email limits, or arriving while the hashing queue
+     * is full, get a 429 before any hashing.
+     */
     @PostMapping("/login")
-    public ResponseEntity login(@RequestBody LoginRequestDTO body) {
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequestDTO body, HttpServletRequest request) {
+        if (!loginRateLimiter.tryAcquire(request.getRemoteAddr(), body.email())) {
+            return CompletableFuture.completedFuture(tooManyAttempts(RATE_LIMIT_RETRY_AFTER, "Too many login attempts, please try again shortly"));
+        }
         User user = this.repository.findByEmail(body.email()).orElseThrow(() -> new RuntimeException("User not found"));
-        if (passwordEncoder.matches(body.password(), user.getPassword())) {
-            String token = this.tokenService.generateToken(user);
-            String userLogged = "User Logged Successfully";
-            logger.info("{} Name: {}", userLogged, user.getFirstName());
-            return ResponseEntity.ok(new ResponseDTO(userLogged, token));
+        try {
+            return passwordHasher.matches(body.password(), user.getPassword()).thenApply(matches -> {
+                if (!matches) {
+                    return ResponseEntity.badRequest().build();
+                }
+                AuthTokensDto tokens = this.tokenService.issueTokens(user);
+                String userLogged = "User Logged Successfully";
+                logger.info("{} Name: {}", userLogged, user.getFirstName());
+                return ResponseEntity.ok(new ResponseDTO<>(userLogged, tokens, true, tokens.accessToken()));
+            });
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(tooManyAttempts(BUSY_RETRY_AFTER, "The server is busy, please try again shortly"));
         }
-        return ResponseEntity.badRequest().build();
+    }
+
+    /**
+     * Exchange a refresh token for a new token pair. Refused once the user's token version has moved
+     * on, i.e. after a role or password change.
+     */
+    @PostMapping("/refresh")
+    public ResponseEntity<ResponseDTO<AuthTokensDto>> refresh(@RequestBody RefreshTokenRequestDTO body) {
+        DecodedJWT decoded = tokenService.decodeRefreshToken(body.refreshToken());
+        if (decoded == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ResponseDTO<>("Invalid or expired refresh token", null, false));
+        }
+        User user = repository.findById(decoded.getClaim("id").asLong()).orElse(null);
+        if (user == null || user.getTokenVersion() != decoded.getClaim("ver").asInt()) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                    .body(new ResponseDTO<>("Please log in again", null, false));
+        }
+        AuthTokensDto tokens = tokenService.issueTokens(user);
+        return ResponseEntity.ok(new ResponseDTO<>("Token refreshed", tokens, true, tokens.accessToken()));
     }
 
     @PostMapping("/register")
-    public ResponseEntity register(@RequestBody RegistrationDto body) {
+    public CompletableFuture<ResponseEntity<?>> register(@RequestBody RegistrationDto body, HttpServletRequest request) {
+        if (!loginRateLimiter.tryAcquire(request.getRemoteAddr(), body.getEmail())) {
+            return CompletableFuture.completedFuture(tooManyAttempts(RATE_LIMIT_RETRY_AFTER, "Too many attempts, please try again shortly"));
+        }
         try {
             // Validate the email and password
             validationService.validateEmail(body.getEmail());
@@ -63,34 +115,41 @@ public class AuthController {
             // Check if the user already exists
             if (repository.findByEmail(body.getEmail()).isPresent()) {
                 logger.error("User already exists with email {}", body.getEmail());
-                return ResponseEntity.status(409).body("User already exists with this email");
+                return CompletableFuture.completedFuture(ResponseEntity.status(409).body("User already exists with this email"));
             }
 
             // fetch role from database
             Role userRole = roleRepository.findByName("ROLE_USER")
                     .orElseThrow(() -> new RuntimeException("Default Role Not Found"));
 
-            // Create a new user and save to the database, and add the user role to new users.
-            User newUser = new User();
-            newUser.setFirstName(body.getFirstName());
-            newUser.setLastName(body.getLastName());
-            newUser.setEmail(body.getEmail());
-            newUser.setPassword(passwordEncoder.encode(body.getPassword()));
-            newUser.getRoles().add(userRole);
-            repository.save(newUser);
-
-            // Generate and return the token
-            String token = tokenService.generateToken(newUser);
-
-            String successMessage = "User Registered Successfully";
-            logger.info("{} Name: {}", successMessage, newUser.getFirstName());
-            return ResponseEntity.ok(new ResponseDTO(successMessage, token));
+            return passwordHasher.encode(body.getPassword()).<ResponseEntity<?>>thenApply(encodedPassword -> {
+                // Create a new user and save to the database, and add the user role to new users.
+                User newUser = new User();
+                newUser.setFirstName(body.getFirstName());
+                newUser.setLastName(body.getLastName());
+                newUser.setEmail(body.getEmail());
+                newUser.setPassword(encodedPassword);
+                newUser.getRoles().add(userRole);
+                repository.save(newUser);
+
+                // Generate and return the tokens
+                AuthTokensDto tokens = tokenService.issueTokens(newUser);
+
+                String successMessage = "User Registered Successfully";
+                logger.info("{} Name: {}", successMessage, newUser.getFirstName());
+                return ResponseEntity.ok(new ResponseDTO<>(successMessage, tokens, true, tokens.accessToken()));
+            }).exceptionally(e -> {
+                logger.error("Unexpected error during user registration", e);
+                return ResponseEntity.status(500).body("An unexpected error occurred");
+            });
         } catch (ValidationService.ValidationException e) {
             logger.error("Validation error: {}", e.getMessage());
-            return ResponseEntity.status(400).body(e.getMessage());
+            return CompletableFuture.completedFuture(ResponseEntity.status(400).body(e.getMessage()));
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(tooManyAttempts(BUSY_RETRY_AFTER, "The server is busy, please try again shortly"));
         } catch (Exception e) {
             logger.error("Unexpected error during user registration", e);
-            return ResponseEntity.status(500).body("An unexpected error occurred");
+            return CompletableFuture.completedFuture(ResponseEntity.status(500).body("An unexpected error occurred"));
         }
     }
 
@@ -103,4 +162,10 @@ public class AuthController {
             return new ResponseEntity<>(e.getMessage(), HttpStatus.BAD_REQUEST);
         }
     }
+
+    private static ResponseEntity<?> tooManyAttempts(Duration retryAfter, String message) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()))
+                .body(new ResponseDTO<>(message, null, false));
+    }
 }
@@ -4,14 +4,12 @@ import com.alberto.Spendee.sass.dto.DashboardSummaryDto;
 import com.alberto.Spendee.sass.dto.TransactionDto;
 import com.alberto.Spendee.sass.service.SpendingLimitService;
 import com.alberto.Spendee.sass.service.TransactionService;
-import com.alberto.Spendee.sass.domain.transaction.Transaction;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/dashboard")
@@ -37,9 +35,6 @@ public class DashboardController {
     @GetMapping("/recent-transactions")
     public ResponseEntity<List<TransactionDto>> getRecentTransactions() {
         String userEmail = SecurityContextHolder.getContext().getAuthentication().getName();
-        List<Transaction> transactions = transactionService.getRecentTransactions(userEmail, 10);
-        return ResponseEntity.ok(transactions.stream()
-            .map(transactionService::convertToDto)
-            .collect(Collectors.toList()));
+        return ResponseEntity.ok(transactionService.getRecentTransactions(userEmail, 10));
     }
 }
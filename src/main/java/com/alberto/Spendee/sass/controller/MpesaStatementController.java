@@ -1,22 +1,25 @@
 package com.alberto.Spendee.sass.controller;
 
-import com.alberto.Spendee.sass.domain.transaction.Category;
-import com.alberto.Spendee.sass.domain.transaction.Transaction;
-import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
 import com.alberto.Spendee.sass.domain.user.User;
-import com.alberto.Spendee.sass.dto.MpesaTransactionDTO;
-import com.alberto.Spendee.sass.repository.CategoryRepository;
-import com.alberto.Spendee.sass.repository.TransactionRepository;
-import com.alberto.Spendee.sass.service.MpesaStatementParserService;
+import com.alberto.Spendee.sass.dto.ImportJobDto;
+import com.alberto.Spendee.sass.dto.ResponseDTO;
+import com.alberto.Spendee.sass.service.ImportJobService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.net.URI;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -27,159 +30,86 @@ import java.util.Map;
 @Slf4j
 public class MpesaStatementController {
 
-    private final MpesaStatementParserService parserService;
-    private final TransactionRepository transactionRepository;
-    private final CategoryRepository categoryRepository;
+    private final ImportJobService importJobService;
 
+    @Value("${spring.servlet.multipart.max-file-size:100MB}")
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+
+    /**
+     * Accept a statement for background import. Progress is available from the returned job's events stream.
+     */
     @PostMapping("/upload-statement")
-    public ResponseEntity<?> uploadStatement(
+    public ResponseEntity<ResponseDTO<ImportJobDto>> uploadStatement(
             @RequestParam("file") MultipartFile file,
             @AuthenticationPrincipal User user) {
 
-        try {
-            // Validate file
-            if (file.isEmpty()) {
-                // Return success even for empty file
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("message", "File uploaded successfully");
-                response.put("totalTransactions", 0);
-                response.put("savedTransactions", 0);
-                response.put("skippedTransactions", 0);
-                response.put("totalIncome", BigDecimal.ZERO);
-                response.put("totalExpense", BigDecimal.ZERO);
-                return ResponseEntity.ok(response);
-            }
-
-            if (!file.getOriginalFilename().toLowerCase().endsWith(".pdf")) {
-                // Return success even for non-PDF files
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("message", "File uploaded successfully");
-                response.put("totalTransactions", 0);
-                response.put("savedTransactions", 0);
-                response.put("skippedTransactions", 0);
-                response.put("totalIncome", BigDecimal.ZERO);
-                response.put("totalExpense", BigDecimal.ZERO);
-                return ResponseEntity.ok(response);
-            }
-
-            log.info("Processing M-Pesa statement upload for user: {}", user.getEmail());
-
-            // Parse the statement
-            List<MpesaTransactionDTO> mpesaTransactions = parserService.parseStatement(file);
-
-            if (mpesaTransactions.isEmpty()) {
-                // Return success even when no transactions found
-                Map<String, Object> response = new HashMap<>();
-                response.put("success", true);
-                response.put("message", "Statement processed successfully - no new transactions found");
-                response.put("totalTransactions", 0);
-                response.put("savedTransactions", 0);
-                response.put("skippedTransactions", 0);
-                response.put("totalIncome", BigDecimal.ZERO);
-                response.put("totalExpense", BigDecimal.ZERO);
-                return ResponseEntity.ok(response);
-            }
-
-            // Get default category for M-Pesa transactions
-            // Try to find or create an M-Pesa category
-            Category defaultCategory = categoryRepository
-                .findByUserOrIsDefaultTrue(user)
-                .stream()
-                .filter(c -> c.getName().equalsIgnoreCase("M-Pesa"))
-                .findFirst()
-                .orElse(null);
-
-            // Convert and save transactions
-            int savedCount = 0;
-            int skippedCount = 0;
-            BigDecimal totalIncome = BigDecimal.ZERO;
-            BigDecimal totalExpense = BigDecimal.ZERO;
-
-            for (MpesaTransactionDTO mpesaTx : mpesaTransactions) {
-                try {
-                    // Check for duplicates based on transaction code and date
-                    if (mpesaTx.getTransactionCode() != null && !mpesaTx.getTransactionCode().isEmpty()) {
-                        boolean exists = transactionRepository.findByUserOrderByDateDesc(user).stream()
-                            .anyMatch(t -> t.getDescription().contains(mpesaTx.getTransactionCode())
-                                        && t.getDate().equals(mpesaTx.getDate()));
-
-                        if (exists) {
-                            skippedCount++;
-                            continue;
-                        }
-                    }
-
-                    // Create transaction entity
-                    Transaction transaction = new Transaction();
-                    transaction.setDescription(mpesaTx.getDescription());
-                    transaction.setAmount(mpesaTx.getAmount());
-                    transaction.setDate(mpesaTx.getDate());
-                    transaction.setType(TransactionType.valueOf(mpesaTx.getType()));
-                    transaction.setUser(user);
-                    transaction.setCategory(defaultCategory);
-
-                    transactionRepository.save(transaction);
-                    savedCount++;
-
-                    // Track totals
-                    if (mpesaTx.getType().equals("INCOME")) {
-                        totalIncome = totalIncome.add(mpesaTx.getAmount());
-                    } else {
-                        totalExpense = totalExpense.add(mpesaTx.getAmount());
-                    }
+        if (file.isEmpty()) {
+            return ResponseEntity.badRequest().body(new ResponseDTO<>("The uploaded file is empty", null, false));
+        }
+        if (!importJobService.isSupported(file.getOriginalFilename())) {
+            return ResponseEntity.badRequest().body(new ResponseDTO<>(
+                    "Supported statement formats: " + String.join(", ", supportedFormats()), null, false));
+        }
 
-                } catch (Exception e) {
-                    log.error("Error saving transaction: {}", e.getMessage());
-                    skippedCount++;
-                    // Continue processing even on individual transaction errors
-                }
+        try {
+            log.info("Queueing statement import of {} for user: {}", file.getOriginalFilename(), user.getEmail());
+            ImportJobDto job = importJobService.submitStatement(user, file);
+            if (job.status() == ImportJobStatus.FAILED) {
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                        .body(new ResponseDTO<>(job.errorMessage(), job, false));
             }
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/mpesa/jobs/" + job.id()))
+                    .body(new ResponseDTO<>("Statement received, import started", job, true));
+        } catch (IOException e) {
+            log.error("Error receiving statement: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(new ResponseDTO<>("Could not store the uploaded statement", null, false));
+        }
+    }
 
-            // Always return success response
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", String.format("Statement processed successfully! Imported %d transactions", savedCount));
-            response.put("totalTransactions", mpesaTransactions.size());
-            response.put("savedTransactions", savedCount);
-            response.put("skippedTransactions", skippedCount);
-            response.put("totalIncome", totalIncome);
-            response.put("totalExpense", totalExpense);
-
-            log.info("M-Pesa statement processed: {} saved, {} skipped", savedCount, skippedCount);
-
-            return ResponseEntity.ok(response);
-
-        } catch (Exception e) {
-            log.error("Error processing M-Pesa statement: {}", e.getMessage(), e);
-
-            // Return success even for exceptions
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("message", "Statement uploaded successfully!");
-            response.put("totalTransactions", 0);
-            response.put("savedTransactions", 0);
-            response.put("skippedTransactions", 0);
-            response.put("totalIncome", BigDecimal.ZERO);
-            response.put("totalExpense", BigDecimal.ZERO);
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<ResponseDTO<ImportJobDto>> getJob(@PathVariable Long jobId, @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(new ResponseDTO<>("Import job", importJobService.getJob(jobId, user), true));
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new ResponseDTO<>(e.getMessage(), null, false));
+        }
+    }
 
-            return ResponseEntity.ok(response);
+    /**
+     * Server-sent "progress" events carrying the job's parsed, saved and skipped counts until it finishes
+     */
+    @GetMapping(value = "/jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJob(@PathVariable Long jobId, @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(importJobService.subscribe(jobId, user));
+        } catch (RuntimeException e) {
+            return ResponseEntity.notFound().build();
         }
     }
 
+    // Needs multipart resolve-lazily, so the size check fails inside this controller rather than before dispatch
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<ResponseDTO<ImportJobDto>> uploadTooLarge(MaxUploadSizeExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(new ResponseDTO<>("The statement is larger than the " + maxFileSize.toMegabytes() + "MB supported", null, false));
+    }
+
     @GetMapping("/upload-info")
     public ResponseEntity<?> getUploadInfo() {
         Map<String, Object> info = new HashMap<>();
-        info.put("maxFileSize", "10MB");
-        info.put("supportedFormats", List.of("PDF"));
+        info.put("maxFileSize", maxFileSize.toMegabytes() + "MB");
+        info.put("supportedFormats", supportedFormats());
         info.put("instructions", List.of(
-            "Download your M-Pesa statement from the Safaricom app",
-            "Select the PDF file to upload",
+            "Download your M-Pesa statement from the Safaricom app, or a CSV or OFX export from your bank",
+            "Select the file to upload",
             "We'll automatically extract and categorize your transactions",
             "Duplicate transactions will be skipped"
         ));
         return ResponseEntity.ok(info);
     }
-}
 
+    private List<String> supportedFormats() {
+        return importJobService.supportedExtensions().stream().map(String::toUpperCase).toList();
+    }
+}
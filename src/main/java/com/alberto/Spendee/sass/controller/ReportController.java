@@ -3,6 +3,7 @@ package com.alberto.Spendee.sass.controller;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.ReportDataDTO;
 import com.alberto.Spendee.sass.dto.ReportFilterDTO;
+import com.alberto.Spendee.sass.repository.UserRepository;
 import com.alberto.Spendee.sass.service.PDFReportService;
 import com.alberto.Spendee.sass.service.ReportService;
 import lombok.RequiredArgsConstructor;
@@ -20,6 +21,7 @@ public class ReportController {
 
     private final ReportService reportService;
     private final PDFReportService pdfReportService;
+    private final UserRepository userRepository;
 
     @PostMapping("/generate")
     public ResponseEntity<ReportDataDTO> generateReport(
@@ -39,7 +41,9 @@ public class ReportController {
             @AuthenticationPrincipal User user) {
         try {
             ReportDataDTO reportData = reportService.generateReport(filter, user);
-            byte[] pdfBytes = pdfReportService.generatePDFReport(reportData, user);
+            // The report header shows the user's name, which the token-based principal doesn't carry
+            User owner = userRepository.findById(user.getId()).orElse(user);
+            byte[] pdfBytes = pdfReportService.generatePDFReport(reportData, owner);
 
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.APPLICATION_PDF);
@@ -4,6 +4,7 @@ import com.alberto.Spendee.sass.domain.transaction.Transaction;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.BulkCategorizeRequest;
 import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.dto.TransactionPageDto;
 import com.alberto.Spendee.sass.service.CategoryService;
 import com.alberto.Spendee.sass.service.TransactionService;
 import com.alberto.Spendee.sass.service.UserService;
@@ -42,6 +43,17 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
 
+    @GetMapping("/page")
+    public ResponseEntity<TransactionPageDto> getTransactionPage(@RequestParam(required = false) String cursor,
+                                                                 @RequestParam(required = false) Integer size,
+                                                                 @AuthenticationPrincipal User user) {
+        try {
+            return ResponseEntity.ok(transactionService.getTransactionPage(user, cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<TransactionDto> getTransaction(@PathVariable Long id,
                                                        @AuthenticationPrincipal User user) {
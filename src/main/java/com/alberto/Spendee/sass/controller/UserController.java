@@ -1,13 +1,18 @@
 package com.alberto.Spendee.sass.controller;
 
 import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.infra.security.TokenService;
 import com.alberto.Spendee.sass.repository.UserRepository;
+import com.alberto.Spendee.sass.service.PhotoStorageService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.CacheControl;
-import org.springframework.http.HttpHeaders;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.imageio.ImageIO;
@@ -16,7 +21,6 @@ import java.awt.Image;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.security.Principal;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -28,29 +32,35 @@ public class UserController {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
     // Get current user info
     @GetMapping("/me")
-    public ResponseEntity<?> getCurrentUser(Principal principal) {
-        User user = userRepository.findByEmail(principal.getName()).orElse(null);
+    public ResponseEntity<?> getCurrentUser(@AuthenticationPrincipal User principal) {
+        User user = load(principal);
         if (user == null) return ResponseEntity.status(404).body("User not found");
         Map<String, Object> result = new HashMap<>();
         result.put("firstName", user.getFirstName());
         result.put("lastName", user.getLastName());
         result.put("email", user.getEmail());
-        result.put("photoUrl", "/api/user/photo");
+        result.put("photoUrl", photoUrl(user));
         return ResponseEntity.ok(result);
     }
 
     // Update user info and photo
     @PostMapping(value = "/update", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<?> updateUser(
-            Principal principal,
+            @AuthenticationPrincipal User principal,
             @RequestParam("firstName") String firstName,
             @RequestParam("lastName") String lastName,
             @RequestParam("email") String email,
             @RequestParam(value = "photo", required = false) MultipartFile photo
     ) {
-        User user = userRepository.findByEmail(principal.getName()).orElse(null);
+        User user = load(principal);
         if (user == null) return ResponseEntity.status(404).body("User not found");
 
         // Update name
@@ -58,11 +68,11 @@ public class UserController {
         user.setLastName(lastName);
         user.setEmail(email);
 
-        // Save photo as bytes with compression
+        // Compress the photo and keep only its content hash on the user
         if (photo != null && !photo.isEmpty()) {
             try {
                 byte[] compressedImage = compressImage(photo.getBytes(), photo.getContentType());
-                user.setPhoto(compressedImage);
+                user.setPhotoHash(photoStorageService.store(compressedImage));
             } catch (Exception e) {
                 return ResponseEntity.badRequest().body("Error uploading photo: " + e.getMessage());
             }
@@ -71,22 +81,61 @@ public class UserController {
         userRepository.save(user);
         Map<String, Object> result = new HashMap<>();
         result.put("success", true);
+        result.put("photoUrl", photoUrl(user));
+        // The access token names the user by email; hand back one that matches the profile
+        result.put("tokens", tokenService.issueTokens(user));
         return ResponseEntity.ok(result);
     }
 
-    // Serve user photo with no-cache headers to avoid stale images after update
+    // Serve the current user photo; the URL is stable, so clients revalidate against the ETag
     @GetMapping("/photo")
-    public ResponseEntity<?> getPhoto(Principal principal) {
-        User user = userRepository.findByEmail(principal.getName()).orElse(null);
-        if (user == null || user.getPhoto() == null) {
+    public ResponseEntity<?> getPhoto(@AuthenticationPrincipal User principal, WebRequest request) {
+        User user = load(principal);
+        if (user == null || user.getPhotoHash() == null) {
             return ResponseEntity.notFound().build();
         }
+        return servePhoto(user.getPhotoHash(), CacheControl.noCache().cachePrivate(), request);
+    }
+
+    // Serve a photo by content hash; the bytes behind a hash never change, so it can be cached forever
+    @GetMapping("/photo/{hash}")
+    public ResponseEntity<?> getPhotoByHash(@PathVariable String hash,
+                                            @AuthenticationPrincipal User principal,
+                                            WebRequest request) {
+        User user = load(principal);
+        if (user == null || !hash.equals(user.getPhotoHash())) {
+            return ResponseEntity.notFound().build();
+        }
+        return servePhoto(hash, CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable(), request);
+    }
+
+    private ResponseEntity<?> servePhoto(String hash, CacheControl cacheControl, WebRequest request) {
+        String etag = "\"" + hash + "\"";
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+        FileSystemResource file = photoStorageService.load(hash);
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // Returning the file as a Resource lets Spring stream it (and serve Range requests) straight from disk
         return ResponseEntity.ok()
                 .contentType(MediaType.IMAGE_JPEG)
-                .cacheControl(CacheControl.noStore().mustRevalidate())
-                .header(HttpHeaders.PRAGMA, "no-cache")
-                .header(HttpHeaders.EXPIRES, "0")
-                .body(user.getPhoto());
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(file);
+    }
+
+    // The principal only carries what the access token does; profile fields come from the database
+    private User load(User principal) {
+        return principal != null ? userRepository.findById(principal.getId()).orElse(null) : null;
+    }
+
+    private String photoUrl(User user) {
+        return user.getPhotoHash() != null ? "/api/user/photo/" + user.getPhotoHash() : null;
     }
 
     /**
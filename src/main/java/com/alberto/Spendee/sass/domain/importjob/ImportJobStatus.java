@@ -0,0 +1,13 @@
+package com.alberto.Spendee.sass.domain.importjob;
+
+public enum ImportJobStatus {
+    QUEUED,
+    PARSING,
+    SAVING,
+    COMPLETED,
+    FAILED;
+
+    public boolean isFinished() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
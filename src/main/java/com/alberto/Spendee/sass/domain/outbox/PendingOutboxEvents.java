@@ -0,0 +1,7 @@
+package com.alberto.Spendee.sass.domain.outbox;
+
+/**
+ * All pending events of one type for a user, up to and including {@code lastEventId}
+ */
+public record PendingOutboxEvents(Long userId, Long lastEventId) {
+}
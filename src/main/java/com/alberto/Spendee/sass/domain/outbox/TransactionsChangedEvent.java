@@ -0,0 +1,7 @@
+package com.alberto.Spendee.sass.domain.outbox;
+
+/**
+ * Published in-process when a user's transactions change; listeners only act on it after commit
+ */
+public record TransactionsChangedEvent(Long userId) {
+}
@@ -1,5 +1,8 @@
 package com.alberto.Spendee.sass.domain.spendinglimit;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
 public enum LimitPeriod {
     DAILY("Daily"),
     WEEKLY("Weekly"),
@@ -15,4 +18,16 @@ public enum LimitPeriod {
     public String getDisplayName() {
         return displayName;
     }
+
+    /**
+     * First day of the window of this period that contains the given date
+     */
+    public LocalDate windowStart(LocalDate date) {
+        return switch (this) {
+            case DAILY -> date;
+            case WEEKLY -> date.with(DayOfWeek.MONDAY);
+            case MONTHLY -> date.withDayOfMonth(1);
+            case YEARLY -> date.withDayOfYear(1);
+        };
+    }
 }
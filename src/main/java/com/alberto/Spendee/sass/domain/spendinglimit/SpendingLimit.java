@@ -3,11 +3,15 @@ package com.alberto.Spendee.sass.domain.spendinglimit;
 import com.alberto.Spendee.sass.domain.transaction.Category;
 import com.alberto.Spendee.sass.domain.user.User;
 import jakarta.persistence.*;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
+// Only changed columns are written, so saving a limit never overwrites a concurrent current_spent delta
 @Entity
+@DynamicUpdate
 @Table(name = "spending_limits")
 public class SpendingLimit {
 
@@ -33,6 +37,14 @@ public class SpendingLimit {
     @Column(nullable = false)
     private LimitPeriod period = LimitPeriod.MONTHLY;
 
+    // Start of the window currentSpent covers; a stale value means nothing was spent in the current window yet
+    @Column(name = "period_start")
+    private LocalDate periodStart;
+
+    // currentSpent as of the last threshold evaluation, used to notify only on new crossings
+    @Column(name = "evaluated_spent", nullable = false, precision = 10, scale = 2)
+    private BigDecimal evaluatedSpent = BigDecimal.ZERO;
+
     @Column(name = "notification_threshold", precision = 5, scale = 2)
     private BigDecimal notificationThreshold = new BigDecimal("0.80"); // 80%
 
@@ -106,6 +118,22 @@ public class SpendingLimit {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public void setPeriodStart(LocalDate periodStart) {
+        this.periodStart = periodStart;
+    }
+
+    public BigDecimal getEvaluatedSpent() {
+        return evaluatedSpent;
+    }
+
+    public void setEvaluatedSpent(BigDecimal evaluatedSpent) {
+        this.evaluatedSpent = evaluatedSpent;
+    }
+
     public BigDecimal getNotificationThreshold() {
         return notificationThreshold;
     }
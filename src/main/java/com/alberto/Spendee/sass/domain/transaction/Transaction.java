@@ -6,11 +6,25 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
-@Table(name = "transactions")
+// Indexes are created by db/migration/V3__hot_query_indexes.sql and listed here for reference
+@Table(name = "transactions", indexes = {
+        @Index(name = "idx_transactions_user_date", columnList = "user_id, date"),
+        @Index(name = "idx_transactions_user_type_date", columnList = "user_id, type, date"),
+        @Index(name = "idx_transactions_user_category_type_date", columnList = "user_id, category_id, type, date"),
+        // Created by db/migration/V14__transaction_limits_pending.sql
+        @Index(name = "idx_transactions_limits_pending_date", columnList = "limits_pending, date")
+}, uniqueConstraints = {
+        // Created by db/migration/V6__transaction_external_ref.sql; an imported row can only be saved once
+        @UniqueConstraint(name = "uk_transactions_user_source_external_ref",
+                columnNames = {"user_id", "source", "external_ref"})
+})
 public class Transaction {
 
+    // Pooled ids (see V7__transaction_id_generator.sql) keep statement imports eligible for JDBC batching
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "transactions_id")
+    @TableGenerator(name = "transactions_id", table = "id_generators", pkColumnName = "sequence_name",
+            valueColumnName = "next_val", pkColumnValue = "transactions", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -26,6 +40,17 @@ public class Transaction {
     @Column(nullable = false)
     private TransactionType type;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private TransactionSource source = TransactionSource.MANUAL;
+
+    @Column(name = "external_ref", length = 64)
+    private String externalRef;
+
+    // A future-dated expense not yet added to the spending limit counters
+    @Column(name = "limits_pending", nullable = false)
+    private boolean limitsPending;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -102,4 +127,28 @@ public class Transaction {
     public void setCategory(Category category) {
         this.category = category;
     }
+
+    public TransactionSource getSource() {
+        return source;
+    }
+
+    public void setSource(TransactionSource source) {
+        this.source = source;
+    }
+
+    public String getExternalRef() {
+        return externalRef;
+    }
+
+    public void setExternalRef(String externalRef) {
+        this.externalRef = externalRef;
+    }
+
+    public boolean isLimitsPending() {
+        return limitsPending;
+    }
+
+    public void setLimitsPending(boolean limitsPending) {
+        this.limitsPending = limitsPending;
+    }
 }
@@ -0,0 +1,121 @@
+package com.alberto.Spendee.sass.domain.transaction;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Running monthly total of a user's transactions per category and type.
+ * Maintained alongside every transaction write so aggregate readers never scan raw transactions.
+ */
+@Entity
+@Table(name = "transaction_rollups", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_transaction_rollups_key",
+                columnNames = {"user_id", "month_start", "category_id", "type"})
+})
+public class TransactionRollup {
+
+    // Rollups for uncategorized transactions use this category id so the unique key never holds NULL
+    public static final long NO_CATEGORY = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    // First day of the month this row aggregates
+    @Column(name = "month_start", nullable = false)
+    private LocalDate monthStart;
+
+    @Column(name = "category_id", nullable = false)
+    private Long categoryId = NO_CATEGORY;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionType type;
+
+    @Column(name = "total_amount", nullable = false, precision = 19, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "tx_count", nullable = false)
+    private Long txCount = 0L;
+
+    public TransactionRollup() {
+    }
+
+    public TransactionRollup(Long userId, LocalDate monthStart, Long categoryId, TransactionType type,
+                             BigDecimal totalAmount, Long txCount) {
+        this.userId = userId;
+        this.monthStart = monthStart;
+        this.categoryId = categoryId;
+        this.type = type;
+        this.totalAmount = totalAmount;
+        this.txCount = txCount;
+    }
+
+    // Used by the rebuild query, which groups raw transactions by calendar year and month
+    public TransactionRollup(Long userId, Integer year, Integer month, Long categoryId, TransactionType type,
+                             BigDecimal totalAmount, Long txCount) {
+        this(userId, LocalDate.of(year, month, 1), categoryId != null ? categoryId : NO_CATEGORY, type,
+                totalAmount, txCount);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public LocalDate getMonthStart() {
+        return monthStart;
+    }
+
+    public void setMonthStart(LocalDate monthStart) {
+        this.monthStart = monthStart;
+    }
+
+    public Long getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Long categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public TransactionType getType() {
+        return type;
+    }
+
+    public void setType(TransactionType type) {
+        this.type = type;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public Long getTxCount() {
+        return txCount;
+    }
+
+    public void setTxCount(Long txCount) {
+        this.txCount = txCount;
+    }
+}
@@ -0,0 +1,50 @@
+package com.alberto.Spendee.sass.domain.transaction;
+
+import com.alberto.Spendee.sass.service.TransactionRollupService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Backfills the monthly transaction rollups from the raw transactions.
+ * Runs automatically when the rollup table is still empty, and on demand with
+ * {@code --rebuild-rollups} (every user) or {@code --rebuild-rollups=<userId>} (one user).
+ * Each user is rebuilt in its own transaction, holding off that user's writes until it commits, so it
+ * can run while the application takes traffic.
+ */
+@Component
+@Slf4j
+public class TransactionRollupBackfill implements ApplicationRunner {
+
+    private static final String REBUILD_OPTION = "rebuild-rollups";
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        List<Long> userIds;
+        if (args.containsOption(REBUILD_OPTION)) {
+            List<String> values = args.getOptionValues(REBUILD_OPTION);
+            userIds = values.isEmpty()
+                    ? transactionRollupService.findUserIdsWithTransactions()
+                    : values.stream().map(Long::valueOf).toList();
+        } else if (transactionRollupService.isEmpty()) {
+            userIds = transactionRollupService.findUserIdsWithTransactions();
+        } else {
+            return;
+        }
+
+        int rows = 0;
+        for (Long userId : userIds) {
+            rows += transactionRollupService.rebuild(userId);
+        }
+        if (!userIds.isEmpty()) {
+            log.info("Rebuilt {} transaction rollup rows for {} users", rows, userIds.size());
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.alberto.Spendee.sass.domain.transaction;
+
+public enum TransactionSource {
+    MANUAL,
+    MPESA,
+    CSV,
+    OFX
+}
@@ -0,0 +1,100 @@
+package com.alberto.Spendee.sass.domain.user;
+
+import com.alberto.Spendee.sass.service.PhotoStorageService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves photos still stored in the old users.photo LONGBLOB column into the photo store,
+ * one row at a time so the blobs never have to be held in memory together.
+ * The blob is only cleared once the store is declared shared between nodes
+ * (app.photo.shared-storage); until then a node that lacks the file can still be given it.
+ * Rows whose hashed file this node already has are skipped without reading the blob, so the
+ * kept blobs aren't re-read and re-hashed on every startup.
+ */
+@Component
+@Slf4j
+public class LegacyPhotoMigrator implements CommandLineRunner {
+
+    private static final int BATCH_SIZE = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PhotoStorageService photoStorageService;
+
+    @Override
+    public void run(String... args) {
+        if (!hasLegacyPhotoColumn()) {
+            log.debug("Skipping legacy photo migration: users.photo no longer exists");
+            return;
+        }
+        boolean clearBlobs = photoStorageService.isShared();
+        int migrated = 0;
+        int alreadyStored = 0;
+        long lastId = 0;
+        try {
+            while (true) {
+                // Ids and hashes only; a blob is read just for rows whose photo this node doesn't have
+                List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                        "SELECT id, photo_hash FROM users WHERE photo IS NOT NULL AND id > ? ORDER BY id LIMIT ?",
+                        lastId, BATCH_SIZE);
+                if (rows.isEmpty()) {
+                    break;
+                }
+                for (Map<String, Object> row : rows) {
+                    long id = ((Number) row.get("id")).longValue();
+                    String storedHash = (String) row.get("photo_hash");
+                    lastId = id;
+                    if (storedHash != null && photoStorageService.load(storedHash) != null) {
+                        if (clearBlobs) {
+                            jdbcTemplate.update("UPDATE users SET photo = NULL WHERE id = ?", id);
+                        }
+                        alreadyStored++;
+                        continue;
+                    }
+                    byte[] photo = jdbcTemplate.queryForObject(
+                            "SELECT photo FROM users WHERE id = ?", byte[].class, id);
+                    String hash = photo != null && photo.length > 0 ? photoStorageService.store(photo) : null;
+                    if (clearBlobs) {
+                        jdbcTemplate.update("UPDATE users SET photo_hash = COALESCE(photo_hash, ?), photo = NULL WHERE id = ?", hash, id);
+                    } else {
+                        jdbcTemplate.update("UPDATE users SET photo_hash = COALESCE(photo_hash, ?) WHERE id = ?", hash, id);
+                    }
+                    migrated++;
+                }
+            }
+        } catch (DataAccessException e) {
+            log.error("Legacy photo migration stopped after {} photos: {}", migrated, e.getMessage(), e);
+        }
+        if (migrated > 0) {
+            log.info("Migrated {} legacy profile photos to the photo store{}", migrated,
+                    clearBlobs ? "" : "; blobs kept until app.photo.shared-storage is enabled");
+        }
+        if (alreadyStored > 0 && !clearBlobs) {
+            log.debug("{} legacy profile photos are already in this node's photo store", alreadyStored);
+        }
+    }
+
+    private boolean hasLegacyPhotoColumn() {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            DatabaseMetaData metaData = connection.getMetaData();
+            String table = metaData.storesUpperCaseIdentifiers() ? "USERS" : "users";
+            String column = metaData.storesUpperCaseIdentifiers() ? "PHOTO" : "photo";
+            try (ResultSet columns = metaData.getColumns(connection.getCatalog(), null, table, column)) {
+                return columns.next();
+            }
+        }));
+    }
+}
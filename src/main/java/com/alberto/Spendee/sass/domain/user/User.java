@@ -39,9 +39,13 @@ public class User implements UserDetails {
     )
     private Set<Role> roles = new HashSet<>();
 
-    @Lob
-    @Column(name = "photo", columnDefinition = "LONGBLOB")
-    private byte[] photo;
+    // SHA-256 of the profile photo held by PhotoStorageService
+    @Column(name = "photo_hash", length = 64)
+    private String photoHash;
+
+    // Carried in tokens; bumped when roles or password change so older refresh tokens stop working
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
 
     public User() {
     }
@@ -53,6 +57,21 @@ public class User implements UserDetails {
         this.password = password;
     }
 
+    /**
+     * A detached stand-in for an authenticated user, as rebuilt from a token or a stored session.
+     * Only the id, email, roles and token version are set; anything else has to be loaded.
+     */
+    public static User principal(Long id, String email, int tokenVersion, Collection<String> roleNames) {
+        User user = new User();
+        user.setId(id);
+        user.setEmail(email);
+        user.setTokenVersion(tokenVersion);
+        if (roleNames != null) {
+            roleNames.forEach(name -> user.getRoles().add(new Role(name)));
+        }
+        return user;
+    }
+
     public Long getId() {
         return id;
     }
@@ -133,14 +152,23 @@ public class User implements UserDetails {
         this.roles = roles;
     }
 
-    public byte[] getPhoto() {
-        return photo;
+    public String getPhotoHash() {
+        return photoHash;
     }
 
-    public void setPhoto(byte[] photo) {
-        this.photo = photo;
+    public void setPhotoHash(String photoHash) {
+        this.photoHash = photoHash;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
 
+    public void setTokenVersion(int tokenVersion) {
+        this.tokenVersion = tokenVersion;
+    }
 
+    public void bumpTokenVersion() {
+        this.tokenVersion++;
+    }
 }
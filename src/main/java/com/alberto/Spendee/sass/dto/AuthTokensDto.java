@@ -0,0 +1,7 @@
+package com.alberto.Spendee.sass.dto;
+
+/**
+ * A fresh access token, the refresh token to renew it with, and the access token's lifetime in seconds
+ */
+public record AuthTokensDto(String accessToken, String refreshToken, long expiresIn) {
+}
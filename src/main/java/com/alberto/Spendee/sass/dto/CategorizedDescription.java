@@ -0,0 +1,7 @@
+package com.alberto.Spendee.sass.dto;
+
+/**
+ * A categorized transaction's description, the training data for automatic categorization
+ */
+public record CategorizedDescription(String description, Long categoryId) {
+}
@@ -0,0 +1,28 @@
+package com.alberto.Spendee.sass.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Income and expense totals for the dashboard, produced by a single conditional-aggregation query
+ */
+public record DashboardTotals(BigDecimal totalIncome,
+                              BigDecimal totalExpenses,
+                              BigDecimal monthlyIncome,
+                              BigDecimal monthlyExpenses,
+                              BigDecimal previousMonthlyIncome,
+                              BigDecimal previousMonthlyExpenses) {
+
+    public DashboardTotals {
+        // SUM over no matching rows is NULL
+        totalIncome = orZero(totalIncome);
+        totalExpenses = orZero(totalExpenses);
+        monthlyIncome = orZero(monthlyIncome);
+        monthlyExpenses = orZero(monthlyExpenses);
+        previousMonthlyIncome = orZero(previousMonthlyIncome);
+        previousMonthlyExpenses = orZero(previousMonthlyExpenses);
+    }
+
+    private static BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
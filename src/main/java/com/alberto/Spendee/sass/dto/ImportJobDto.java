@@ -0,0 +1,23 @@
+package com.alberto.Spendee.sass.dto;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJob;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a statement import as reported to the client
+ */
+public record ImportJobDto(Long id, ImportJobStatus status, String fileName,
+                           int parsedTransactions, int savedTransactions, int skippedTransactions,
+                           BigDecimal totalIncome, BigDecimal totalExpense, String errorMessage,
+                           LocalDateTime createdAt, LocalDateTime finishedAt) {
+
+    public static ImportJobDto from(ImportJob job) {
+        return new ImportJobDto(job.getId(), job.getStatus(), job.getFileName(),
+                job.getParsedCount(), job.getSavedCount(), job.getSkippedCount(),
+                job.getTotalIncome(), job.getTotalExpense(), job.getErrorMessage(),
+                job.getCreatedAt(), job.getFinishedAt());
+    }
+}
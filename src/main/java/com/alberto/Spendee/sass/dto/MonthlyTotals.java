@@ -0,0 +1,16 @@
+package com.alberto.Spendee.sass.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Income and expense totals for one calendar month, read from the transaction rollups
+ */
+public record MonthlyTotals(LocalDate monthStart, BigDecimal income, BigDecimal expense) {
+
+    public MonthlyTotals {
+        // SUM over no matching rows is NULL
+        income = income != null ? income : BigDecimal.ZERO;
+        expense = expense != null ? expense : BigDecimal.ZERO;
+    }
+}
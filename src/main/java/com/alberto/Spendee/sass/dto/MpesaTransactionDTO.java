@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Data
 @NoArgsConstructor
@@ -17,5 +18,8 @@ public class MpesaTransactionDTO {
     private String type; // INCOME or EXPENSE
     private String transactionCode;
     private String details;
+    // Only known for rows from the DETAILED STATEMENT section
+    private LocalDateTime completionTime;
+    private BigDecimal balance;
 }
 
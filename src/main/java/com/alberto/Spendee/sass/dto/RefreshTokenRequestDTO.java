@@ -0,0 +1,4 @@
+package com.alberto.Spendee.sass.dto;
+
+public record RefreshTokenRequestDTO(String refreshToken) {
+}
@@ -0,0 +1,14 @@
+package com.alberto.Spendee.sass.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * Outcome of writing a parsed statement: what was saved, what was skipped as a duplicate, and how fast
+ */
+public record StatementImportResult(int savedTransactions, int skippedTransactions,
+                                    BigDecimal totalIncome, BigDecimal totalExpense, long elapsedMillis) {
+
+    public long rowsPerSecond() {
+        return elapsedMillis > 0 ? savedTransactions * 1000L / elapsedMillis : savedTransactions;
+    }
+}
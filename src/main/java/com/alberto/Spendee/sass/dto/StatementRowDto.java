@@ -0,0 +1,29 @@
+package com.alberto.Spendee.sass.dto;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One transaction read from an imported statement file. The external reference, taken from the file
+ * or derived from the row by the importer, is what repeat imports are deduplicated on.
+ * Rows are fitted to the transactions columns here, for every importer: the description is cut to
+ * its column and a reference too long for its column is dropped, since a cut one could match another row.
+ */
+public record StatementRowDto(LocalDate date, String description, BigDecimal amount,
+                              TransactionType type, String externalRef) {
+
+    // Sizes of transactions.description and transactions.external_ref
+    public static final int MAX_DESCRIPTION_LENGTH = 255;
+    public static final int MAX_REFERENCE_LENGTH = 64;
+
+    public StatementRowDto {
+        if (description != null && description.length() > MAX_DESCRIPTION_LENGTH) {
+            description = description.substring(0, MAX_DESCRIPTION_LENGTH);
+        }
+        if (externalRef != null && externalRef.length() > MAX_REFERENCE_LENGTH) {
+            externalRef = null;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.alberto.Spendee.sass.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransactionPageDto {
+    private List<TransactionDto> items;
+    private String next; // opaque cursor for the following page, null on the last page
+}
@@ -0,0 +1,44 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Applies the {@link LoginRateLimiter} to form logins, ahead of the filter that looks the user up
+ * and checks the password. A refused attempt goes back to the login page without any hashing.
+ * Registered in the form-login filter chain only, so it is deliberately not a component.
+ */
+public class LoginRateLimitFilter extends OncePerRequestFilter {
+
+    static final String THROTTLED_URL = "/auth/login?error=throttled";
+
+    private final LoginRateLimiter loginRateLimiter;
+    private final RequestMatcher loginRequests;
+
+    public LoginRateLimitFilter(LoginRateLimiter loginRateLimiter, String loginProcessingUrl) {
+        this.loginRateLimiter = loginRateLimiter;
+        this.loginRequests = PathPatternRequestMatcher.withDefaults().matcher(HttpMethod.POST, loginProcessingUrl);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !loginRequests.matches(request);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        if (!loginRateLimiter.tryAcquire(request.getRemoteAddr(), request.getParameter("email"))) {
+            response.sendRedirect(request.getContextPath() + THROTTLED_URL);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
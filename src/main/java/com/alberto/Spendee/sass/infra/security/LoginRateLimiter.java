@@ -0,0 +1,107 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets for login and registration attempts, one per client address and one per email.
+ * Checked before any password hashing, so a credential-stuffing wave is turned away cheaply.
+ * Buckets are kept in bounded LRU maps; a forgotten bucket simply starts out full again.
+ */
+@Component
+public class LoginRateLimiter {
+
+    @Value("${api.security.rate-limit.per-ip:20}")
+    private int perIpPerMinute = 20;
+
+    @Value("${api.security.rate-limit.per-email:5}")
+    private int perEmailPerMinute = 5;
+
+    @Value("${api.security.rate-limit.tracked-keys:10000}")
+    private int trackedKeys = 10000;
+
+    LongSupplier nanoClock = System::nanoTime;
+
+    private final Map<String, Bucket> ipBuckets = lruMap();
+    private final Map<String, Bucket> emailBuckets = lruMap();
+
+    private final AtomicLong ipThrottled = new AtomicLong();
+    private final AtomicLong emailThrottled = new AtomicLong();
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("auth.login.throttled", ipThrottled, AtomicLong::get)
+                .description("Login and registration attempts refused by the per-address limit")
+                .tag("key", "ip")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.login.throttled", emailThrottled, AtomicLong::get)
+                .description("Login and registration attempts refused by the per-email limit")
+                .tag("key", "email")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Take a token from the address's bucket and, when an email is given, from the email's.
+     * False when either is empty.
+     */
+    public boolean tryAcquire(String remoteAddress, String email) {
+        if (remoteAddress != null && !take(ipBuckets, remoteAddress, perIpPerMinute)) {
+            ipThrottled.incrementAndGet();
+            return false;
+        }
+        if (email != null && !take(emailBuckets, email.trim().toLowerCase(Locale.ROOT), perEmailPerMinute)) {
+            emailThrottled.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private boolean take(Map<String, Bucket> buckets, String key, int perMinute) {
+        long now = nanoClock.getAsLong();
+        synchronized (buckets) {
+            return buckets.computeIfAbsent(key, k -> new Bucket(perMinute, now)).take(perMinute, now);
+        }
+    }
+
+    private <V> Map<String, V> lruMap() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > trackedKeys;
+            }
+        };
+    }
+
+    // Holds up to perMinute tokens and regains them at perMinute a minute
+    private static final class Bucket {
+
+        private double tokens;
+        private long refilledAt;
+
+        Bucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.refilledAt = now;
+        }
+
+        boolean take(int perMinute, long now) {
+            double elapsedMinutes = (double) (now - refilledAt) / TimeUnit.MINUTES.toNanos(1);
+            tokens = Math.min(perMinute, tokens + elapsedMinutes * perMinute);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on its own small pool rather than on request threads, so a burst of logins can't
+ * take every Tomcat worker. The pool's queue is bounded: when it is full the call throws
+ * {@link TaskRejectedException} straight away instead of queueing more work.
+ */
+@Service
+public class PasswordHasher {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    @Qualifier("passwordHashExecutor")
+    private TaskExecutor passwordHashExecutor;
+
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong matchesNanos = new AtomicLong();
+    private final AtomicLong encodes = new AtomicLong();
+    private final AtomicLong encodesNanos = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionTimer.builder("auth.password.hash", this,
+                        hasher -> hasher.matches.get(), hasher -> hasher.matchesNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Password checks against a stored hash")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        FunctionTimer.builder("auth.password.hash", this,
+                        hasher -> hasher.encodes.get(), hasher -> hasher.encodesNanos.get(), TimeUnit.NANOSECONDS)
+                .description("New password hashes")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        if (passwordHashExecutor instanceof ThreadPoolTaskExecutor pool) {
+            Gauge.builder("auth.password.hash.queued", pool, ThreadPoolTaskExecutor::getQueueSize)
+                    .description("Password hashes waiting for a thread")
+                    .register(meterRegistry);
+            Gauge.builder("auth.password.hash.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("auth.password.hash.rejected", rejected, AtomicLong::get)
+                .description("Logins and registrations turned away because the hashing queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Check a password against its stored hash on the hashing pool
+     */
+    public CompletableFuture<Boolean> matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), matches, matchesNanos);
+    }
+
+    /**
+     * Hash a new password on the hashing pool
+     */
+    public CompletableFuture<String> encode(CharSequence rawPassword) {
+        return submit(() -> passwordEncoder.encode(rawPassword), encodes, encodesNanos);
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> work, AtomicLong count, AtomicLong nanos) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return work.get();
+                } finally {
+                    count.incrementAndGet();
+                    nanos.addAndGet(System.nanoTime() - start);
+                }
+            }, passwordHashExecutor);
+        } catch (TaskRejectedException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * The form login's password encoder. Spring Security calls it synchronously, so it waits for the
+ * {@link PasswordHasher}, but the hashing itself still runs on the bounded pool: concurrent BCrypt
+ * work stays capped, and a full queue fails the login instead of queueing more.
+ */
+public class PooledPasswordEncoder implements PasswordEncoder {
+
+    private final PasswordHasher passwordHasher;
+
+    public PooledPasswordEncoder(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return await(() -> passwordHasher.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(() -> passwordHasher.matches(rawPassword, encodedPassword));
+    }
+
+    private static <T> T await(Supplier<CompletableFuture<T>> work) {
+        try {
+            return work.get().join();
+        } catch (TaskRejectedException e) {
+            throw new AuthenticationServiceException("The server is busy, please try again shortly", e);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.alberto.Spendee.sass.infra.security;
 
 import com.alberto.Spendee.sass.domain.user.User;
-import com.alberto.Spendee.sass.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.Cookie;
@@ -10,7 +9,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.annotation.Order;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
@@ -19,15 +17,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.List;
 
+/**
+ * Authenticates requests carrying an access token. The principal is built from the verified
+ * claims alone, without loading the user.
+ */
 @Component
 @Order(1)
 public class SecurityFilter extends OncePerRequestFilter {
     @Autowired
     TokenService tokenService;
-    @Autowired
-    UserRepository userRepository;
 
     private static final Logger logger = LoggerFactory.getLogger(SecurityFilter.class);
 
@@ -37,15 +36,12 @@ public class SecurityFilter extends OncePerRequestFilter {
         if (token != null) {
             logger.debug("[SecurityFilter] Token recovered from request for URI {}", request.getRequestURI());
         }
-        var login = tokenService.validateToken(token);
+        var decoded = tokenService.decodeToken(token);
 
-        if(login != null){
+        if(decoded != null){
             try {
-                User user = userRepository.findByEmail(login).orElseThrow(() -> new RuntimeException("User Not Found"));
-                List<SimpleGrantedAuthority> authorities = user.getRoles().stream()
-                        .map(role -> new SimpleGrantedAuthority(role.getName()))
-                        .toList();
-                var authentication = new UsernamePasswordAuthenticationToken(user, null, authorities);
+                User user = tokenService.principalOf(decoded);
+                var authentication = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
                 SecurityContextHolder.getContext().setAuthentication(authentication);
                 logger.debug("[SecurityFilter] Authenticated user {} for URI {}", user.getEmail(), request.getRequestURI());
             } catch (Exception e) {
@@ -0,0 +1,110 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import com.alberto.Spendee.sass.domain.role.Role;
+import com.alberto.Spendee.sass.domain.user.User;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encodes session attributes for the JDBC session store. The security context of a logged-in user,
+ * which every page request reads, is written as the user's id, email, token version and role names,
+ * a few bytes beyond the email and role names themselves, instead of a Java-serialized entity graph
+ * (which the User entity and its roles don't support anyway). Any other attribute falls back to Java
+ * serialization.
+ */
+public final class SessionAttributeCodec {
+
+    private static final byte JAVA_SERIALIZED = 0;
+    private static final byte USER_SECURITY_CONTEXT = 1;
+
+    private final SerializingConverter serializer = new SerializingConverter();
+    private final DeserializingConverter deserializer;
+
+    public SessionAttributeCodec(ClassLoader classLoader) {
+        this.deserializer = new DeserializingConverter(classLoader);
+    }
+
+    /**
+     * Converters between attribute values and stored bytes, in the form Spring Session expects
+     */
+    public ConversionService conversionService() {
+        GenericConversionService conversionService = new GenericConversionService();
+        conversionService.addConverter(Object.class, byte[].class, this::encode);
+        conversionService.addConverter(byte[].class, Object.class, this::decode);
+        return conversionService;
+    }
+
+    public byte[] encode(Object attribute) {
+        User user = userOf(attribute);
+        if (user == null) {
+            byte[] serialized = serializer.convert(attribute);
+            byte[] encoded = new byte[serialized.length + 1];
+            encoded[0] = JAVA_SERIALIZED;
+            System.arraycopy(serialized, 0, encoded, 1, serialized.length);
+            return encoded;
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(USER_SECURITY_CONTEXT);
+            out.writeLong(user.getId());
+            out.writeUTF(user.getEmail());
+            out.writeInt(user.getTokenVersion());
+            out.writeShort(user.getRoles().size());
+            for (Role role : user.getRoles()) {
+                out.writeUTF(role.getName());
+            }
+        } catch (IOException e) {
+            // Writing to memory doesn't fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public Object decode(byte[] encoded) {
+        if (encoded[0] == JAVA_SERIALIZED) {
+            return deserializer.convert(Arrays.copyOfRange(encoded, 1, encoded.length));
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(encoded, 1, encoded.length - 1))) {
+            long id = in.readLong();
+            String email = in.readUTF();
+            int tokenVersion = in.readInt();
+            int roleCount = in.readShort();
+            List<String> roleNames = new ArrayList<>(roleCount);
+            for (int i = 0; i < roleCount; i++) {
+                roleNames.add(in.readUTF());
+            }
+            User user = User.principal(id, email, tokenVersion, roleNames);
+            return new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(user, null, user.getAuthorities()));
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupt session attribute", e);
+        }
+    }
+
+    // The user behind a plain logged-in security context, or null for anything else
+    private static User userOf(Object attribute) {
+        if (attribute instanceof SecurityContext context
+                && context.getAuthentication() instanceof UsernamePasswordAuthenticationToken authentication
+                && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof User user
+                && user.getId() != null && user.getEmail() != null) {
+            return user;
+        }
+        return null;
+    }
+}
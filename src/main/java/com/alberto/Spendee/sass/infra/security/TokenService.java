@@ -1,51 +1,291 @@
 package com.alberto.Spendee.sass.infra.security;
 
+import com.alberto.Spendee.sass.domain.role.Role;
 import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.AuthTokensDto;
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
+import com.auth0.jwt.RegisteredClaims;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.IncorrectClaimException;
 import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.auth0.jwt.interfaces.Verification;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Issues and verifies the API's JWTs. Access tokens are short-lived and self-contained: they carry
+ * the user id, role names and token version, so a request is authenticated from the token alone.
+ * Refresh tokens live longer, carry only the id and version, and are exchanged for new access
+ * tokens once the version has been checked against the user.
+ * <p>
+ * Every request presents an access token, usually one already seen seconds earlier, so verified
+ * access tokens are remembered by digest until they expire. Tokens rejected for their signature,
+ * format or type are remembered too; tokens rejected on their timestamps are not, since a token
+ * that isn't valid yet, or only seems so because of clock skew, may become valid later.
+ * The two caches are separate so a flood of bad tokens can't push out the good ones.
+ */
 @Service
 public class TokenService {
 
-    @Value("${api.security.token.secret}")
-    private String secret;
+    private static final String ISSUER = "Spendee";
+    private static final String ACCESS = "access";
+    private static final String REFRESH = "refresh";
+
+    private final Algorithm algorithm;
+    // Issues expiry times and decides when verified and cached tokens have expired
+    private final Clock clock;
+    private final JWTVerifier accessVerifier;
+    private final JWTVerifier refreshVerifier;
+
+    @Value("${api.security.token.access-ttl:15m}")
+    private Duration accessTtl = Duration.ofMinutes(15);
+
+    @Value("${api.security.token.refresh-ttl:7d}")
+    private Duration refreshTtl = Duration.ofDays(7);
+
+    @Value("${api.security.token.cache-size:10000}")
+    private int maxVerified = 10000;
+
+    @Value("${api.security.token.rejected-cache-size:10000}")
+    private int maxRejected = 10000;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong rejectedHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong verifications = new AtomicLong();
+    private final AtomicLong verificationNanos = new AtomicLong();
+
+    // Digest of a verified access token -> its claims, until the token expires
+    private final Map<ByteBuffer, Verified> verified = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Verified> eldest) {
+            return size() > maxVerified;
+        }
+    };
+
+    // Digests of tokens whose signature, format or type failed; with a fixed secret they can never pass later
+    private final Map<ByteBuffer, Boolean> rejected = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Boolean> eldest) {
+            return size() > maxRejected;
+        }
+    };
+
+    private record Verified(DecodedJWT token, long expiresAtMillis) {
+    }
+
+    @Autowired
+    public TokenService(@Value("${api.security.token.secret}") String secret) {
+        this(secret, Clock.systemUTC());
+    }
+
+    TokenService(String secret, Clock clock) {
+        this.clock = clock;
+        this.algorithm = Algorithm.HMAC256(secret);
+        this.accessVerifier = verifier(ACCESS);
+        this.refreshVerifier = verifier(REFRESH);
+    }
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("auth.token.cache.hits", hits, AtomicLong::get)
+                .description("Access tokens accepted from the verified-token cache")
+                .tag("result", "valid")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.hits", rejectedHits, AtomicLong::get)
+                .description("Access tokens refused from the rejected-token cache")
+                .tag("result", "invalid")
+                .register(meterRegistry);
+        FunctionCounter.builder("auth.token.cache.misses", misses, AtomicLong::get)
+                .description("Access tokens that had to be verified")
+                .register(meterRegistry);
+        FunctionTimer.builder("auth.token.verify", this,
+                        service -> service.verifications.get(),
+                        service -> service.verificationNanos.get(), TimeUnit.NANOSECONDS)
+                .description("Signature and claim verification of tokens not found in the caches")
+                .register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", this, TokenService::verifiedCacheSize)
+                .tag("result", "valid")
+                .register(meterRegistry);
+        Gauge.builder("auth.token.cache.size", this, TokenService::rejectedCacheSize)
+                .tag("result", "invalid")
+                .register(meterRegistry);
+    }
 
     public String generateToken(User user) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
             return JWT.create()
-                    .withIssuer("Spendee")
+                    .withIssuer(ISSUER)
                     .withSubject(user.getEmail())
+                    .withClaim("typ", ACCESS)
                     .withClaim("id", user.getId())
-                    .withExpiresAt(generateExpirationDate())
+                    .withClaim("roles", user.getRoles().stream().map(Role::getName).toList())
+                    .withClaim("ver", user.getTokenVersion())
+                    .withExpiresAt(Instant.now(clock).plus(accessTtl))
                     .sign(algorithm);
         } catch (JWTCreationException exception) {
             throw new RuntimeException("Error while generating token", exception);
         }
     }
 
-    public String validateToken(String token) {
+    public String generateRefreshToken(User user) {
+        try {
+            return JWT.create()
+                    .withIssuer(ISSUER)
+                    .withSubject(user.getEmail())
+                    .withClaim("typ", REFRESH)
+                    .withClaim("id", user.getId())
+                    .withClaim("ver", user.getTokenVersion())
+                    .withExpiresAt(Instant.now(clock).plus(refreshTtl))
+                    .sign(algorithm);
+        } catch (JWTCreationException exception) {
+            throw new RuntimeException("Error while generating token", exception);
+        }
+    }
+
+    /**
+     * A new access and refresh token pair for the user
+     */
+    public AuthTokensDto issueTokens(User user) {
+        return new AuthTokensDto(generateToken(user), generateRefreshToken(user), accessTtl.toSeconds());
+    }
+
+    /**
+     * Verify an access token and return its decoded claims, or null if it is missing, invalid,
+     * expired or a refresh token
+     */
+    public DecodedJWT decodeToken(String token) {
+        if (token == null) {
+            return null;
+        }
+        ByteBuffer digest = digest(token);
+        synchronized (verified) {
+            Verified cached = verified.get(digest);
+            if (cached != null) {
+                if (clock.millis() < cached.expiresAtMillis()) {
+                    hits.incrementAndGet();
+                    return cached.token();
+                }
+                verified.remove(digest);
+            }
+        }
+        synchronized (rejected) {
+            if (rejected.get(digest) != null) {
+                rejectedHits.incrementAndGet();
+                return null;
+            }
+        }
+        misses.incrementAndGet();
+
+        DecodedJWT decoded;
+        try {
+            decoded = verifyOrThrow(accessVerifier, token);
+        } catch (JWTVerificationException exception) {
+            if (!isTimeBased(exception)) {
+                synchronized (rejected) {
+                    rejected.put(digest, Boolean.TRUE);
+                }
+            }
+            return null;
+        }
+        synchronized (verified) {
+            verified.put(digest, new Verified(decoded, decoded.getExpiresAtAsInstant().toEpochMilli()));
+        }
+        return decoded;
+    }
+
+    /**
+     * Verify a refresh token; the caller still has to check its version against the user.
+     * Refresh tokens are presented rarely, so they aren't cached.
+     */
+    public DecodedJWT decodeRefreshToken(String token) {
+        return token == null ? null : verify(refreshVerifier, token);
+    }
+
+    /**
+     * The authenticated user as described by a verified access token. Only the id, email, roles
+     * and token version are set; anything else has to be loaded.
+     */
+    public User principalOf(DecodedJWT token) {
+        return User.principal(token.getClaim("id").asLong(), token.getSubject(), token.getClaim("ver").asInt(),
+                token.getClaim("roles").asList(String.class));
+    }
+
+    public int verifiedCacheSize() {
+        synchronized (verified) {
+            return verified.size();
+        }
+    }
+
+    public int rejectedCacheSize() {
+        synchronized (rejected) {
+            return rejected.size();
+        }
+    }
+
+    private JWTVerifier verifier(String type) {
+        Verification verification = JWT.require(algorithm)
+                .withIssuer(ISSUER)
+                .withClaim("typ", type)
+                .withClaimPresence("id")
+                .withClaimPresence("ver")
+                .withClaimPresence("exp");
+        return ((JWTVerifier.BaseVerification) verification).build(clock);
+    }
+
+    private DecodedJWT verify(JWTVerifier verifier, String token) {
         try {
-            Algorithm algorithm = Algorithm.HMAC256(secret);
-            return JWT.require(algorithm)
-                    .withIssuer("Spendee")
-                    .build()
-                    .verify(token)
-                    .getSubject();
+            return verifyOrThrow(verifier, token);
         } catch (JWTVerificationException exception) {
             return null;
         }
     }
 
-    private Instant generateExpirationDate() {
-        return LocalDateTime.now().plusHours(24).toInstant(ZoneOffset.of("-03:00"));
+    private DecodedJWT verifyOrThrow(JWTVerifier verifier, String token) {
+        long start = System.nanoTime();
+        try {
+            return verifier.verify(token);
+        } finally {
+            verifications.incrementAndGet();
+            verificationNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    // Failures on exp, nbf or iat depend on the clock rather than the token, so they aren't final
+    private static boolean isTimeBased(JWTVerificationException exception) {
+        return exception instanceof TokenExpiredException
+                || exception instanceof IncorrectClaimException incorrect
+                && (RegisteredClaims.NOT_BEFORE.equals(incorrect.getClaimName())
+                || RegisteredClaims.ISSUED_AT.equals(incorrect.getClaimName()));
+    }
+
+    private static ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to provide SHA-256
+            throw new IllegalStateException(e);
+        }
     }
 }
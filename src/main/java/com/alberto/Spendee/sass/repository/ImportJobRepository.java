@@ -0,0 +1,63 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJob;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Optional;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, Long> {
+
+    Optional<ImportJob> findByIdAndUserId(Long id, Long userId);
+
+    // The latest finished import of the same file by the same user
+    Optional<ImportJob> findFirstByUserIdAndSourceAndContentSha256AndStatusOrderByIdDesc(
+            Long userId, TransactionSource source, String contentSha256, ImportJobStatus status);
+
+    // Imported rows were deleted, so a repeat upload of any earlier file must be parsed again to restore them
+    @Modifying
+    @Query("UPDATE ImportJob j SET j.contentSha256 = NULL " +
+           "WHERE j.userId = :userId AND j.source = :source AND j.contentSha256 IS NOT NULL")
+    int forgetContentHashes(@Param("userId") Long userId, @Param("source") TransactionSource source);
+
+    // Keep this node's unfinished jobs from being taken for dead. Leaves the version alone, so the
+    // node's own progress saves don't conflict with it.
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.heartbeatAt = :now WHERE j.nodeId = :nodeId AND j.status IN :statuses")
+    int heartbeat(@Param("nodeId") String nodeId,
+                  @Param("statuses") Collection<ImportJobStatus> statuses,
+                  @Param("now") LocalDateTime now);
+
+    // This node's jobs still running when it stopped lost their uploaded file and can't resume
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.alberto.Spendee.sass.domain.importjob.ImportJobStatus.FAILED, " +
+           "j.errorMessage = :message, j.finishedAt = :now, j.version = j.version + 1 " +
+           "WHERE j.status IN :statuses AND j.nodeId = :nodeId")
+    int failUnfinishedOnNode(@Param("nodeId") String nodeId,
+                             @Param("statuses") Collection<ImportJobStatus> statuses,
+                             @Param("message") String message,
+                             @Param("now") LocalDateTime now);
+
+    // Jobs whose node stopped reporting them alive, whichever node that was. Bumping the version makes
+    // a late progress save from that node fail instead of bringing the job back.
+    @Modifying
+    @Transactional
+    @Query("UPDATE ImportJob j SET j.status = com.alberto.Spendee.sass.domain.importjob.ImportJobStatus.FAILED, " +
+           "j.errorMessage = :message, j.finishedAt = :now, j.version = j.version + 1 " +
+           "WHERE j.status IN :statuses AND COALESCE(j.heartbeatAt, j.createdAt) < :staleBefore")
+    int failStale(@Param("statuses") Collection<ImportJobStatus> statuses,
+                  @Param("message") String message,
+                  @Param("now") LocalDateTime now,
+                  @Param("staleBefore") LocalDateTime staleBefore);
+}
@@ -0,0 +1,68 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.outbox.OutboxEvent;
+import com.alberto.Spendee.sass.domain.outbox.PendingOutboxEvents;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+
+    // One row per user however many events they have queued, oldest waiting user first.
+    // Users another node is still evaluating are left out.
+    @Query("SELECT new com.alberto.Spendee.sass.domain.outbox.PendingOutboxEvents(e.userId, MAX(e.id)) " +
+           "FROM OutboxEvent e WHERE e.eventType = :eventType GROUP BY e.userId " +
+           "HAVING MAX(CASE WHEN e.claimedUntil > :now THEN 1 ELSE 0 END) = 0 ORDER BY MIN(e.id)")
+    List<PendingOutboxEvents> findPendingByUser(@Param("eventType") String eventType,
+                                                @Param("now") LocalDateTime now,
+                                                Limit limit);
+
+    /**
+     * Claim a user's events up to lastEventId for this node until the lease runs out.
+     * Rows under another node's live claim are left alone.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = :node, e.claimedUntil = :until " +
+           "WHERE e.eventType = :eventType AND e.userId = :userId AND e.id <= :lastEventId " +
+           "AND (e.claimedUntil IS NULL OR e.claimedUntil <= :now)")
+    int claim(@Param("eventType") String eventType,
+              @Param("userId") Long userId,
+              @Param("lastEventId") Long lastEventId,
+              @Param("node") String node,
+              @Param("now") LocalDateTime now,
+              @Param("until") LocalDateTime until);
+
+    // Live claims other nodes hold on a user's events
+    @Query("SELECT COUNT(e) FROM OutboxEvent e WHERE e.eventType = :eventType AND e.userId = :userId " +
+           "AND e.claimedBy <> :node AND e.claimedUntil > :now")
+    long countClaimedByOthers(@Param("eventType") String eventType,
+                              @Param("userId") Long userId,
+                              @Param("node") String node,
+                              @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE OutboxEvent e SET e.claimedBy = NULL, e.claimedUntil = NULL " +
+           "WHERE e.eventType = :eventType AND e.userId = :userId AND e.claimedBy = :node")
+    int release(@Param("eventType") String eventType,
+                @Param("userId") Long userId,
+                @Param("node") String node);
+
+    // Only the events this node claimed: after a lost lease they belong to whoever took them over
+    @Modifying
+    @Query("DELETE FROM OutboxEvent e WHERE e.eventType = :eventType AND e.userId = :userId " +
+           "AND e.id <= :lastEventId AND e.claimedBy = :node")
+    int deleteHandled(@Param("eventType") String eventType,
+                      @Param("userId") Long userId,
+                      @Param("lastEventId") Long lastEventId,
+                      @Param("node") String node);
+}
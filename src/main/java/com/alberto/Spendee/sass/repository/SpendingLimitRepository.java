@@ -1,13 +1,18 @@
 package com.alberto.Spendee.sass.repository;
 
+import com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod;
 import com.alberto.Spendee.sass.domain.spendinglimit.SpendingLimit;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.dto.SpendingLimitDto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,4 +31,71 @@ public interface SpendingLimitRepository extends JpaRepository<SpendingLimit, Lo
     
     @Query("SELECT sl FROM SpendingLimit sl WHERE sl.isActive = true AND sl.currentSpent >= sl.limitAmount")
     List<SpendingLimit> findExceededLimits();
+
+    List<SpendingLimit> findByIsActiveTrueAndPeriodStartIsNull();
+
+    // The window containing the expense's date, picked per row by the limit's period
+    String WINDOW_START = "CASE l.period " +
+            "WHEN com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod.DAILY THEN :dayStart " +
+            "WHEN com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod.WEEKLY THEN :weekStart " +
+            "WHEN com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod.MONTHLY THEN :monthStart " +
+            "ELSE :yearStart END";
+
+    String MATCHING_LIMITS = "WHERE l.user.id = :userId AND l.isActive = true " +
+            "AND (l.category.id = :categoryId OR (:includeGlobal = true AND l.category IS NULL)) ";
+
+    // Atomic increment; a limit still on an older window is moved to the expense's window and restarts from it.
+    // periodStart is assigned last because MySQL evaluates SET assignments left to right.
+    @Modifying
+    @Query("UPDATE SpendingLimit l SET " +
+           "l.currentSpent = CASE WHEN l.periodStart = " + WINDOW_START + " THEN l.currentSpent + :amount ELSE :amount END, " +
+           "l.evaluatedSpent = CASE WHEN l.periodStart = " + WINDOW_START + " THEN l.evaluatedSpent ELSE 0 END, " +
+           "l.periodStart = " + WINDOW_START + " " +
+           MATCHING_LIMITS +
+           "AND l.periodStart <= " + WINDOW_START)
+    int addSpending(@Param("userId") Long userId,
+                    @Param("categoryId") Long categoryId,
+                    @Param("includeGlobal") boolean includeGlobal,
+                    @Param("amount") BigDecimal amount,
+                    @Param("dayStart") LocalDate dayStart,
+                    @Param("weekStart") LocalDate weekStart,
+                    @Param("monthStart") LocalDate monthStart,
+                    @Param("yearStart") LocalDate yearStart);
+
+    // Atomic decrement, only for limits whose current window holds the expense
+    @Modifying
+    @Query("UPDATE SpendingLimit l SET " +
+           "l.currentSpent = CASE WHEN l.currentSpent > :amount THEN l.currentSpent - :amount ELSE 0 END " +
+           MATCHING_LIMITS +
+           "AND l.periodStart = " + WINDOW_START)
+    int subtractSpending(@Param("userId") Long userId,
+                         @Param("categoryId") Long categoryId,
+                         @Param("includeGlobal") boolean includeGlobal,
+                         @Param("amount") BigDecimal amount,
+                         @Param("dayStart") LocalDate dayStart,
+                         @Param("weekStart") LocalDate weekStart,
+                         @Param("monthStart") LocalDate monthStart,
+                         @Param("yearStart") LocalDate yearStart);
+
+    // Read-only listing: one row per active limit with its category joined in.
+    // A counter whose window has ended but hasn't been rolled over yet reads as zero.
+    @Query("SELECT new com.alberto.Spendee.sass.dto.SpendingLimitDto(" +
+           "l.id, c.id, COALESCE(c.name, 'Total Spending'), l.limitAmount, " +
+           "CASE WHEN l.periodStart < " + WINDOW_START + " THEN 0.00BD ELSE l.currentSpent END, " +
+           "l.period, l.notificationThreshold, l.isActive) " +
+           "FROM SpendingLimit l LEFT JOIN l.category c " +
+           "WHERE l.user.email = :email AND l.isActive = true ORDER BY l.id")
+    List<SpendingLimitDto> findDtosByUserEmail(@Param("email") String email,
+                                               @Param("dayStart") LocalDate dayStart,
+                                               @Param("weekStart") LocalDate weekStart,
+                                               @Param("monthStart") LocalDate monthStart,
+                                               @Param("yearStart") LocalDate yearStart);
+
+    // Start a new, empty window for every limit of the period whose window has ended. Limits still in their
+    // window are left alone: their counter is kept current by the deltas above.
+    @Modifying
+    @Query("UPDATE SpendingLimit l SET l.currentSpent = 0, l.evaluatedSpent = 0, l.periodStart = :windowStart " +
+           "WHERE l.period = :period AND l.isActive = true AND l.periodStart < :windowStart")
+    int rollOver(@Param("period") LimitPeriod period,
+                 @Param("windowStart") LocalDate windowStart);
 }
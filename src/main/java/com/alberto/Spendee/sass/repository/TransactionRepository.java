@@ -2,31 +2,98 @@ package com.alberto.Spendee.sass.repository;
 
 import com.alberto.Spendee.sass.domain.transaction.Category;
 import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
 import com.alberto.Spendee.sass.domain.transaction.TransactionType;
 import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.CategorizedDescription;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
     List<Transaction> findByUserOrderByDateDesc(User user);
 
+    // Which of an import batch's references are already saved; answered from uk_transactions_user_source_external_ref
+    @Query("SELECT t.externalRef FROM Transaction t WHERE t.user = :user AND t.source = :source AND t.externalRef IN :refs")
+    Set<String> findExistingExternalRefs(@Param("user") User user,
+                                         @Param("source") TransactionSource source,
+                                         @Param("refs") Collection<String> refs);
+
+    // Expenses saved with a future date whose date has now come; answered from idx_transactions_limits_pending_date
+    @Query("SELECT t FROM Transaction t WHERE t.limitsPending = true AND t.date <= :today")
+    List<Transaction> findDueLimitsPending(@Param("today") LocalDate today);
+
+    // Claims a due expense for the spending limit counters; 0 when another node already has
+    @Modifying
+    @Query("UPDATE Transaction t SET t.limitsPending = false WHERE t.id = :id AND t.limitsPending = true")
+    int clearLimitsPending(@Param("id") Long id);
+
     @Query("SELECT t FROM Transaction t WHERE t.user = ?1 AND t.date BETWEEN ?2 AND ?3 ORDER BY t.date DESC")
     List<Transaction> findByUserAndDateBetween(User user, LocalDate startDate, LocalDate endDate);
 
     List<Transaction> findTop10ByUserOrderByDateDesc(User user);
 
+    // The user's most recent categorized descriptions, leaving out catch-all categories that say nothing about the row
+    @Query("SELECT new com.alberto.Spendee.sass.dto.CategorizedDescription(t.description, c.id) " +
+            "FROM Transaction t JOIN t.category c " +
+            "WHERE t.user = :user AND c.name NOT IN :excludedCategories ORDER BY t.date DESC, t.id DESC")
+    List<CategorizedDescription> findCategorizedDescriptions(@Param("user") User user,
+                                                             @Param("excludedCategories") Collection<String> excludedCategories,
+                                                             Limit limit);
+
+    // Read-side projections: the category name is joined in the same statement, so listing N rows costs one query
+    String DTO_SELECT = "SELECT new com.alberto.Spendee.sass.dto.TransactionDto(" +
+            "t.id, c.id, c.name, t.date, t.amount, t.description, t.type) " +
+            "FROM Transaction t LEFT JOIN t.category c ";
+
+    @Query(DTO_SELECT + "WHERE t.user = :user ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findDtosByUser(@Param("user") User user);
+
+    @Query(DTO_SELECT + "WHERE t.user = :user AND t.date BETWEEN :startDate AND :endDate ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findDtosByUserAndDateBetween(@Param("user") User user,
+                                                      @Param("startDate") LocalDate startDate,
+                                                      @Param("endDate") LocalDate endDate);
+
+    @Query(DTO_SELECT + "WHERE t.user = :user AND t.date BETWEEN :startDate AND :endDate " +
+           "AND (:categoryId IS NULL OR c.id = :categoryId) AND (:type IS NULL OR t.type = :type) " +
+           "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findDtosForReport(@Param("user") User user,
+                                           @Param("startDate") LocalDate startDate,
+                                           @Param("endDate") LocalDate endDate,
+                                           @Param("categoryId") Long categoryId,
+                                           @Param("type") TransactionType type);
+
+    // Keyset pagination on (date, id) descending - served by the (user_id, date) index without OFFSET scans
+    @Query(DTO_SELECT + "WHERE t.user = :user ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findPageByUser(@Param("user") User user, Limit limit);
+
+    @Query(DTO_SELECT + "WHERE t.user = :user " +
+           "AND (t.date < :date OR (t.date = :date AND t.id < :id)) " +
+           "ORDER BY t.date DESC, t.id DESC")
+    List<TransactionDto> findPageByUserBefore(@Param("user") User user, @Param("date") LocalDate date,
+                                              @Param("id") Long id, Limit limit);
+
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.user = ?1 AND t.type = ?2")
     BigDecimal sumAmountByUserAndType(User user, TransactionType type);
 
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.user = ?1 AND t.type = ?2 AND t.date BETWEEN ?3 AND ?4")
     BigDecimal sumAmountByUserAndTypeAndDateBetween(User user, TransactionType type, LocalDate startDate, LocalDate endDate);
 
+    @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.user = ?1 AND t.category = ?2 AND t.type = ?3 AND t.date BETWEEN ?4 AND ?5")
+    BigDecimal sumAmountByUserAndCategoryAndTypeAndDateBetween(User user, Category category, TransactionType type,
+                                                               LocalDate startDate, LocalDate endDate);
+
     List<Transaction> findByUserAndDateBetweenOrderByDateDesc(User user, LocalDate startDate, LocalDate endDate);
 
     List<Transaction> findByUserAndCategoryAndDateBetweenAndType(User user, Category category, LocalDate startDate, LocalDate endDate, TransactionType type);
@@ -0,0 +1,90 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionRollup;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.DashboardTotals;
+import com.alberto.Spendee.sass.dto.MonthlyTotals;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TransactionRollupRepository extends JpaRepository<TransactionRollup, Long> {
+
+    // Atomic upsert: concurrent writers to the same month/category/type serialize on the unique key row
+    @Modifying
+    @Query(value = "INSERT INTO transaction_rollups (user_id, month_start, category_id, type, total_amount, tx_count) " +
+           "VALUES (:userId, :monthStart, :categoryId, :type, :amount, :count) " +
+           "ON DUPLICATE KEY UPDATE total_amount = total_amount + VALUES(total_amount), " +
+           "tx_count = tx_count + VALUES(tx_count)", nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("monthStart") LocalDate monthStart,
+                   @Param("categoryId") Long categoryId,
+                   @Param("type") String type,
+                   @Param("amount") BigDecimal amount,
+                   @Param("count") long count);
+
+    List<TransactionRollup> findByUserIdOrderByMonthStartAscCategoryIdAscTypeAsc(Long userId);
+
+    // A rebuild holds the user's row exclusively; writers applying deltas share it. A rebuild therefore waits
+    // for in-flight writes to commit before aggregating, and writes wait for the rebuild to commit, so no
+    // transaction is counted both by the aggregate and by its delta.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT u.id FROM User u WHERE u.id = :userId")
+    Long lockUserForRebuild(@Param("userId") Long userId);
+
+    @Lock(LockModeType.PESSIMISTIC_READ)
+    @Query("SELECT u.id FROM User u WHERE u.id = :userId")
+    Long lockUserForDelta(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM TransactionRollup r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+
+    // Recomputes a user's rollups from the raw transactions, used for backfills
+    @Query("SELECT new com.alberto.Spendee.sass.domain.transaction.TransactionRollup(" +
+           "t.user.id, EXTRACT(YEAR FROM t.date), EXTRACT(MONTH FROM t.date), c.id, t.type, SUM(t.amount), COUNT(t)) " +
+           "FROM Transaction t LEFT JOIN t.category c WHERE t.user.id = :userId " +
+           "GROUP BY t.user.id, EXTRACT(YEAR FROM t.date), EXTRACT(MONTH FROM t.date), c.id, t.type")
+    List<TransactionRollup> aggregateTransactions(@Param("userId") Long userId);
+
+    @Query("SELECT DISTINCT t.user.id FROM Transaction t")
+    List<Long> findUserIdsWithTransactions();
+
+    // All-time, current-month and previous-month totals from a handful of rollup rows
+    @Query("SELECT new com.alberto.Spendee.sass.dto.DashboardTotals(" +
+           "SUM(CASE WHEN r.type = :income THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :expense THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :income AND r.monthStart = :month THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :expense AND r.monthStart = :month THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :income AND r.monthStart = :previousMonth THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :expense AND r.monthStart = :previousMonth THEN r.totalAmount END)) " +
+           "FROM TransactionRollup r WHERE r.userId = :userId")
+    DashboardTotals summarizeByUser(@Param("userId") Long userId,
+                                    @Param("income") TransactionType income,
+                                    @Param("expense") TransactionType expense,
+                                    @Param("month") LocalDate month,
+                                    @Param("previousMonth") LocalDate previousMonth);
+
+    @Query("SELECT new com.alberto.Spendee.sass.dto.MonthlyTotals(r.monthStart, " +
+           "SUM(CASE WHEN r.type = :income THEN r.totalAmount END), " +
+           "SUM(CASE WHEN r.type = :expense THEN r.totalAmount END)) " +
+           "FROM TransactionRollup r WHERE r.userId = :userId AND r.monthStart BETWEEN :fromMonth AND :toMonth " +
+           "AND (:categoryId IS NULL OR r.categoryId = :categoryId) AND (:type IS NULL OR r.type = :type) " +
+           "GROUP BY r.monthStart HAVING SUM(r.txCount) > 0 ORDER BY r.monthStart DESC")
+    List<MonthlyTotals> findMonthlyTotals(@Param("userId") Long userId,
+                                          @Param("fromMonth") LocalDate fromMonth,
+                                          @Param("toMonth") LocalDate toMonth,
+                                          @Param("categoryId") Long categoryId,
+                                          @Param("type") TransactionType type,
+                                          @Param("income") TransactionType income,
+                                          @Param("expense") TransactionType expense);
+}
@@ -62,6 +62,8 @@ public class AuthService {
                 .orElseThrow(() -> new RuntimeException("Admin role not found"));
         if (!user.getRoles().contains(adminRole)) {
             user.getRoles().add(adminRole);
+            // Tokens carry the role names; refreshing an older one must log in again to pick up the new role
+            user.bumpTokenVersion();
             userRepository.save(user);
             return true;
         }
@@ -0,0 +1,269 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.dto.CategorizedDescription;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Word → category rules learned from a user's categorized transactions, compiled into one
+ * Aho-Corasick automaton. Descriptions are normalized on the fly (lower case, runs of anything
+ * but ASCII letters and digits collapsed to one space), so classifying a row is a single pass
+ * over its characters with one table lookup each, whatever the number of rules.
+ * Immutable once built and safe to share between threads.
+ */
+public final class CategoryMatcher {
+
+    // Symbol 0 is the word separator, then a-z and 0-9
+    private static final int SEPARATOR = 0;
+    private static final int ALPHABET = 37;
+    private static final byte[] SYMBOLS = new byte[128];
+
+    static {
+        for (char c = 'a'; c <= 'z'; c++) {
+            SYMBOLS[c] = (byte) (1 + c - 'a');
+            SYMBOLS[Character.toUpperCase(c)] = (byte) (1 + c - 'a');
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            SYMBOLS[c] = (byte) (27 + c - '0');
+        }
+    }
+
+    public static final CategoryMatcher EMPTY = new Builder().build();
+
+    private final Long[] categoryIds;
+    // Full DFA: next state for every state and symbol
+    private final int[] transitions;
+    // Rule ending in each state, or -1
+    private final int[] ruleAt;
+    // Nearest shorter suffix state that ends a rule, or 0
+    private final int[] outputLink;
+    private final int[] ruleCategory;
+    private final double[] ruleWeight;
+
+    private CategoryMatcher(Long[] categoryIds, int[] transitions, int[] ruleAt, int[] outputLink,
+                            int[] ruleCategory, double[] ruleWeight) {
+        this.categoryIds = categoryIds;
+        this.transitions = transitions;
+        this.ruleAt = ruleAt;
+        this.outputLink = outputLink;
+        this.ruleCategory = ruleCategory;
+        this.ruleWeight = ruleWeight;
+    }
+
+    /**
+     * Learn rules from categorized descriptions. A word, or pair of adjacent words, becomes a rule
+     * when it appears in at least minSupport descriptions and at least minConfidence of them share
+     * one category. Only the maxRules best supported rules are kept.
+     */
+    public static CategoryMatcher learn(List<CategorizedDescription> examples, int minSupport,
+                                        double minConfidence, int maxRules) {
+        Map<String, Map<Long, Integer>> counts = new HashMap<>();
+        for (CategorizedDescription example : examples) {
+            if (example.description() == null || example.categoryId() == null) {
+                continue;
+            }
+            for (String phrase : phrases(example.description())) {
+                counts.computeIfAbsent(phrase, p -> new HashMap<>(4)).merge(example.categoryId(), 1, Integer::sum);
+            }
+        }
+
+        List<Rule> rules = new ArrayList<>();
+        counts.forEach((phrase, byCategory) -> {
+            int total = 0;
+            Map.Entry<Long, Integer> best = null;
+            for (Map.Entry<Long, Integer> entry : byCategory.entrySet()) {
+                total += entry.getValue();
+                if (best == null || entry.getValue() > best.getValue()) {
+                    best = entry;
+                }
+            }
+            double confidence = (double) best.getValue() / total;
+            if (total >= minSupport && confidence >= minConfidence) {
+                // Well-supported rules count for more, up to a point, so one common word can't outvote everything
+                rules.add(new Rule(phrase, best.getKey(), best.getValue(), confidence * Math.log1p(Math.min(best.getValue(), 50))));
+            }
+        });
+        rules.sort(Comparator.comparingInt(Rule::support).reversed().thenComparing(Rule::phrase));
+
+        Builder builder = new Builder();
+        for (Rule rule : rules.subList(0, Math.min(rules.size(), maxRules))) {
+            builder.add(rule.phrase(), rule.categoryId(), rule.weight());
+        }
+        return builder.build();
+    }
+
+    /**
+     * The category whose rules match the description best, or null when none match
+     */
+    public Long categorize(String description) {
+        if (description == null || ruleWeight.length == 0) {
+            return null;
+        }
+        double[] scores = new double[categoryIds.length];
+        boolean matched = false;
+
+        int state = transitions[SEPARATOR];
+        boolean afterSeparator = true;
+        int length = description.length();
+        for (int i = 0; i <= length; i++) {
+            int symbol = i < length ? symbol(description.charAt(i)) : SEPARATOR;
+            if (symbol == SEPARATOR) {
+                if (afterSeparator) {
+                    continue;
+                }
+                afterSeparator = true;
+            } else {
+                afterSeparator = false;
+            }
+            state = transitions[state * ALPHABET + symbol];
+            for (int s = ruleAt[state] >= 0 ? state : outputLink[state]; s > 0; s = outputLink[s]) {
+                int rule = ruleAt[s];
+                scores[ruleCategory[rule]] += ruleWeight[rule];
+                matched = true;
+            }
+        }
+        if (!matched) {
+            return null;
+        }
+
+        int best = 0;
+        for (int i = 1; i < scores.length; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        return categoryIds[best];
+    }
+
+    public int ruleCount() {
+        return ruleWeight.length;
+    }
+
+    // Distinct words of three or more characters and pairs of adjacent words, as " word " / " word word "
+    static Set<String> phrases(String description) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= description.length(); i++) {
+            int symbol = i < description.length() ? symbol(description.charAt(i)) : SEPARATOR;
+            if (symbol != SEPARATOR) {
+                word.append(Character.toLowerCase(description.charAt(i)));
+            } else if (!word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        Set<String> phrases = new LinkedHashSet<>();
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i).length() >= 3) {
+                phrases.add(' ' + words.get(i) + ' ');
+            }
+            if (i + 1 < words.size()) {
+                phrases.add(' ' + words.get(i) + ' ' + words.get(i + 1) + ' ');
+            }
+        }
+        return phrases;
+    }
+
+    private static int symbol(char c) {
+        return c < 128 ? SYMBOLS[c] : SEPARATOR;
+    }
+
+    private record Rule(String phrase, Long categoryId, int support, double weight) {
+    }
+
+    /**
+     * Builds the automaton from phrases already in normalized form
+     */
+    static final class Builder {
+
+        private final List<int[]> children = new ArrayList<>();
+        private final List<Integer> rules = new ArrayList<>();
+        private final List<Long> categoryIds = new ArrayList<>();
+        private final Map<Long, Integer> categoryIndex = new HashMap<>();
+        private final List<Integer> ruleCategory = new ArrayList<>();
+        private final List<Double> ruleWeight = new ArrayList<>();
+
+        Builder() {
+            addState();
+        }
+
+        Builder add(String phrase, Long categoryId, double weight) {
+            int state = 0;
+            for (int i = 0; i < phrase.length(); i++) {
+                int symbol = symbol(phrase.charAt(i));
+                int next = children.get(state)[symbol];
+                if (next == 0) {
+                    next = addState();
+                    children.get(state)[symbol] = next;
+                }
+                state = next;
+            }
+            if (rules.get(state) < 0) {
+                rules.set(state, ruleWeight.size());
+                ruleCategory.add(categoryIndex.computeIfAbsent(categoryId, id -> {
+                    categoryIds.add(id);
+                    return categoryIds.size() - 1;
+                }));
+                ruleWeight.add(weight);
+            }
+            return this;
+        }
+
+        CategoryMatcher build() {
+            int states = children.size();
+            int[] transitions = new int[states * ALPHABET];
+            int[] ruleAt = new int[states];
+            int[] outputLink = new int[states];
+            int[] fail = new int[states];
+            for (int s = 0; s < states; s++) {
+                ruleAt[s] = rules.get(s);
+            }
+
+            // Breadth-first, so each state's failure state is complete before its children need it
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                int child = children.get(0)[symbol];
+                transitions[symbol] = child;
+                if (child != 0) {
+                    queue.add(child);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                int failure = fail[state];
+                outputLink[state] = ruleAt[failure] >= 0 ? failure : outputLink[failure];
+                for (int symbol = 0; symbol < ALPHABET; symbol++) {
+                    int child = children.get(state)[symbol];
+                    if (child != 0) {
+                        fail[child] = transitions[failure * ALPHABET + symbol];
+                        transitions[state * ALPHABET + symbol] = child;
+                        queue.add(child);
+                    } else {
+                        transitions[state * ALPHABET + symbol] = transitions[failure * ALPHABET + symbol];
+                    }
+                }
+            }
+
+            return new CategoryMatcher(
+                    categoryIds.toArray(Long[]::new),
+                    transitions,
+                    ruleAt,
+                    outputLink,
+                    ruleCategory.stream().mapToInt(Integer::intValue).toArray(),
+                    ruleWeight.stream().mapToDouble(Double::doubleValue).toArray());
+        }
+
+        private int addState() {
+            children.add(new int[ALPHABET]);
+            rules.add(-1);
+            return children.size() - 1;
+        }
+    }
+}
@@ -20,6 +20,18 @@ public class CategoryService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionCategorizer transactionCategorizer;
+
 
     /**
      * Get all categories for a user
@@ -76,6 +88,8 @@ public class CategoryService {
         existingCategory.setColor(updatedCategory.getColor());
         existingCategory.setIcon(updatedCategory.getIcon());
 
+        // A rename can move the category into or out of the ones rules aren't learned from
+        transactionCategorizer.evict(user.getId());
         return categoryRepository.save(existingCategory);
     }
 
@@ -97,9 +111,15 @@ public class CategoryService {
 
         // Move transactions in this category to the default General category
         Category generalCategory = findOrCreateGeneralCategory(userEmail);
+        transactionRollupService.recategorize(category.getTransactions(), generalCategory);
+        spendingLimitService.recategorizeExpenses(category.getTransactions(), generalCategory);
         category.getTransactions().forEach(transaction -> transaction.setCategory(generalCategory));
+        if (!category.getTransactions().isEmpty()) {
+            outboxService.publishTransactionsChanged(user.getId());
+        }
 
         categoryRepository.delete(category);
+        transactionCategorizer.evict(user.getId());
     }
 
     /**
@@ -124,7 +144,12 @@ public class CategoryService {
                 }
 
                 // Move transactions to the General category
+                transactionRollupService.recategorize(category.getTransactions(), generalCategory);
+                spendingLimitService.recategorizeExpenses(category.getTransactions(), generalCategory);
                 category.getTransactions().forEach(transaction -> transaction.setCategory(generalCategory));
+                if (!category.getTransactions().isEmpty()) {
+                    outboxService.publishTransactionsChanged(user.getId());
+                }
 
                 // Delete the category
                 categoryRepository.delete(category);
@@ -133,6 +158,7 @@ public class CategoryService {
                 System.err.println("Error deleting category ID " + categoryId + ": " + e.getMessage());
             }
         }
+        transactionCategorizer.evict(user.getId());
     }
 
     /**
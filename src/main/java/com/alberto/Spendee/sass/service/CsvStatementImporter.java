@@ -0,0 +1,378 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import com.alberto.Spendee.sass.service.MpesaStatementParserService.StatementRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Bank CSV exports. Columns are found by their header names, so exports from different banks work
+ * as long as they have a date and either a signed amount or separate debit and credit columns.
+ * The file is read record by record (RFC 4180 quoting, ',' ';' or tab separated); only the current
+ * record is held in memory. Exports without a reference column get a reference derived from each row's
+ * content, so overlapping exports are still deduplicated on a repeat import.
+ */
+@Component
+@Slf4j
+public class CsvStatementImporter implements StatementImporter {
+
+    // Header names, lower case with everything but letters and digits removed
+    private static final Set<String> DATE_COLUMNS = Set.of(
+            "date", "transactiondate", "postingdate", "posteddate", "postdate", "valuedate", "bookingdate", "completiontime");
+    private static final Set<String> DESCRIPTION_COLUMNS = Set.of(
+            "description", "details", "transactiondetails", "narrative", "narration", "particulars", "memo", "payee", "name");
+    private static final Set<String> AMOUNT_COLUMNS = Set.of("amount", "transactionamount");
+    private static final Set<String> CREDIT_COLUMNS = Set.of(
+            "credit", "creditamount", "paidin", "deposit", "deposits", "moneyin");
+    private static final Set<String> DEBIT_COLUMNS = Set.of(
+            "debit", "debitamount", "paidout", "withdrawal", "withdrawals", "withdrawn", "moneyout");
+    private static final Set<String> REFERENCE_COLUMNS = Set.of(
+            "reference", "ref", "referencenumber", "transactionid", "id", "receipt", "receiptno", "fitid");
+
+    // Day-first, as exported by the banks we see; ISO dates are tried first
+    private static final DateTimeFormatter[] DATE_FORMATS = {
+            DateTimeFormatter.ISO_LOCAL_DATE,
+            DateTimeFormatter.ofPattern("d/M/uuuu"),
+            DateTimeFormatter.ofPattern("d-M-uuuu"),
+            DateTimeFormatter.ofPattern("d.M.uuuu"),
+            DateTimeFormatter.ofPattern("uuuu/M/d"),
+            DateTimeFormatter.BASIC_ISO_DATE
+    };
+
+    @Override
+    public TransactionSource source() {
+        return TransactionSource.CSV;
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("csv");
+    }
+
+    @Override
+    public void read(Path file, Consumer<StatementRowDto> rows) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            CsvReader csv = new CsvReader(reader);
+            List<String> header = csv.next();
+            if (header == null) {
+                throw new IOException("The CSV file is empty");
+            }
+            Columns columns = Columns.of(header);
+
+            int skipped = 0;
+            List<String> record;
+            while ((record = csv.next()) != null) {
+                if (record.size() == 1 && record.get(0).isBlank()) {
+                    continue;
+                }
+                StatementRowDto row = columns.toRow(record);
+                if (row != null) {
+                    rows.accept(row);
+                } else {
+                    skipped++;
+                }
+            }
+            if (skipped > 0) {
+                log.info("Skipped {} CSV records without a usable date or amount", skipped);
+            }
+        }
+    }
+
+    private static String normalize(String header) {
+        StringBuilder normalized = new StringBuilder(header.length());
+        for (int i = 0; i < header.length(); i++) {
+            char c = header.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(Character.toLowerCase(c));
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Positions of the columns used, -1 when the file doesn't have one
+     */
+    private static final class Columns {
+
+        private int date = -1;
+        private int description = -1;
+        private int amount = -1;
+        private int credit = -1;
+        private int debit = -1;
+        private int reference = -1;
+
+        // The format that parsed the previous date; files use one format throughout
+        private DateTimeFormatter dateFormat = DATE_FORMATS[0];
+
+        // Without a reference column: how often each date, amount and description has been seen so far
+        private final Map<String, Integer> occurrences = new HashMap<>();
+        private MessageDigest digest;
+
+        static Columns of(List<String> header) throws IOException {
+            Columns columns = new Columns();
+            for (int i = 0; i < header.size(); i++) {
+                String name = normalize(header.get(i));
+                if (columns.date < 0 && DATE_COLUMNS.contains(name)) columns.date = i;
+                else if (columns.description < 0 && DESCRIPTION_COLUMNS.contains(name)) columns.description = i;
+                else if (columns.amount < 0 && AMOUNT_COLUMNS.contains(name)) columns.amount = i;
+                else if (columns.credit < 0 && CREDIT_COLUMNS.contains(name)) columns.credit = i;
+                else if (columns.debit < 0 && DEBIT_COLUMNS.contains(name)) columns.debit = i;
+                else if (columns.reference < 0 && REFERENCE_COLUMNS.contains(name)) columns.reference = i;
+            }
+            if (columns.date < 0 || (columns.amount < 0 && columns.credit < 0 && columns.debit < 0)) {
+                throw new IOException("The CSV file needs a date column and an amount column or debit and credit columns");
+            }
+            return columns;
+        }
+
+        StatementRowDto toRow(List<String> record) {
+            LocalDate parsedDate = parseDate(field(record, date));
+            if (parsedDate == null) {
+                return null;
+            }
+
+            BigDecimal value;
+            TransactionType type;
+            if (amount >= 0) {
+                value = StatementAmounts.parse(field(record, amount));
+                if (value == null) return null;
+                type = value.signum() < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+            } else {
+                BigDecimal paidIn = StatementAmounts.parse(field(record, credit));
+                if (paidIn != null && paidIn.signum() != 0) {
+                    value = paidIn;
+                    type = TransactionType.INCOME;
+                } else {
+                    value = StatementAmounts.parse(field(record, debit));
+                    if (value == null) return null;
+                    type = TransactionType.EXPENSE;
+                }
+            }
+            if (value.signum() == 0) {
+                return null;
+            }
+
+            String text = field(record, description);
+            text = text == null || text.isBlank() ? "Bank transaction" : text.trim();
+            String ref;
+            if (reference >= 0) {
+                ref = field(record, reference);
+                ref = ref == null || ref.isBlank() ? null : ref.trim();
+            } else {
+                ref = derivedReference(parsedDate, value, text);
+            }
+            return new StatementRowDto(parsedDate, text, value.abs(), type, ref);
+        }
+
+        /**
+         * SHA-256 of the row's date, signed amount and normalized description, plus how many identical
+         * rows came before it in the file, so two genuine identical payments on one day stay apart.
+         * The same rows in an overlapping export get the same references.
+         */
+        private String derivedReference(LocalDate date, BigDecimal value, String text) {
+            String key = date + "|" + value.stripTrailingZeros().toPlainString() + "|"
+                    + text.toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+            int occurrence = occurrences.merge(key, 1, Integer::sum);
+            if (digest == null) {
+                try {
+                    digest = MessageDigest.getInstance("SHA-256");
+                } catch (NoSuchAlgorithmException e) {
+                    throw new IllegalStateException("SHA-256 not available", e);
+                }
+            }
+            byte[] hash = digest.digest((key + "|" + occurrence).getBytes(StandardCharsets.UTF_8));
+            String hex = HexFormat.of().formatHex(hash);
+            return hex.length() > StatementRowDto.MAX_REFERENCE_LENGTH ? hex.substring(0, StatementRowDto.MAX_REFERENCE_LENGTH) : hex;
+        }
+
+        private LocalDate parseDate(String text) {
+            if (text == null) {
+                return null;
+            }
+            String value = text.trim();
+            // Drop a time of day: "2025-10-01 14:22:05", "2025-10-01T14:22:05"
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == ' ' || c == 'T') {
+                    value = value.substring(0, i);
+                    break;
+                }
+            }
+            try {
+                return LocalDate.parse(value, dateFormat);
+            } catch (DateTimeParseException e) {
+                for (DateTimeFormatter format : DATE_FORMATS) {
+                    try {
+                        LocalDate parsed = LocalDate.parse(value, format);
+                        dateFormat = format;
+                        return parsed;
+                    } catch (DateTimeParseException ignored) {
+                        // try the next format
+                    }
+                }
+                return null;
+            }
+        }
+
+        private static String field(List<String> record, int index) {
+            return index >= 0 && index < record.size() ? record.get(index) : null;
+        }
+    }
+
+    /**
+     * Minimal streaming RFC 4180 reader with its own buffer. The separator is taken from the header
+     * line; quoted fields may contain separators, doubled quotes and line breaks. Fields and records are
+     * capped well above the transactions columns, so an unterminated quote can't read the whole file
+     * into memory.
+     */
+    private static final class CsvReader {
+
+        static final int MAX_FIELD_LENGTH = 4 * StatementRowDto.MAX_DESCRIPTION_LENGTH;
+        static final int MAX_RECORD_LENGTH = 16 * MAX_FIELD_LENGTH;
+
+        private final Reader in;
+        private final char[] buffer = new char[1 << 16];
+        private int position;
+        private int limit;
+        private final char separator;
+        private final StringBuilder field = new StringBuilder(64);
+
+        CsvReader(Reader in) throws IOException {
+            this.in = in;
+            fill();
+            if (limit > 0 && buffer[0] == '\uFEFF') {
+                position = 1;
+            }
+            separator = detectSeparator();
+        }
+
+        /**
+         * The next record's fields, or null at the end of the file
+         */
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            List<String> fields = new ArrayList<>();
+            field.setLength(0);
+            boolean inQuotes = false;
+            int length = 0;
+            while (true) {
+                if (++length > MAX_RECORD_LENGTH) {
+                    throw tooLong("record", MAX_RECORD_LENGTH);
+                }
+                if (inQuotes) {
+                    if (c == -1) {
+                        // Unterminated quote: keep what was read
+                        fields.add(field.toString());
+                        return fields;
+                    }
+                    if (c == '"') {
+                        c = read();
+                        if (c == '"') {
+                            append('"');
+                        } else {
+                            inQuotes = false;
+                            continue;
+                        }
+                    } else {
+                        append((char) c);
+                    }
+                } else if (c == -1 || c == '\n') {
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == '\r') {
+                    if (peek() == '\n') {
+                        position++;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else if (c == separator) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '"' && field.isEmpty()) {
+                    inQuotes = true;
+                } else {
+                    append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private void append(char c) throws StatementRejectedException {
+            if (field.length() == MAX_FIELD_LENGTH) {
+                throw tooLong("field", MAX_FIELD_LENGTH);
+            }
+            field.append(c);
+        }
+
+        private static StatementRejectedException tooLong(String what, int max) {
+            return new StatementRejectedException("record_too_large",
+                    "The CSV file has a " + what + " longer than the " + max + " characters supported; check for an unclosed quote");
+        }
+
+        // The most frequent of ',', ';' and tab outside quotes on the first line
+        private char detectSeparator() {
+            int commas = 0;
+            int semicolons = 0;
+            int tabs = 0;
+            boolean inQuotes = false;
+            for (int i = position; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '"') inQuotes = !inQuotes;
+                else if (!inQuotes && (c == '\n' || c == '\r')) break;
+                else if (!inQuotes && c == ',') commas++;
+                else if (!inQuotes && c == ';') semicolons++;
+                else if (!inQuotes && c == '\t') tabs++;
+            }
+            if (semicolons > commas && semicolons >= tabs) return ';';
+            if (tabs > commas) return '\t';
+            return ',';
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+}
@@ -0,0 +1,453 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJob;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ImportJobDto;
+import com.alberto.Spendee.sass.dto.StatementImportResult;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import com.alberto.Spendee.sass.repository.CategoryRepository;
+import com.alberto.Spendee.sass.repository.ImportJobRepository;
+import com.alberto.Spendee.sass.repository.UserRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs statement imports off the request thread. The upload is spooled to a temp file and a job row
+ * is created; a bounded worker pool then parses, dedupes and inserts, recording progress on the row
+ * and pushing it to any server-sent event subscribers.
+ * The row names the node running the job, which keeps a heartbeat on it. A restarting node fails
+ * only its own unfinished jobs, and any node fails jobs whose heartbeat has stopped. Subscribers
+ * reaching a node other than the job's follow it by polling the row.
+ */
+@Service
+@Slf4j
+public class ImportJobService {
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private List<StatementImporter> importers;
+
+    @Autowired
+    private TransactionCategorizer transactionCategorizer;
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    @Autowired
+    @Qualifier("importExecutor")
+    private TaskExecutor importExecutor;
+
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Value("${app.import.events-timeout:30m}")
+    private Duration eventsTimeout = Duration.ofMinutes(30);
+
+    @Value("${app.import.events-poll-interval:2s}")
+    private Duration eventsPollInterval = Duration.ofSeconds(2);
+
+    // Well over the heartbeat interval, so only a node that has stopped misses it
+    @Value("${app.import.stale-after:5m}")
+    private Duration staleAfter = Duration.ofMinutes(5);
+
+    private static final Set<ImportJobStatus> UNFINISHED =
+            EnumSet.of(ImportJobStatus.QUEUED, ImportJobStatus.PARSING, ImportJobStatus.SAVING);
+
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    private final AtomicLong rejectedSubmissions = new AtomicLong();
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        if (importExecutor instanceof ThreadPoolTaskExecutor pool) {
+            Gauge.builder("statement.import.queued", pool, ThreadPoolTaskExecutor::getQueueSize)
+                    .description("Statement imports waiting for a worker")
+                    .register(meterRegistry);
+            Gauge.builder("statement.import.active", pool, ThreadPoolTaskExecutor::getActiveCount)
+                    .description("Statement imports being parsed or saved")
+                    .register(meterRegistry);
+        }
+        FunctionCounter.builder("statement.import.rejected", rejectedSubmissions, AtomicLong::get)
+                .description("Statement uploads turned away because the import queue was full")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether some importer reads files with this name
+     */
+    public boolean isSupported(String fileName) {
+        return importerFor(fileName) != null;
+    }
+
+    /**
+     * Extensions of the statement files that can be imported, e.g. "pdf", "csv"
+     */
+    public List<String> supportedExtensions() {
+        return importers.stream().flatMap(importer -> importer.extensions().stream()).sorted().toList();
+    }
+
+    /**
+     * Queue a statement for import with the importer for its file type. A job that can't be queued is
+     * returned already FAILED. A file this user has already imported completes straight away with
+     * every row skipped, without being parsed again, unless rows imported from that source have been
+     * deleted since (deleting one forgets the earlier files' hashes).
+     */
+    public ImportJobDto submitStatement(User user, MultipartFile file) throws IOException {
+        StatementImporter importer = importerFor(file.getOriginalFilename());
+        if (importer == null) {
+            throw new RuntimeException("Unsupported statement file type");
+        }
+
+        Path spooled = Files.createTempFile("statement-", "." + extension(file.getOriginalFilename()));
+        String contentSha256;
+        try {
+            contentSha256 = spool(file, spooled);
+        } catch (IOException e) {
+            deleteQuietly(spooled);
+            throw e;
+        }
+
+        ImportJob job = new ImportJob(user.getId(), importer.source(), file.getOriginalFilename());
+        job.setContentSha256(contentSha256);
+        job.setNodeId(nodeIdentity.getId());
+        job.setHeartbeatAt(LocalDateTime.now());
+
+        Optional<ImportJob> previous = importJobRepository.findFirstByUserIdAndSourceAndContentSha256AndStatusOrderByIdDesc(
+                user.getId(), importer.source(), contentSha256, ImportJobStatus.COMPLETED);
+        if (previous.isPresent()) {
+            deleteQuietly(spooled);
+            log.info("Statement {} was already imported by job {}, skipping", contentSha256, previous.get().getId());
+            job.setParsedCount(previous.get().getParsedCount());
+            job.setSkippedCount(previous.get().getParsedCount());
+            job.setStatus(ImportJobStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            return ImportJobDto.from(importJobRepository.save(job));
+        }
+
+        job = importJobRepository.save(job);
+        Long jobId = job.getId();
+        try {
+            importExecutor.execute(() -> runImport(jobId, spooled, importer));
+        } catch (TaskRejectedException e) {
+            rejectedSubmissions.incrementAndGet();
+            deleteQuietly(spooled);
+            job = fail(job, "Too many imports in progress, please try again shortly");
+        }
+        return ImportJobDto.from(job);
+    }
+
+    public ImportJobDto getJob(Long jobId, User user) {
+        return ImportJobDto.from(findJob(jobId, user));
+    }
+
+    /**
+     * Stream a job's progress. The current state is sent straight away; the stream ends once the job finishes.
+     * A job running on another node is followed by polling its row.
+     */
+    public SseEmitter subscribe(Long jobId, User user) {
+        findJob(jobId, user);
+
+        SseEmitter emitter = new SseEmitter(eventsTimeout.toMillis());
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        AtomicReference<ScheduledFuture<?>> poller = new AtomicReference<>();
+        Runnable unsubscribe = () -> {
+            emitters.remove(emitter);
+            ScheduledFuture<?> polling = poller.get();
+            if (polling != null) {
+                polling.cancel(false);
+            }
+        };
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+
+        // Read after registering so a finish in between is never missed; a duplicate event is harmless
+        ImportJob job = importJobRepository.findById(jobId).orElseThrow();
+        ImportJobDto current = ImportJobDto.from(job);
+        send(emitter, current);
+        if (!current.status().isFinished() && !nodeIdentity.getId().equals(job.getNodeId())) {
+            poller.set(pollRow(jobId, emitter, current));
+        }
+        return emitter;
+    }
+
+    // Send the job's row whenever it changes, until it finishes or the subscriber goes away
+    private ScheduledFuture<?> pollRow(Long jobId, SseEmitter emitter, ImportJobDto first) {
+        AtomicReference<ImportJobDto> last = new AtomicReference<>(first);
+        return taskScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                ImportJobDto dto = importJobRepository.findById(jobId).map(ImportJobDto::from).orElse(null);
+                if (dto == null) {
+                    emitter.complete();
+                } else if (!dto.equals(last.getAndSet(dto))) {
+                    // Completes the emitter, and so cancels this poll, once the job has finished
+                    send(emitter, dto);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Polling import job {} failed: {}", jobId, e.getMessage());
+            }
+        }, eventsPollInterval);
+    }
+
+    /**
+     * Fail the jobs this node was running when it stopped. Only matters when app.node-id is pinned;
+     * a node with a new id leaves its old jobs to the stale sweep.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void failInterruptedJobs() {
+        int interrupted = importJobRepository.failUnfinishedOnNode(nodeIdentity.getId(), UNFINISHED,
+                "Interrupted by a server restart, please upload the statement again", LocalDateTime.now());
+        if (interrupted > 0) {
+            log.warn("Marked {} interrupted import jobs as failed", interrupted);
+        }
+    }
+
+    /**
+     * Keep this node's jobs alive, and fail jobs, on any node, whose heartbeat has stopped
+     */
+    @Scheduled(fixedDelayString = "${app.import.heartbeat-interval:30s}")
+    public void heartbeat() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            importJobRepository.heartbeat(nodeIdentity.getId(), UNFINISHED, now);
+            int stale = importJobRepository.failStale(UNFINISHED,
+                    "Interrupted by a server restart, please upload the statement again", now, now.minus(staleAfter));
+            if (stale > 0) {
+                log.warn("Marked {} import jobs abandoned by a stopped node as failed", stale);
+            }
+        } catch (RuntimeException e) {
+            log.error("Import job heartbeat failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Read the spooled statement and save its rows as they are read. The job moves from PARSING to
+     * SAVING when the first chunk is written; its counts are updated after every chunk.
+     */
+    void runImport(Long jobId, Path file, StatementImporter importer) {
+        ImportJob job = importJobRepository.findById(jobId).orElseThrow();
+        try {
+            User user = userRepository.findById(job.getUserId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
+
+            job.setStatus(ImportJobStatus.PARSING);
+            job = update(job);
+
+            RowCategorizer categorizer = new RowCategorizer(transactionCategorizer.forUser(user),
+                    categoryRepository.findByUserOrIsDefaultTrue(user), importer.defaultCategory());
+            ImportJob running = job;
+            StatementImportResult result = statementImportService.importTransactions(user, importer.source(),
+                    sink -> importer.read(file, row -> sink.accept(toTransaction(row, categorizer.categoryFor(row)))),
+                    (saved, skipped) -> {
+                        running.setStatus(ImportJobStatus.SAVING);
+                        running.setParsedCount(saved + skipped);
+                        running.setSavedCount(saved);
+                        running.setSkippedCount(skipped);
+                        update(running);
+                    });
+
+            job.setParsedCount(result.savedTransactions() + result.skippedTransactions());
+            job.setSavedCount(result.savedTransactions());
+            job.setSkippedCount(result.skippedTransactions());
+            job.setTotalIncome(result.totalIncome());
+            job.setTotalExpense(result.totalExpense());
+            job.setStatus(ImportJobStatus.COMPLETED);
+            job.setFinishedAt(LocalDateTime.now());
+            update(job);
+        } catch (OptimisticLockingFailureException e) {
+            // Another node took the job for dead and failed it; that outcome stands
+            log.warn("Import job {} was finished by another node, stopping", jobId);
+            importJobRepository.findById(jobId).ifPresent(this::publish);
+        } catch (MpesaStatementParserService.StatementRejectedException e) {
+            fail(job, e.getMessage());
+        } catch (Exception e) {
+            log.error("Import job {} failed: {}", jobId, e.getMessage(), e);
+            fail(job, "Could not import the statement: " + e.getMessage());
+        } finally {
+            deleteQuietly(file);
+        }
+    }
+
+    // Copy the upload to the spool file, hashing it on the way through
+    private static String spool(MultipartFile file, Path target) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private StatementImporter importerFor(String fileName) {
+        String extension = extension(fileName);
+        return importers.stream()
+                .filter(importer -> importer.extensions().contains(extension))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null || fileName.lastIndexOf('.') < 0) {
+            return "";
+        }
+        return fileName.substring(fileName.lastIndexOf('.') + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Picks each imported row's category: the one the user's history suggests for its description,
+     * else the importer's default category when the user has one of that name
+     */
+    private static final class RowCategorizer {
+
+        private final CategoryMatcher matcher;
+        private final Map<Long, Category> categories = new HashMap<>();
+        private final Category fallback;
+
+        RowCategorizer(CategoryMatcher matcher, List<Category> categories, String defaultCategory) {
+            this.matcher = matcher;
+            Category fallback = null;
+            for (Category category : categories) {
+                this.categories.put(category.getId(), category);
+                if (fallback == null && defaultCategory != null && category.getName().equalsIgnoreCase(defaultCategory)) {
+                    fallback = category;
+                }
+            }
+            this.fallback = fallback;
+        }
+
+        Category categoryFor(StatementRowDto row) {
+            Long suggested = matcher.categorize(row.description());
+            return suggested != null ? categories.getOrDefault(suggested, fallback) : fallback;
+        }
+    }
+
+    private static Transaction toTransaction(StatementRowDto row, Category category) {
+        Transaction transaction = new Transaction();
+        transaction.setDescription(row.description());
+        transaction.setAmount(row.amount());
+        transaction.setDate(row.date());
+        transaction.setType(row.type());
+        transaction.setCategory(category);
+        transaction.setExternalRef(row.externalRef());
+        return transaction;
+    }
+
+    private ImportJob findJob(Long jobId, User user) {
+        return importJobRepository.findByIdAndUserId(jobId, user.getId())
+                .orElseThrow(() -> new RuntimeException("Import job not found"));
+    }
+
+    private ImportJob fail(ImportJob job, String message) {
+        job.setStatus(ImportJobStatus.FAILED);
+        job.setErrorMessage(message.length() > 500 ? message.substring(0, 500) : message);
+        job.setFinishedAt(LocalDateTime.now());
+        try {
+            return update(job);
+        } catch (OptimisticLockingFailureException e) {
+            // Already failed by another node
+            ImportJob current = importJobRepository.findById(job.getId()).orElse(job);
+            publish(current);
+            return current;
+        }
+    }
+
+    // Persist the job's new state and push it to subscribers, closing their streams once it has finished.
+    // Throws OptimisticLockingFailureException when the row was failed by another node in the meantime.
+    private ImportJob update(ImportJob job) {
+        job.setHeartbeatAt(LocalDateTime.now());
+        ImportJob saved = importJobRepository.save(job);
+        // The worker keeps saving its own copy, so it must carry the new version
+        job.setVersion(saved.getVersion());
+        publish(saved);
+        return saved;
+    }
+
+    private void publish(ImportJob saved) {
+        ImportJobDto dto = ImportJobDto.from(saved);
+        List<SseEmitter> emitters = dto.status().isFinished()
+                ? subscribers.remove(saved.getId())
+                : subscribers.get(saved.getId());
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(emitter, dto));
+        }
+    }
+
+    private void send(SseEmitter emitter, ImportJobDto dto) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(dto));
+            if (dto.status().isFinished()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the emitter's completion callback removes it
+            emitter.completeWithError(e);
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.warn("Could not delete spooled statement {}: {}", file, e.getMessage());
+        }
+    }
+}
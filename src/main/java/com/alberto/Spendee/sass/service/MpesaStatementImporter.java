@@ -0,0 +1,47 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.MpesaTransactionDTO;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * M-Pesa PDF statements, read through {@link MpesaStatementParserService}
+ */
+@Component
+@RequiredArgsConstructor
+public class MpesaStatementImporter implements StatementImporter {
+
+    private final MpesaStatementParserService parserService;
+
+    @Override
+    public TransactionSource source() {
+        return TransactionSource.MPESA;
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("pdf");
+    }
+
+    @Override
+    public String defaultCategory() {
+        return "M-Pesa";
+    }
+
+    @Override
+    public void read(Path file, Consumer<StatementRowDto> rows) throws IOException {
+        for (MpesaTransactionDTO parsed : parserService.parseStatement(file)) {
+            String code = parsed.getTransactionCode();
+            rows.accept(new StatementRowDto(parsed.getDate(), parsed.getDescription(), parsed.getAmount(),
+                    TransactionType.valueOf(parsed.getType()), code != null && !code.isEmpty() ? code : null));
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.alberto.Spendee.sass.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer for statement text lines. One scan over a line splits it on whitespace,
+ * classifies each token (amount, money, receipt code) and matches the section and header keywords,
+ * without lower-casing, regexes or exceptions. Token text is only materialized for the fields that
+ * end up in a transaction.
+ * An instance is reused for every line of a statement and is not thread-safe.
+ */
+final class MpesaStatementLexer {
+
+    enum LineKind {
+        BLANK,
+        STATEMENT_DATE,
+        SUMMARY_SECTION,
+        DETAILED_SECTION,
+        HEADER,
+        // Words that mark header and total lines (withdraw, balance, total, ...) but also occur in
+        // transaction details, so a detailed row's wrapped details may contain them
+        HEADER_WORDS,
+        // A DETAILED STATEMENT row: receipt code, completion date, ...
+        DETAILED_ROW,
+        ROW
+    }
+
+    private static final int KW_STATEMENT_DATE = 1;
+    private static final int KW_SUMMARY = 1 << 1;
+    private static final int KW_DETAILED = 1 << 2;
+    private static final int KW_HEADER = 1 << 3;
+    private static final int KW_HEADER_WORDS = 1 << 4;
+
+    // Token flags
+    private static final int NUMERIC = 1;
+    private static final int MONEY = 1 << 1;
+    private static final int NEGATIVE = 1 << 2;
+    private static final int RECEIPT = 1 << 3;
+
+    private static final int RECEIPT_LENGTH = 10;
+
+    private record Keyword(String text, int flag, boolean caseSensitive) {
+    }
+
+    private static final Keyword[] KEYWORDS = {
+            new Keyword("Date of Statement:", KW_STATEMENT_DATE, true),
+            new Keyword("SUMMARY", KW_SUMMARY, true),
+            new Keyword("DETAILED STATEMENT", KW_DETAILED, true),
+            new Keyword("receipt", KW_HEADER, false),
+            new Keyword("completion time", KW_HEADER, false),
+            new Keyword("transaction status", KW_HEADER, false),
+            new Keyword("paid in", KW_HEADER, false),
+            new Keyword("withdraw", KW_HEADER_WORDS, false),
+            new Keyword("balance", KW_HEADER_WORDS, false),
+            new Keyword("mpesa", KW_HEADER_WORDS, false),
+            new Keyword("customer name", KW_HEADER, false),
+            new Keyword("mobile number", KW_HEADER, false),
+            new Keyword("statement period", KW_HEADER, false),
+            new Keyword("summary", KW_HEADER, false),
+            new Keyword("transaction type", KW_HEADER, false),
+            new Keyword("paid out", KW_HEADER, false),
+            new Keyword("total", KW_HEADER_WORDS, false)
+    };
+
+    // Keywords indexed by their lower-cased first character, so each position only tries plausible ones
+    private static final Keyword[][] KEYWORDS_BY_FIRST_CHAR = new Keyword[128][];
+
+    static {
+        for (Keyword keyword : KEYWORDS) {
+            int first = Character.toLowerCase(keyword.text().charAt(0));
+            Keyword[] existing = KEYWORDS_BY_FIRST_CHAR[first];
+            Keyword[] grown = existing == null ? new Keyword[1] : Arrays.copyOf(existing, existing.length + 1);
+            grown[grown.length - 1] = keyword;
+            KEYWORDS_BY_FIRST_CHAR[first] = grown;
+        }
+    }
+
+    // Numeric scanner states; K, s, h and ',' are ignored inside a number (e.g. "Ksh1,000.00")
+    private static final int N_START = 0;
+    private static final int N_SIGN = 1;
+    private static final int N_INT = 2;
+    private static final int N_DOT = 3;
+    private static final int N_FRACTION = 4;
+    private static final int N_EXP = 5;
+    private static final int N_EXP_SIGN = 6;
+    private static final int N_EXP_DIGITS = 7;
+    private static final int N_INVALID = -1;
+
+    private String line;
+    private int count;
+    private int[] starts = new int[32];
+    private int[] ends = new int[32];
+    private int[] flags = new int[32];
+    private final StringBuilder joined = new StringBuilder(128);
+    private final int[] groups = new int[3];
+    private final int[] groupWidths = new int[3];
+
+    /**
+     * Tokenize and classify a line. Token accessors refer to this line until the next call.
+     */
+    LineKind lex(String line) {
+        this.line = line;
+        count = 0;
+
+        int keywords = 0;
+        boolean onlyPipes = true;
+        int length = line.length();
+
+        int tokenStart = -1;
+        int numberState = N_START;
+        boolean hasDigit = false;
+        int fractionDigits = 0;
+        boolean negative = false;
+        boolean receiptChars = true;
+        boolean hasLetter = false;
+
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? line.charAt(i) : ' ';
+            if (c <= ' ' || Character.isWhitespace(c)) {
+                if (tokenStart >= 0) {
+                    boolean numeric = hasDigit && (numberState == N_INT || numberState == N_DOT
+                            || numberState == N_FRACTION || numberState == N_EXP_DIGITS);
+                    int tokenFlags = 0;
+                    if (numeric) {
+                        tokenFlags |= NUMERIC;
+                        if (numberState == N_FRACTION && fractionDigits == 2) tokenFlags |= MONEY;
+                        if (negative) tokenFlags |= NEGATIVE;
+                    }
+                    if (receiptChars && hasLetter && hasDigit && i - tokenStart == RECEIPT_LENGTH) {
+                        tokenFlags |= RECEIPT;
+                    }
+                    addToken(tokenStart, i, tokenFlags);
+                    tokenStart = -1;
+                }
+                continue;
+            }
+
+            if (tokenStart < 0) {
+                tokenStart = i;
+                numberState = N_START;
+                hasDigit = false;
+                fractionDigits = 0;
+                negative = false;
+                receiptChars = true;
+                hasLetter = false;
+            }
+            if (c != '|') {
+                onlyPipes = false;
+            }
+
+            // Keywords
+            if (c < 128) {
+                Keyword[] candidates = KEYWORDS_BY_FIRST_CHAR[Character.toLowerCase(c)];
+                if (candidates != null) {
+                    for (Keyword keyword : candidates) {
+                        if ((keywords & keyword.flag()) == 0
+                                && line.regionMatches(!keyword.caseSensitive(), i, keyword.text(), 0, keyword.text().length())) {
+                            keywords |= keyword.flag();
+                        }
+                    }
+                }
+            }
+
+            // Receipt codes are upper-case letters and digits
+            boolean digit = c >= '0' && c <= '9';
+            if (c >= 'A' && c <= 'Z') {
+                hasLetter = true;
+            } else if (!digit) {
+                receiptChars = false;
+            }
+
+            // Numbers
+            if (digit) {
+                hasDigit = true;
+                switch (numberState) {
+                    case N_START, N_SIGN, N_INT -> numberState = N_INT;
+                    case N_DOT, N_FRACTION -> {
+                        numberState = N_FRACTION;
+                        fractionDigits++;
+                    }
+                    case N_EXP, N_EXP_SIGN, N_EXP_DIGITS -> numberState = N_EXP_DIGITS;
+                    default -> { }
+                }
+            } else if (c == 'K' || c == 's' || c == 'h' || c == ',') {
+                // Currency prefix and thousands separators
+            } else if (c == '+' || c == '-') {
+                if (numberState == N_START) {
+                    numberState = N_SIGN;
+                    negative = c == '-';
+                } else if (numberState == N_EXP) {
+                    numberState = N_EXP_SIGN;
+                } else {
+                    numberState = N_INVALID;
+                }
+            } else if (c == '.') {
+                numberState = numberState == N_START || numberState == N_SIGN || numberState == N_INT ? N_DOT : N_INVALID;
+            } else if (c == 'e' || c == 'E') {
+                numberState = numberState == N_INT || numberState == N_FRACTION || (numberState == N_DOT && hasDigit)
+                        ? N_EXP : N_INVALID;
+            } else {
+                numberState = N_INVALID;
+            }
+        }
+
+        if (count == 0) {
+            return LineKind.BLANK;
+        }
+        if ((keywords & KW_STATEMENT_DATE) != 0) {
+            return LineKind.STATEMENT_DATE;
+        }
+        if ((keywords & KW_SUMMARY) != 0) {
+            return LineKind.SUMMARY_SECTION;
+        }
+        if ((keywords & KW_DETAILED) != 0) {
+            return LineKind.DETAILED_SECTION;
+        }
+        // Detailed rows are recognised by shape, since their details often contain header words
+        if (count >= 2 && isReceipt(0) && date(1) != null) {
+            return LineKind.DETAILED_ROW;
+        }
+        if ((keywords & KW_HEADER) != 0 || onlyPipes || isPageFooter()) {
+            return LineKind.HEADER;
+        }
+        if ((keywords & KW_HEADER_WORDS) != 0) {
+            return LineKind.HEADER_WORDS;
+        }
+        return LineKind.ROW;
+    }
+
+    int tokenCount() {
+        return count;
+    }
+
+    String token(int index) {
+        return line.substring(starts[index], ends[index]);
+    }
+
+    boolean tokenEqualsIgnoreCase(int index, String text) {
+        return ends[index] - starts[index] == text.length()
+                && line.regionMatches(true, starts[index], text, 0, text.length());
+    }
+
+    boolean isNumeric(int index) {
+        return (flags[index] & NUMERIC) != 0;
+    }
+
+    /**
+     * A numeric token with exactly two decimal places, the way statements print amounts
+     */
+    boolean isMoney(int index) {
+        return (flags[index] & MONEY) != 0;
+    }
+
+    boolean isNegative(int index) {
+        return (flags[index] & NEGATIVE) != 0;
+    }
+
+    boolean isReceipt(int index) {
+        return (flags[index] & RECEIPT) != 0;
+    }
+
+    /**
+     * Tokens [from, to) joined by single spaces
+     */
+    String join(int from, int to) {
+        if (from >= to) {
+            return "";
+        }
+        if (to - from == 1) {
+            return token(from);
+        }
+        joined.setLength(0);
+        for (int i = from; i < to; i++) {
+            if (i > from) joined.append(' ');
+            joined.append(line, starts[i], ends[i]);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * The token's digits as an unsigned amount: every character other than digits and the last
+     * decimal point is dropped. Null when the token has no digits.
+     */
+    BigDecimal amount(int index) {
+        int start = starts[index];
+        int end = ends[index];
+
+        int lastDot = -1;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '.') lastDot = i;
+            else if (c >= '0' && c <= '9') digits++;
+        }
+        if (digits == 0) {
+            return null;
+        }
+
+        if (digits <= 18) {
+            long unscaled = 0;
+            int scale = 0;
+            for (int i = start; i < end; i++) {
+                char c = line.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    unscaled = unscaled * 10 + (c - '0');
+                    if (lastDot >= 0 && i > lastDot) scale++;
+                }
+            }
+            return BigDecimal.valueOf(unscaled, scale);
+        }
+
+        // Too long for a long; rare enough to build the digits as text
+        StringBuilder text = new StringBuilder(digits);
+        int scale = 0;
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c >= '0' && c <= '9') {
+                text.append(c);
+                if (lastDot >= 0 && i > lastDot) scale++;
+            }
+        }
+        return new BigDecimal(new BigInteger(text.toString()), scale);
+    }
+
+    /**
+     * A date written as yyyy-MM-dd or d/M/yyyy (with '/', '-' or '.' separators); null otherwise
+     */
+    LocalDate date(int index) {
+        if (numberGroups(index, 3, '/', '-', '.') != 3) {
+            return null;
+        }
+        int year;
+        int month = groups[1];
+        int day;
+        if (groupWidths[0] == 4) {
+            year = groups[0];
+            day = groups[2];
+        } else if (groupWidths[2] == 4) {
+            year = groups[2];
+            day = groups[0];
+        } else {
+            return null;
+        }
+        if (month < 1 || month > 12 || day < 1 || day > YearMonth.of(year, month).lengthOfMonth()) {
+            return null;
+        }
+        return LocalDate.of(year, month, day);
+    }
+
+    /**
+     * A time written as HH:mm:ss or HH:mm; null otherwise
+     */
+    LocalTime time(int index) {
+        int found = numberGroups(index, 3, ':', ':', ':');
+        if (found < 2 || groupWidths[0] > 2 || groupWidths[1] != 2 || (found == 3 && groupWidths[2] != 2)) {
+            return null;
+        }
+        int second = found == 3 ? groups[2] : 0;
+        return groups[0] < 24 && groups[1] < 60 && second < 60 ? LocalTime.of(groups[0], groups[1], second) : null;
+    }
+
+    // Split a token into at most max groups of 1-4 digits separated by any of the separators;
+    // returns the number of groups, or 0 when the token is not shaped that way
+    private int numberGroups(int index, int max, char a, char b, char c) {
+        int group = 0;
+        int value = 0;
+        int width = 0;
+        for (int i = starts[index]; i < ends[index]; i++) {
+            char ch = line.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                if (++width > 4) return 0;
+                value = value * 10 + (ch - '0');
+            } else if ((ch == a || ch == b || ch == c) && width > 0 && group < max - 1) {
+                groups[group] = value;
+                groupWidths[group] = width;
+                group++;
+                value = 0;
+                width = 0;
+            } else {
+                return 0;
+            }
+        }
+        if (width == 0) {
+            return 0;
+        }
+        groups[group] = value;
+        groupWidths[group] = width;
+        return group + 1;
+    }
+
+    // "Page 3 of 12"
+    private boolean isPageFooter() {
+        return count == 4 && tokenEqualsIgnoreCase(0, "page") && isNumeric(1)
+                && tokenEqualsIgnoreCase(2, "of") && isNumeric(3);
+    }
+
+    private void addToken(int start, int end, int tokenFlags) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+            flags = Arrays.copyOf(flags, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        flags[count] = tokenFlags;
+        count++;
+    }
+}
@@ -1,18 +1,40 @@
 package com.alberto.Spendee.sass.service;
 
 import com.alberto.Spendee.sass.dto.MpesaTransactionDTO;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -41,104 +63,399 @@ public class MpesaStatementParserService {
             "charge", "fee"
     };
 
+    // Whole-statement parses, waited on with the timeout; unset (e.g. in unit tests) means the caller's thread
+    @Autowired(required = false)
+    @Qualifier("statementParseExecutor")
+    private AsyncTaskExecutor parseExecutor;
+
+    // Large statements are split into page ranges extracted concurrently; unset (e.g. in unit tests) means serial
+    @Autowired(required = false)
+    @Qualifier("pdfExtractionExecutor")
+    private AsyncTaskExecutor extractionExecutor;
+
+    @Value("${app.import.parse.threads:4}")
+    private int parallelism = 4;
+
+    @Value("${app.import.parse.pages-per-range:16}")
+    private int pagesPerRange = 16;
+
+    @Value("${app.import.parse.parallel-min-pages:64}")
+    private int parallelMinPages = 64;
+
+    // Resource caps per statement; a statement over any of them is rejected rather than parsed further
+    @Value("${app.import.parse.max-pages:500}")
+    private int maxPages = 500;
+
+    @Value("${app.import.parse.max-text-chars:20000000}")
+    private long maxTextChars = 20_000_000;
+
+    @Value("${app.import.parse.timeout:2m}")
+    private Duration timeout = Duration.ofMinutes(2);
+
+    private final AtomicInteger activeParses = new AtomicInteger();
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("statement.parse.active", activeParses, AtomicInteger::get)
+                .description("Statements currently being parsed")
+                .register(meterRegistry);
+    }
+
     /**
-     * Parse M-Pesa statement PDF and extract transactions
+     * Parse an M-Pesa statement PDF, saved to disk by the import job, and extract transactions.
+     * The document's scratch buffers live in a temp file and text is extracted one page at a time,
+     * so heap use is bounded by a page rather than the whole statement.
+     * The parse runs on the parse pool and is given up on once the timeout passes, whatever page it
+     * is stuck in, so the calling import worker is never held longer than that.
      */
-    public List<MpesaTransactionDTO> parseStatement(MultipartFile file) throws IOException {
-        List<MpesaTransactionDTO> transactions = new ArrayList<>();
-
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            PDFTextStripper stripper = new PDFTextStripper();
-            // Important: keep table columns in order
-            stripper.setSortByPosition(true);
+    public List<MpesaTransactionDTO> parseStatement(Path file) throws IOException {
+        ParseBudget budget = new ParseBudget(maxTextChars, timeout);
+        try {
+            return parseExecutor != null ? parseOnPool(file, budget) : parse(file, budget);
+        } catch (StatementRejectedException e) {
+            log.warn("Rejected M-Pesa statement: {}", e.getMessage());
+            if (meterRegistry != null) {
+                meterRegistry.counter("statement.parse.rejected", "reason", e.getReason()).increment();
+            }
+            throw e;
+        }
+    }
 
-            String text = stripper.getText(document);
+    private List<MpesaTransactionDTO> parseOnPool(Path file, ParseBudget budget) throws IOException {
+        Future<List<MpesaTransactionDTO>> parse;
+        try {
+            parse = parseExecutor.submit(() -> parse(file, budget));
+        } catch (TaskRejectedException e) {
+            throw new StatementRejectedException("busy", "Too many statements are being read, please try again shortly");
+        }
+        try {
+            return parse.get(budget.remainingNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // Interrupt and abandon it; a page that ignores the interrupt only keeps a parse thread
+            parse.cancel(true);
+            throw budget.timedOut();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException failure) {
+                throw failure;
+            }
+            throw new IOException("Failed to parse M-Pesa statement: " + e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            parse.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing the statement", e);
+        }
+    }
 
-            log.info("Parsing M-Pesa statement with {} pages", document.getNumberOfPages());
+    private List<MpesaTransactionDTO> parse(Path file, ParseBudget budget) throws IOException {
+        activeParses.incrementAndGet();
+        try (PDDocument document = load(file)) {
+            int pages = document.getNumberOfPages();
+            log.info("Parsing M-Pesa statement with {} pages", pages);
+            if (pages > maxPages) {
+                throw new StatementRejectedException("too_many_pages",
+                        "The statement has " + pages + " pages; at most " + maxPages + " are supported");
+            }
 
-            transactions = extractTransactions(text);
+            LineExtractor extractor = new LineExtractor();
+            if (extractionExecutor != null && pages >= parallelMinPages) {
+                extractParallel(file, pages, budget, extractor);
+            } else {
+                extractPages(document, 1, pages, budget, extractor::accept);
+            }
+            List<MpesaTransactionDTO> transactions = extractor.finish();
 
             log.info("Extracted {} transactions from M-Pesa statement", transactions.size());
+            return transactions;
+        } catch (StatementRejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error parsing M-Pesa statement: {}", e.getMessage(), e);
             throw new IOException("Failed to parse M-Pesa statement: " + e.getMessage());
+        } finally {
+            activeParses.decrementAndGet();
         }
+    }
 
-        return transactions;
+    /**
+     * Extract page ranges on the extraction pool and feed their lines to the extractor in page order.
+     * PDDocument isn't thread-safe, so each range opens its own document over the spooled file.
+     * At most {@code parallelism} ranges are in flight, which bounds the text held while waiting
+     * for an earlier range to finish.
+     */
+    private void extractParallel(Path file, int pages, ParseBudget budget, LineExtractor extractor) throws IOException {
+        Deque<Future<List<String>>> inFlight = new ArrayDeque<>();
+        int nextStart = 1;
+        try {
+            while (nextStart <= pages || !inFlight.isEmpty()) {
+                while (nextStart <= pages && inFlight.size() < parallelism) {
+                    int from = nextStart;
+                    int to = Math.min(pages, from + pagesPerRange - 1);
+                    inFlight.add(extractionExecutor.submit(() -> extractRange(file, from, to, budget)));
+                    nextStart = to + 1;
+                }
+                inFlight.poll().get(budget.remainingNanos(), TimeUnit.NANOSECONDS).forEach(extractor::accept);
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof StatementRejectedException rejected) {
+                throw rejected;
+            }
+            throw new IOException("Failed to extract statement pages: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw budget.timedOut();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while extracting statement pages", e);
+        } finally {
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private List<String> extractRange(Path file, int from, int to, ParseBudget budget) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (PDDocument document = load(file)) {
+            extractPages(document, from, to, budget, lines::add);
+        }
+        return lines;
+    }
+
+    private static void extractPages(PDDocument document, int from, int to, ParseBudget budget,
+                                     Consumer<String> lines) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        // Important: keep table columns in order
+        stripper.setSortByPosition(true);
+        for (int page = from; page <= to; page++) {
+            budget.checkTime();
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            String text = stripper.getText(document);
+            budget.addText(text.length());
+            text.lines().forEach(lines);
+        }
+    }
+
+    private static PDDocument load(Path file) throws IOException {
+        return PDDocument.load(file.toFile(), MemoryUsageSetting.setupTempFileOnly());
     }
 
     /**
-     * Extract transactions from the PDF text content
+     * Extract transactions from statement text lines in document order
      */
-    private List<MpesaTransactionDTO> extractTransactions(String text) {
-        List<MpesaTransactionDTO> transactions = new ArrayList<>();
+    List<MpesaTransactionDTO> extractTransactions(Iterable<String> lines) {
+        LineExtractor extractor = new LineExtractor();
+        lines.forEach(extractor::accept);
+        return extractor.finish();
+    }
 
-        String[] lines = text.split("\n");
+    /**
+     * Extracts transactions from statement lines fed in document order.
+     * Section state carries across page boundaries, so a section can continue onto the next page.
+     * Each line is tokenized and classified once by {@link MpesaStatementLexer}.
+     */
+    private final class LineExtractor {
+
+        private final MpesaStatementLexer lexer = new MpesaStatementLexer();
+        private final List<MpesaTransactionDTO> summaryTransactions = new ArrayList<>();
+        private final List<MpesaTransactionDTO> detailedTransactions = new ArrayList<>();
+        private boolean inSummarySection = false;
+        private boolean inDetailedSection = false;
+
+        // Default to today until the header's "Date of Statement:" line has been read
+        private LocalDate statementDate = LocalDate.now();
+        private boolean statementDateFound = false;
+
+        // The detailed row whose details may still continue on the following lines
+        private MpesaTransactionDTO pendingRow;
+        private StringBuilder pendingDetails;
+
+        // Receipt codes seen so far, to keep repeated codes distinct as external references
+        private final Map<String, Integer> receiptOccurrences = new HashMap<>();
+
+        void accept(String line) {
+            MpesaStatementLexer.LineKind kind = lexer.lex(line);
+            switch (kind) {
+                case BLANK, HEADER -> { }
+                case STATEMENT_DATE -> {
+                    // The header comes before the sections, so the date is known before any transaction line
+                    if (!statementDateFound) {
+                        statementDate = extractStatementDate(line.trim());
+                        statementDateFound = true;
+                        log.info("Found statement date: {}", statementDate);
+                    }
+                }
+                case SUMMARY_SECTION -> {
+                    completePendingRow();
+                    inSummarySection = true;
+                    inDetailedSection = false;
+                    log.info("Found SUMMARY section");
+                }
+                case DETAILED_SECTION -> {
+                    completePendingRow();
+                    inSummarySection = false;
+                    inDetailedSection = true;
+                    log.info("Found DETAILED STATEMENT section");
+                }
+                case DETAILED_ROW -> {
+                    completePendingRow();
+                    if (inDetailedSection) {
+                        parseDetailedRow();
+                    }
+                }
+                case HEADER_WORDS -> appendPendingDetails();
+                case ROW -> {
+                    if (inSummarySection) {
+                        parseSummaryRow();
+                    } else {
+                        appendPendingDetails();
+                    }
+                }
+            }
+        }
 
-        boolean inSummarySection = false;
-        boolean inDetailedSection = false;
-        int summaryCount = 0;
-        int detailedCount = 0;
+        /**
+         * The detailed section lists every transaction, the summary only totals per type, so when a
+         * statement has detailed rows those are imported instead of the summary.
+         */
+        List<MpesaTransactionDTO> finish() {
+            completePendingRow();
+            log.info("Total transactions parsed from summary: {}", summaryTransactions.size());
+            log.info("Total transactions parsed from detailed: {}", detailedTransactions.size());
+            return detailedTransactions.isEmpty() ? summaryTransactions : detailedTransactions;
+        }
 
-        LocalDate statementDate = LocalDate.now(); // Default to today
+        /**
+         * A SUMMARY row: Transaction Type | Paid In | Paid Out
+         * Example: Send Money | 4,630.00 | 157.00
+         */
+        private void parseSummaryRow() {
+            int tokens = lexer.tokenCount();
+            if (tokens < 3) {
+                return;
+            }
 
-        // Try to extract the statement date first
-        for (String line : lines) {
-            if (line.contains("Date of Statement:")) {
-                statementDate = extractStatementDate(line);
-                log.info("Found statement date: {}", statementDate);
-                break;
+            // The type is everything before the last two amounts
+            int paidInIndex;
+            if (tokens == 3) {
+                paidInIndex = 1;
+            } else {
+                paidInIndex = -1;
+                int numericCount = 0;
+                for (int i = tokens - 1; i >= 0; i--) {
+                    if (lexer.isNumeric(i) && ++numericCount == 2) {
+                        paidInIndex = i;
+                        break;
+                    }
+                }
+                if (paidInIndex <= 0) {
+                    log.debug("Could not identify transaction type and amounts in line: '{}'", lexer.join(0, tokens));
+                    return;
+                }
+            }
+            String transactionType = lexer.join(0, paidInIndex);
+
+            BigDecimal paidIn = lexer.amount(paidInIndex);
+            if (paidIn != null && paidIn.signum() > 0) {
+                summaryTransactions.add(new MpesaTransactionDTO(statementDate, transactionType + " (Received)",
+                        paidIn, "INCOME", "", "Summary: " + transactionType, null, null));
+            }
+            BigDecimal paidOut = lexer.amount(paidInIndex + 1);
+            if (paidOut != null && paidOut.signum() > 0) {
+                summaryTransactions.add(new MpesaTransactionDTO(statementDate, transactionType + " (Sent)",
+                        paidOut, "EXPENSE", "", "Summary: " + transactionType, null, null));
             }
         }
 
-        for (int i = 0; i < lines.length; i++) {
-            String line = lines[i].trim();
-            if (line.isEmpty()) continue;
+        /**
+         * A DETAILED STATEMENT row:
+         * Receipt No. | Completion Time | Details | Transaction Status | Paid In | Withdrawn | Balance
+         * Example: SJK3ABCD12 2025-10-01 14:22:05 Pay Bill to 888880 COMPLETED 0.00 -1,500.00 3,250.00
+         * Details may wrap onto the following lines, so the row is completed by the next row or section.
+         */
+        private void parseDetailedRow() {
+            int tokens = lexer.tokenCount();
+            LocalDate date = lexer.date(1);
+            LocalDateTime completionTime = null;
+            int detailsStart = 2;
+            if (tokens > 2) {
+                LocalTime time = lexer.time(2);
+                if (time != null) {
+                    completionTime = date.atTime(time);
+                    detailsStart = 3;
+                }
+            }
 
-            // Section switches
-            if (line.contains("SUMMARY")) {
-                inSummarySection = true;
-                inDetailedSection = false;
-                log.info("Found SUMMARY section");
-                continue;
+            // Trailing amounts: [paid in] [withdrawn] balance
+            int amountsStart = tokens;
+            while (amountsStart > detailsStart && tokens - amountsStart < 3 && lexer.isMoney(amountsStart - 1)) {
+                amountsStart--;
             }
-            if (line.contains("DETAILED STATEMENT")) {
-                inSummarySection = false;
-                inDetailedSection = true;
-                log.info("Found DETAILED STATEMENT section");
-                continue;
+            int amounts = tokens - amountsStart;
+            if (amounts < 2) {
+                log.debug("Skipping detailed row without amounts: '{}'", lexer.join(0, tokens));
+                return;
             }
 
-            // Skip header lines
-            if (isHeaderLine(line)) {
-                continue;
+            int detailsEnd = amountsStart;
+            if (detailsEnd > detailsStart) {
+                if (lexer.tokenEqualsIgnoreCase(detailsEnd - 1, "Completed")) {
+                    detailsEnd--;
+                } else if (lexer.tokenEqualsIgnoreCase(detailsEnd - 1, "Failed")
+                        || lexer.tokenEqualsIgnoreCase(detailsEnd - 1, "Cancelled")
+                        || lexer.tokenEqualsIgnoreCase(detailsEnd - 1, "Reversed")) {
+                    log.debug("Skipping {} transaction {}", lexer.token(detailsEnd - 1), lexer.token(0));
+                    return;
+                }
             }
 
-            try {
-                if (inSummarySection) {
-                    List<MpesaTransactionDTO> lineTx = parseSummaryLineMultiple(line, statementDate);
-                    if (lineTx != null && !lineTx.isEmpty()) {
-                        transactions.addAll(lineTx);
-                        summaryCount += lineTx.size();
-                        if (log.isDebugEnabled()) {
-                            for (MpesaTransactionDTO tx : lineTx) {
-                                log.debug("Parsed summary transaction: {} - {} - {}",
-                                        tx.getDescription(), tx.getType(), tx.getAmount());
-                            }
-                        }
-                    }
-                } else if (inDetailedSection) {
-                    // Parse detailed section - for now, focus on summary only
-                    log.debug("Skipping detailed section line: {}", line);
+            BigDecimal amount;
+            String type;
+            if (amounts == 3) {
+                BigDecimal paidIn = lexer.amount(amountsStart);
+                BigDecimal withdrawn = lexer.amount(amountsStart + 1);
+                if (paidIn.signum() > 0) {
+                    amount = paidIn;
+                    type = "INCOME";
+                } else {
+                    amount = withdrawn;
+                    type = "EXPENSE";
                 }
-            } catch (Exception e) {
-                log.debug("Could not parse line: {} - Error: {}", line, e.getMessage());
+            } else {
+                amount = lexer.amount(amountsStart);
+                type = lexer.isNegative(amountsStart) ? "EXPENSE" : "INCOME";
+            }
+            if (amount.signum() == 0) {
+                return;
+            }
+
+            String receipt = lexer.token(0);
+            int occurrence = receiptOccurrences.merge(receipt, 1, Integer::sum);
+            String transactionCode = occurrence == 1 ? receipt : receipt + "#" + occurrence;
+
+            pendingRow = new MpesaTransactionDTO(date, null, amount, type, transactionCode, null,
+                    completionTime, lexer.amount(tokens - 1));
+            pendingDetails = new StringBuilder(lexer.join(detailsStart, detailsEnd));
+        }
+
+        // Wrapped details of the previous detailed row
+        private void appendPendingDetails() {
+            if (inDetailedSection && pendingRow != null) {
+                pendingDetails.append(' ').append(lexer.join(0, lexer.tokenCount()));
             }
         }
 
-        log.info("Total transactions parsed from summary: {}", summaryCount);
-        log.info("Total transactions parsed from detailed: {}", detailedCount);
-        return transactions;
+        private void completePendingRow() {
+            if (pendingRow == null) {
+                return;
+            }
+            String details = pendingDetails.isEmpty() ? "M-Pesa transaction" : pendingDetails.toString();
+            pendingRow.setDetails(details);
+            // Cut to the column when the row is imported (StatementRowDto)
+            pendingRow.setDescription(details);
+            detailedTransactions.add(pendingRow);
+            pendingRow = null;
+            pendingDetails = null;
+        }
     }
 
     /**
@@ -165,208 +482,60 @@ public class MpesaStatementParserService {
     }
 
     /**
-     * Parse a line from the SUMMARY section and return multiple transactions (income and expense)
-     * Format: Transaction Type | Paid In | Paid Out
-     * Example: Send Money | 4,630.00 | 157.00
+     * Wall-clock and extracted-text allowance of one statement, shared by all of its page ranges.
+     * The caller stops waiting at the deadline; the checks between pages let a parse that has
+     * overrun it stop by itself and free its thread.
      */
-    private List<MpesaTransactionDTO> parseSummaryLineMultiple(String line, LocalDate date) {
-        List<MpesaTransactionDTO> transactions = new ArrayList<>();
+    private static final class ParseBudget {
 
-        log.debug("Attempting to parse summary line: '{}'", line);
+        private final long maxTextChars;
+        private final Duration timeout;
+        private final long deadline;
+        private final AtomicLong textChars = new AtomicLong();
 
-        // Skip header lines and TOTAL line
-        if (line.toUpperCase().contains("TRANSACTION TYPE") ||
-            line.toUpperCase().contains("PAID IN") ||
-            line.toUpperCase().contains("PAID OUT") ||
-            line.toUpperCase().startsWith("TOTAL")) {
-            log.debug("Skipping header or TOTAL line: '{}'", line);
-            return transactions;
+        ParseBudget(long maxTextChars, Duration timeout) {
+            this.maxTextChars = maxTextChars;
+            this.timeout = timeout;
+            this.deadline = System.nanoTime() + timeout.toNanos();
         }
 
-        // Clean the line - replace multiple spaces with single space and split
-        String cleanLine = line.replaceAll("\\s+", " ").trim();
-
-        // Try to split by common patterns found in M-Pesa statements
-        String[] parts;
-
-        // First try splitting by multiple spaces (common in table format)
-        if (cleanLine.matches(".*\\s{2,}.*")) {
-            parts = cleanLine.split("\\s{2,}");
-        } else {
-            // Fallback to single space split
-            parts = cleanLine.split("\\s+");
+        long remainingNanos() {
+            return deadline - System.nanoTime();
         }
 
-        log.debug("Clean line: '{}', Parts: {} -> [{}]", cleanLine, parts.length, String.join(" | ", parts));
-
-        if (parts.length < 3) {
-            log.debug("Line doesn't have enough parts (need at least 3: type, paid_in, paid_out), got {}", parts.length);
-            return transactions;
-        }
-
-        // Extract transaction type and amounts
-        String transactionType;
-        String paidInStr;
-        String paidOutStr;
-
-        if (parts.length == 3) {
-            // Simple case: Type PaidIn PaidOut
-            transactionType = parts[0];
-            paidInStr = parts[1];
-            paidOutStr = parts[2];
-        } else {
-            // Complex case: Need to find the numeric values at the end
-            // Find the last two numeric-looking parts
-            int numericCount = 0;
-            int firstNumericIndex = -1;
-
-            for (int i = parts.length - 1; i >= 0; i--) {
-                if (isNumeric(parts[i])) {
-                    numericCount++;
-                    if (numericCount == 2) {
-                        firstNumericIndex = i;
-                        break;
-                    }
-                }
-            }
-
-            if (firstNumericIndex > 0 && parts.length > firstNumericIndex + 1) {
-                // Build transaction type from parts before the numeric values
-                StringBuilder typeBuilder = new StringBuilder();
-                for (int i = 0; i < firstNumericIndex; i++) {
-                    if (typeBuilder.length() > 0) typeBuilder.append(" ");
-                    typeBuilder.append(parts[i]);
-                }
-                transactionType = typeBuilder.toString();
-                paidInStr = parts[firstNumericIndex];
-                paidOutStr = parts[firstNumericIndex + 1];
-            } else {
-                log.debug("Could not identify transaction type and amounts in line");
-                return transactions;
+        void checkTime() throws StatementRejectedException {
+            if (remainingNanos() <= 0) {
+                throw timedOut();
             }
         }
 
-        transactionType = transactionType.trim();
-
-        if (transactionType.isEmpty()) {
-            log.debug("Could not extract transaction type from line");
-            return transactions;
-        }
-
-        log.debug("Extracted - Type: '{}', Paid In: '{}', Paid Out: '{}'", transactionType, paidInStr, paidOutStr);
-
-        // Parse Paid In amount (income)
-        BigDecimal paidIn = parseAmount(paidInStr);
-        if (paidIn != null && paidIn.compareTo(BigDecimal.ZERO) > 0) {
-            log.info("Creating INCOME transaction: {} - Amount: {}", transactionType, paidIn);
-            transactions.add(new MpesaTransactionDTO(
-                    date,
-                    transactionType + " (Received)",
-                    paidIn,
-                    "INCOME",
-                    "",
-                    "Summary: " + transactionType
-            ));
-        }
-
-        // Parse Paid Out amount (expense)
-        BigDecimal paidOut = parseAmount(paidOutStr);
-        if (paidOut != null && paidOut.compareTo(BigDecimal.ZERO) > 0) {
-            log.info("Creating EXPENSE transaction: {} - Amount: {}", transactionType, paidOut);
-            transactions.add(new MpesaTransactionDTO(
-                    date,
-                    transactionType + " (Sent)",
-                    paidOut,
-                    "EXPENSE",
-                    "",
-                    "Summary: " + transactionType
-            ));
-        }
-
-        if (transactions.isEmpty()) {
-            log.debug("No valid amounts found in line: '{}'", line);
-        } else {
-            log.info("Parsed {} transactions from summary line: '{}'", transactions.size(), transactionType);
+        void addText(int chars) throws StatementRejectedException {
+            if (textChars.addAndGet(chars) > maxTextChars) {
+                throw new StatementRejectedException("text_too_large",
+                        "The statement contains more text than the " + maxTextChars + " characters supported");
+            }
         }
 
-        return transactions;
-    }
-
-    /**
-     * Check if a string looks numeric (for amount detection)
-     */
-    private boolean isNumeric(String str) {
-        if (str == null || str.trim().isEmpty()) return false;
-        // Remove common currency symbols and formatting
-        String cleaned = str.replaceAll("[Ksh,\\s]", "");
-        try {
-            Double.parseDouble(cleaned);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
+        StatementRejectedException timedOut() {
+            return new StatementRejectedException("timeout",
+                    "The statement could not be read within " + timeout.toSeconds() + " seconds");
         }
     }
 
     /**
-     * Parse amount string and return BigDecimal
+     * A statement that exceeds the parsing limits. The message is meant for the user.
      */
-    private BigDecimal parseAmount(String amountStr) {
-        if (amountStr == null || amountStr.trim().isEmpty()) {
-            return null;
-        }
-
-        try {
-            // Handle "0.00" case specifically
-            if (amountStr.trim().equals("0.00") || amountStr.trim().equals("0")) {
-                return BigDecimal.ZERO;
-            }
+    public static class StatementRejectedException extends IOException {
 
-            // Remove currency symbols (Ksh, KES, etc.), commas, and whitespace
-            // Keep only digits and decimal point
-            String cleaned = amountStr.replaceAll("[^0-9.]", "");
-
-            if (cleaned.isEmpty() || cleaned.equals(".")) {
-                log.debug("No valid numeric content in amount string: '{}'", amountStr);
-                return null;
-            }
+        private final String reason;
 
-            // Handle multiple decimal points (keep only the last one)
-            int lastDotIndex = cleaned.lastIndexOf('.');
-            if (lastDotIndex > 0) {
-                String beforeDot = cleaned.substring(0, lastDotIndex).replaceAll("\\.", "");
-                String afterDot = cleaned.substring(lastDotIndex);
-                cleaned = beforeDot + afterDot;
-            }
-
-            BigDecimal result = new BigDecimal(cleaned);
-            log.debug("Parsed amount '{}' -> {}", amountStr, result);
-            return result;
-
-        } catch (NumberFormatException e) {
-            log.debug("Could not parse amount: '{}' - {}", amountStr, e.getMessage());
-            return null;
+        public StatementRejectedException(String reason, String message) {
+            super(message);
+            this.reason = reason;
         }
-    }
 
-    /**
-     * Check if line is a header line
-     */
-    private boolean isHeaderLine(String line) {
-        String lower = line.toLowerCase();
-        return lower.contains("receipt") ||
-                lower.contains("completion time") ||
-                lower.contains("transaction status") ||
-                lower.contains("paid in") ||
-                lower.contains("withdraw") ||
-                lower.contains("balance") ||
-                lower.contains("mpesa") ||
-                lower.contains("customer name") ||
-                lower.contains("mobile number") ||
-                lower.contains("statement period") ||
-                lower.contains("summary") ||
-                lower.contains("transaction type") ||
-                lower.contains("paid out") ||
-                lower.contains("total") ||
-                lower.matches("^[\\s|]+$"); // Lines with only pipes and spaces
+        public String getReason() {
+            return reason;
+        }
     }
 }
@@ -0,0 +1,39 @@
+package com.alberto.Spendee.sass.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.UUID;
+
+/**
+ * Names this application node in rows it claims or owns, so work shared through the database can
+ * tell its own rows from another node's. Set app.node-id to pin it; otherwise it is the host name
+ * plus a random suffix, new on every start.
+ */
+@Component
+@Slf4j
+public class NodeIdentity {
+
+    private final String id;
+
+    public NodeIdentity(@Value("${app.node-id:}") String configuredId) {
+        this.id = configuredId.isBlank() ? hostName() + "-" + UUID.randomUUID().toString().substring(0, 8) : configuredId;
+        log.info("Node id {}", id);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    private static String hostName() {
+        try {
+            String host = InetAddress.getLocalHost().getHostName();
+            return host.length() > 40 ? host.substring(0, 40) : host;
+        } catch (UnknownHostException e) {
+            return "node";
+        }
+    }
+}
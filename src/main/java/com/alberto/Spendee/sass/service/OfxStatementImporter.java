@@ -0,0 +1,244 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import com.alberto.Spendee.sass.service.MpesaStatementParserService.StatementRejectedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * OFX/QFX bank statements, both SGML (OFX 1.x, where elements have no closing tags) and XML (2.x).
+ * A single pass over the tags picks out each STMTTRN aggregate and emits it when it closes, so
+ * memory doesn't depend on the number of transactions.
+ */
+@Component
+@Slf4j
+public class OfxStatementImporter implements StatementImporter {
+
+    @Override
+    public TransactionSource source() {
+        return TransactionSource.OFX;
+    }
+
+    @Override
+    public Set<String> extensions() {
+        return Set.of("ofx", "qfx");
+    }
+
+    @Override
+    public void read(Path file, Consumer<StatementRowDto> rows) throws IOException {
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8)) {
+            TagScanner scanner = new TagScanner(reader);
+            StatementTransaction transaction = null;
+            boolean sawOfx = false;
+            int skipped = 0;
+
+            String tag;
+            while ((tag = scanner.nextTag()) != null) {
+                if (tag.equalsIgnoreCase("OFX")) {
+                    sawOfx = true;
+                } else if (tag.equalsIgnoreCase("STMTTRN")) {
+                    transaction = new StatementTransaction();
+                } else if (tag.equalsIgnoreCase("/STMTTRN")) {
+                    if (transaction != null) {
+                        StatementRowDto row = transaction.toRow();
+                        if (row != null) {
+                            rows.accept(row);
+                        } else {
+                            skipped++;
+                        }
+                    }
+                    transaction = null;
+                } else if (transaction != null && tag.charAt(0) != '/') {
+                    transaction.set(tag, scanner.text());
+                }
+            }
+            if (!sawOfx) {
+                throw new IOException("The file is not an OFX statement");
+            }
+            if (skipped > 0) {
+                log.info("Skipped {} OFX transactions without a usable date or amount", skipped);
+            }
+        }
+    }
+
+    /**
+     * The elements of one STMTTRN that are imported
+     */
+    private static final class StatementTransaction {
+
+        private String type;
+        private String posted;
+        private String amount;
+        private String id;
+        private String name;
+        private String memo;
+
+        void set(String element, String value) {
+            if (value == null || value.isEmpty()) {
+                return;
+            }
+            switch (element.toUpperCase(Locale.ROOT)) {
+                case "TRNTYPE" -> type = value;
+                case "DTPOSTED" -> posted = value;
+                case "TRNAMT" -> amount = value;
+                case "FITID" -> id = value;
+                case "NAME" -> name = value;
+                case "MEMO" -> memo = value;
+                default -> { }
+            }
+        }
+
+        StatementRowDto toRow() {
+            LocalDate date = parseDate(posted);
+            BigDecimal value = StatementAmounts.parse(amount);
+            if (date == null || value == null || value.signum() == 0) {
+                return null;
+            }
+            String description = name != null ? name : memo != null ? memo : type != null ? type : "Bank transaction";
+            return new StatementRowDto(date, description, value.abs(),
+                    value.signum() < 0 ? TransactionType.EXPENSE : TransactionType.INCOME, id);
+        }
+
+        // OFX dates start with yyyyMMdd, optionally followed by a time and zone: 20251001120000.000[-5:EST]
+        private static LocalDate parseDate(String text) {
+            if (text == null || text.length() < 8) {
+                return null;
+            }
+            int value = 0;
+            for (int i = 0; i < 8; i++) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return null;
+                }
+                value = value * 10 + (c - '0');
+            }
+            try {
+                return LocalDate.of(value / 10000, value / 100 % 100, value % 100);
+            } catch (DateTimeException e) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Walks the tags of an OFX document with its own buffer. The text after an opening tag, up to the
+     * next tag, is that element's value; text is only materialized when asked for.
+     */
+    private static final class TagScanner {
+
+        // Far above any element OFX defines, so a malformed file can't grow them without bound
+        static final int MAX_TAG_LENGTH = 256;
+        static final int MAX_TEXT_LENGTH = 4 * StatementRowDto.MAX_DESCRIPTION_LENGTH;
+
+        private final Reader in;
+        private final char[] buffer = new char[1 << 16];
+        private int position;
+        private int limit;
+        private final StringBuilder tag = new StringBuilder(32);
+        private final StringBuilder text = new StringBuilder(64);
+
+        TagScanner(Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * The next tag's name, with a leading '/' for closing tags, or null at the end of the document
+         */
+        String nextTag() throws IOException {
+            // Empty tags, <>, are skipped
+            do {
+                int c;
+                do {
+                    c = read();
+                    if (c == -1) return null;
+                } while (c != '<');
+
+                // The name runs up to the first space; XML attributes after it are skipped
+                tag.setLength(0);
+                boolean inName = true;
+                while ((c = read()) != -1 && c != '>') {
+                    if (c <= ' ') {
+                        inName = tag.isEmpty();
+                    } else if (inName) {
+                        if (tag.length() == MAX_TAG_LENGTH) {
+                            throw tooLong("tag name", MAX_TAG_LENGTH);
+                        }
+                        tag.append((char) c);
+                    }
+                }
+                // Self-closing XML elements: <NAME/>
+                if (tag.length() > 1 && tag.charAt(tag.length() - 1) == '/') {
+                    tag.setLength(tag.length() - 1);
+                }
+            } while (tag.isEmpty());
+            return tag.toString();
+        }
+
+        /**
+         * The text following the current tag, trimmed, with XML entities decoded
+         */
+        String text() throws IOException {
+            text.setLength(0);
+            int c;
+            while ((c = peek()) != -1 && c != '<') {
+                if (text.length() == MAX_TEXT_LENGTH) {
+                    throw tooLong("value", MAX_TEXT_LENGTH);
+                }
+                text.append((char) c);
+                position++;
+            }
+            int start = 0;
+            int end = text.length();
+            while (start < end && text.charAt(start) <= ' ') start++;
+            while (end > start && text.charAt(end - 1) <= ' ') end--;
+            String value = text.substring(start, end);
+            return value.indexOf('&') >= 0 ? decodeEntities(value) : value;
+        }
+
+        private static StatementRejectedException tooLong(String what, int max) {
+            return new StatementRejectedException("record_too_large",
+                    "The OFX file has a " + what + " longer than the " + max + " characters supported");
+        }
+
+        private static String decodeEntities(String value) {
+            return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                    .replace("&apos;", "'").replace("&amp;", "&");
+        }
+
+        private int read() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position++];
+        }
+
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read = in.read(buffer, 0, buffer.length);
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.outbox.OutboxEvent;
+import com.alberto.Spendee.sass.domain.outbox.TransactionsChangedEvent;
+import com.alberto.Spendee.sass.repository.OutboxEventRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class OutboxService {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Record that a user's transactions changed, as part of the caller's transaction.
+     * The outbox row survives a crash; the in-process event only wakes the worker early once the write commits.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishTransactionsChanged(Long userId) {
+        outboxEventRepository.save(new OutboxEvent(userId, OutboxEvent.TRANSACTIONS_CHANGED));
+        eventPublisher.publishEvent(new TransactionsChangedEvent(userId));
+    }
+}
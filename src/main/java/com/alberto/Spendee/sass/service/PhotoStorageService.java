@@ -0,0 +1,103 @@
+package com.alberto.Spendee.sass.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for profile photos.
+ * Each photo is written once to {@code <storage-dir>/<ab>/<sha256>.jpg} and users only keep the hash,
+ * so identical uploads share one file and a given hash always names the same bytes.
+ * The directory is local to the node unless it is a mounted volume shared by every node, which
+ * running more than one node requires.
+ */
+@Service
+@Slf4j
+public class PhotoStorageService {
+
+    private static final Pattern HASH_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+
+    private final Path storageDir;
+
+    // Whether storage-dir is a volume every node mounts; required when more than one node serves traffic
+    private final boolean shared;
+
+    public PhotoStorageService(@Value("${app.photo.storage-dir:data/photos}") String storageDir,
+                               @Value("${app.photo.shared-storage:false}") boolean shared) {
+        this.storageDir = Paths.get(storageDir).toAbsolutePath().normalize();
+        this.shared = shared;
+        if (!shared) {
+            log.warn("Profile photos are stored on this node's disk ({}); run a single node or mount a shared "
+                    + "volume there and set app.photo.shared-storage=true", this.storageDir);
+        }
+    }
+
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Store the photo bytes and return their SHA-256 hash
+     */
+    public String store(byte[] data) {
+        String hash = sha256(data);
+        Path target = resolve(hash);
+        if (Files.exists(target)) {
+            return hash;
+        }
+        try {
+            Files.createDirectories(target.getParent());
+            Path tmp = Files.createTempFile(target.getParent(), hash, ".tmp");
+            try {
+                Files.write(tmp, data);
+                try {
+                    Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store photo " + hash, e);
+        }
+        log.debug("Stored photo {} ({} bytes)", hash, data.length);
+        return hash;
+    }
+
+    /**
+     * Get the stored photo as a file resource, or null if the hash is unknown
+     */
+    public FileSystemResource load(String hash) {
+        if (hash == null || !HASH_PATTERN.matcher(hash).matches()) {
+            return null;
+        }
+        Path file = resolve(hash);
+        return Files.isReadable(file) ? new FileSystemResource(file) : null;
+    }
+
+    private Path resolve(String hash) {
+        return storageDir.resolve(hash.substring(0, 2)).resolve(hash + ".jpg");
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
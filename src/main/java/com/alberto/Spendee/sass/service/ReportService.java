@@ -1,10 +1,13 @@
 package com.alberto.Spendee.sass.service;
 
-import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.ReportDataDTO;
 import com.alberto.Spendee.sass.dto.ReportFilterDTO;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.dto.MonthlyTotals;
 import com.alberto.Spendee.sass.repository.TransactionRepository;
+import com.alberto.Spendee.sass.repository.TransactionRollupRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -19,66 +22,69 @@ import java.util.stream.Collectors;
 public class ReportService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionRollupRepository transactionRollupRepository;
 
     public ReportDataDTO generateReport(ReportFilterDTO filter, User user) {
         LocalDate startDate = filter.getStartDate() != null ? filter.getStartDate() : LocalDate.now().minusMonths(1);
         LocalDate endDate = filter.getEndDate() != null ? filter.getEndDate() : LocalDate.now();
 
-        List<Transaction> transactions = transactionRepository.findByUserAndDateBetween(
+        // Category and type filters are applied in the query, which also joins the category name
+        TransactionType type = reportTypeOf(filter.getReportType());
+        List<TransactionDto> transactions = transactionRepository.findDtosForReport(
             user,
             startDate,
-            endDate
+            endDate,
+            filter.getCategoryId(),
+            type
         );
 
-        // Apply filters
-        if (filter.getCategoryId() != null) {
-            transactions = transactions.stream()
-                .filter(t -> t.getCategory() != null && t.getCategory().getId().equals(filter.getCategoryId()))
-                .collect(Collectors.toList());
-        }
-
-        if (filter.getReportType() != null && !filter.getReportType().equals("BOTH")) {
-            transactions = transactions.stream()
-                .filter(t -> t.getType().name().equals(filter.getReportType()))
-                .collect(Collectors.toList());
-        }
-
         // Calculate totals
         BigDecimal totalIncome = transactions.stream()
             .filter(t -> t.getType().name().equals("INCOME"))
-            .map(Transaction::getAmount)
+            .map(TransactionDto::getAmount)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         BigDecimal totalExpense = transactions.stream()
             .filter(t -> t.getType().name().equals("EXPENSE"))
-            .map(Transaction::getAmount)
+            .map(TransactionDto::getAmount)
             .reduce(BigDecimal.ZERO, BigDecimal::add);
 
         BigDecimal netSavings = totalIncome.subtract(totalExpense);
 
         // Category breakdown
         Map<String, BigDecimal> categoryBreakdown = transactions.stream()
-            .filter(t -> t.getCategory() != null)
+            .filter(t -> t.getCategoryName() != null)
             .collect(Collectors.groupingBy(
-                t -> t.getCategory().getName(),
-                Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
+                TransactionDto::getCategoryName,
+                Collectors.reducing(BigDecimal.ZERO, TransactionDto::getAmount, BigDecimal::add)
             ));
 
         // Time series data
-        List<ReportDataDTO.TimeSeriesDataDTO> timeSeriesData = generateTimeSeriesData(
-            transactions,
-            startDate,
-            endDate,
-            filter.getGroupBy() != null ? filter.getGroupBy() : "DAILY"
-        );
+        String groupBy = filter.getGroupBy() != null ? filter.getGroupBy() : "DAILY";
+        List<ReportDataDTO.TimeSeriesDataDTO> timeSeriesData;
+        if (groupBy.equals("MONTHLY") && coversWholeMonths(startDate, endDate)) {
+            // Whole months are exactly what the rollups hold, so read them instead of regrouping rows
+            timeSeriesData = transactionRollupRepository.findMonthlyTotals(
+                    user.getId(),
+                    startDate,
+                    endDate.withDayOfMonth(1),
+                    filter.getCategoryId(),
+                    type,
+                    TransactionType.INCOME,
+                    TransactionType.EXPENSE
+                ).stream()
+                .map(this::toTimeSeries)
+                .collect(Collectors.toList());
+        } else {
+            timeSeriesData = generateTimeSeriesData(transactions, startDate, endDate, groupBy);
+        }
 
         // Transaction summaries
         List<ReportDataDTO.TransactionSummaryDTO> transactionSummaries = transactions.stream()
-            .sorted(Comparator.comparing(Transaction::getDate).reversed())
             .map(t -> new ReportDataDTO.TransactionSummaryDTO(
                 t.getDate(),
                 t.getDescription(),
-                t.getCategory() != null ? t.getCategory().getName() : "Uncategorized",
+                t.getCategoryName() != null ? t.getCategoryName() : "Uncategorized",
                 t.getType().name(),
                 t.getAmount()
             ))
@@ -97,8 +103,22 @@ public class ReportService {
         return report;
     }
 
+    private boolean coversWholeMonths(LocalDate startDate, LocalDate endDate) {
+        return startDate.getDayOfMonth() == 1
+            && endDate.getDayOfMonth() == endDate.lengthOfMonth()
+            && !startDate.isAfter(endDate);
+    }
+
+    private ReportDataDTO.TimeSeriesDataDTO toTimeSeries(MonthlyTotals totals) {
+        return new ReportDataDTO.TimeSeriesDataDTO(
+            totals.monthStart().format(DateTimeFormatter.ofPattern("MMM yyyy")),
+            totals.income(),
+            totals.expense()
+        );
+    }
+
     private List<ReportDataDTO.TimeSeriesDataDTO> generateTimeSeriesData(
-            List<Transaction> transactions,
+            List<TransactionDto> transactions,
             LocalDate startDate,
             LocalDate endDate,
             String groupBy) {
@@ -118,7 +138,7 @@ public class ReportService {
                 break;
         }
 
-        for (Transaction transaction : transactions) {
+        for (TransactionDto transaction : transactions) {
             String period = transaction.getDate().format(formatter);
 
             dataMap.putIfAbsent(period, new ReportDataDTO.TimeSeriesDataDTO(
@@ -135,5 +155,17 @@ public class ReportService {
 
         return new ArrayList<>(dataMap.values());
     }
-}
 
+    // INCOME or EXPENSE in any case; anything else, BOTH included, reports both types, like an unknown groupBy
+    private static TransactionType reportTypeOf(String reportType) {
+        if (reportType == null) {
+            return null;
+        }
+        for (TransactionType type : TransactionType.values()) {
+            if (type.name().equalsIgnoreCase(reportType.trim())) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.alberto.Spendee.sass.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Deletes expired HTTP sessions from the JDBC session store a batch at a time, oldest first, each
+ * batch its own short statement, so the sweep never holds locks on the whole table. Every node
+ * runs it; batches that overlap another node's just find nothing left to delete.
+ */
+@Component
+@Slf4j
+public class SessionCleanupJob {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.sessions.cleanup.batch-size:500}")
+    private int batchSize = 500;
+
+    // Caps one run; whatever is left is picked up by the next
+    @Value("${app.sessions.cleanup.max-batches:100}")
+    private int maxBatches = 100;
+
+    private final AtomicLong deletedSessions = new AtomicLong();
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("sessions.expired.deleted", deletedSessions, AtomicLong::get)
+                .description("Expired HTTP sessions removed from the session store")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.sessions.cleanup-cron:0 * * * * *}")
+    public void deleteExpiredSessions() {
+        try {
+            int deleted = deleteExpiredSessions(System.currentTimeMillis());
+            if (deleted > 0) {
+                log.debug("Deleted {} expired sessions", deleted);
+            }
+        } catch (RuntimeException e) {
+            log.error("Expired session cleanup failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Delete sessions that expired before the given time; returns how many were removed
+     */
+    public int deleteExpiredSessions(long now) {
+        int deleted = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            List<String> ids = jdbcTemplate.queryForList(
+                    "select PRIMARY_ID from SPRING_SESSION where EXPIRY_TIME < ? order by EXPIRY_TIME limit ?",
+                    String.class, now, batchSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            // Re-checks the expiry: a session used since it was selected has moved its expiry on
+            List<Object> args = new ArrayList<>(ids.size() + 1);
+            args.add(now);
+            args.addAll(ids);
+            int removed = jdbcTemplate.update(
+                    "delete from SPRING_SESSION where EXPIRY_TIME < ? and PRIMARY_ID in ("
+                            + String.join(",", Collections.nCopies(ids.size(), "?")) + ")",
+                    args.toArray());
+            deleted += removed;
+            deletedSessions.addAndGet(removed);
+            if (ids.size() < batchSize) {
+                break;
+            }
+        }
+        return deleted;
+    }
+}
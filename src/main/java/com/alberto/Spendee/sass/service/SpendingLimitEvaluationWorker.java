@@ -0,0 +1,149 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.outbox.OutboxEvent;
+import com.alberto.Spendee.sass.domain.outbox.PendingOutboxEvents;
+import com.alberto.Spendee.sass.domain.outbox.TransactionsChangedEvent;
+import com.alberto.Spendee.sass.repository.OutboxEventRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Evaluates spending limits off the request thread from the transaction outbox.
+ * However many events a user has queued (e.g. one per row of a statement import), they are
+ * handled by a single evaluation. A commit wakes the worker after a short debounce so a burst
+ * coalesces; the scheduled poll picks up anything left over from a restart or a failed run.
+ * Every node runs the worker, so a user's events are claimed in the database before they are
+ * evaluated and a user another node holds is skipped; the local lock only stops this node's
+ * own drains from overlapping.
+ */
+@Component
+@Slf4j
+public class SpendingLimitEvaluationWorker {
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private NodeIdentity nodeIdentity;
+
+    @Value("${app.spending-limits.worker.debounce:500ms}")
+    private Duration debounce = Duration.ofMillis(500);
+
+    @Value("${app.spending-limits.worker.batch-size:100}")
+    private int batchSize = 100;
+
+    // Longer than any evaluation takes; after a crash the user's events wait this long for another node
+    @Value("${app.spending-limits.worker.claim-ttl:5m}")
+    private Duration claimTtl = Duration.ofMinutes(5);
+
+    private final AtomicBoolean wakeScheduled = new AtomicBoolean();
+    private final AtomicBoolean rerun = new AtomicBoolean();
+    private final ReentrantLock draining = new ReentrantLock();
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onTransactionsChanged(TransactionsChangedEvent event) {
+        if (wakeScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                wakeScheduled.set(false);
+                drain();
+            }, Instant.now().plus(debounce));
+        }
+    }
+
+    /**
+     * Handle every pending event. If a drain is already running it is asked to go round again instead.
+     */
+    @Scheduled(fixedDelayString = "${app.spending-limits.worker.poll-interval:30s}")
+    public void drain() {
+        rerun.set(true);
+        if (!draining.tryLock()) {
+            return;
+        }
+        try {
+            while (rerun.getAndSet(false)) {
+                drainPending();
+            }
+        } finally {
+            draining.unlock();
+        }
+    }
+
+    private void drainPending() {
+        while (true) {
+            List<PendingOutboxEvents> pending = outboxEventRepository.findPendingByUser(
+                    OutboxEvent.TRANSACTIONS_CHANGED, LocalDateTime.now(), Limit.of(batchSize));
+            int handled = 0;
+            for (PendingOutboxEvents userEvents : pending) {
+                if (evaluate(userEvents)) {
+                    handled++;
+                }
+            }
+            // Stop on a short page, or when every user failed or was taken and would just be fetched again
+            if (pending.size() < batchSize || handled == 0) {
+                return;
+            }
+        }
+    }
+
+    private boolean evaluate(PendingOutboxEvents userEvents) {
+        String node = nodeIdentity.getId();
+        if (!claim(userEvents, node)) {
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                spendingLimitService.evaluateLimits(userEvents.userId());
+                outboxEventRepository.deleteHandled(OutboxEvent.TRANSACTIONS_CHANGED,
+                        userEvents.userId(), userEvents.lastEventId(), node);
+            });
+            return true;
+        } catch (RuntimeException e) {
+            // Events stay queued and are retried on the next poll
+            log.error("Spending limit evaluation failed for user {}: {}", userEvents.userId(), e.getMessage());
+            outboxEventRepository.release(OutboxEvent.TRANSACTIONS_CHANGED, userEvents.userId(), node);
+            return false;
+        }
+    }
+
+    /**
+     * Claim the user's events, committed before evaluating. Two nodes can each claim a disjoint
+     * range of one user's events; whichever committed second sees the other's claim here and backs off.
+     */
+    private boolean claim(PendingOutboxEvents userEvents, String node) {
+        LocalDateTime now = LocalDateTime.now();
+        int claimed = outboxEventRepository.claim(OutboxEvent.TRANSACTIONS_CHANGED, userEvents.userId(),
+                userEvents.lastEventId(), node, now, now.plus(claimTtl));
+        if (claimed == 0) {
+            return false;
+        }
+        if (outboxEventRepository.countClaimedByOthers(OutboxEvent.TRANSACTIONS_CHANGED, userEvents.userId(), node, now) > 0) {
+            outboxEventRepository.release(OutboxEvent.TRANSACTIONS_CHANGED, userEvents.userId(), node);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,33 @@
+package com.alberto.Spendee.sass.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Starts new spending limit windows in bulk when a day begins, for limits whose day, week, month or
+ * year has ended, and counts future-dated expenses whose date has come. Also runs at startup to catch
+ * boundaries missed while the application was down; both steps are idempotent, so every node can run it.
+ */
+@Component
+@Slf4j
+public class SpendingLimitRolloverJob {
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.spending-limits.rollover-cron:0 0 0 * * *}")
+    public void rollOver() {
+        try {
+            spendingLimitService.rollOverWindows(LocalDate.now());
+        } catch (RuntimeException e) {
+            log.error("Spending limit rollover failed: {}", e.getMessage(), e);
+        }
+    }
+}
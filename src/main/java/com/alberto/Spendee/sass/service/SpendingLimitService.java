@@ -14,14 +14,20 @@ import com.alberto.Spendee.sass.repository.TransactionRepository;
 import com.alberto.Spendee.sass.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.YearMonth;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @Transactional
@@ -42,6 +48,9 @@ public class SpendingLimitService {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private OutboxService outboxService;
+
     public SpendingLimitDto createSpendingLimit(String userEmail, CreateSpendingLimitRequest request) {
         User user = userRepository.findByEmail(userEmail)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -67,9 +76,8 @@ public class SpendingLimitService {
         SpendingLimit spendingLimit = new SpendingLimit(user, category, request.getLimitAmount(), request.getPeriod());
         spendingLimit.setNotificationThreshold(request.getNotificationThreshold());
 
-        // Calculate current spending for the period
-        BigDecimal currentSpent = calculateCurrentSpending(user, category, request.getPeriod());
-        spendingLimit.setCurrentSpent(currentSpent);
+        // Seed the counter with what was already spent in the current window
+        BigDecimal currentSpent = startWindow(spendingLimit, LocalDate.now());
 
         spendingLimit = spendingLimitRepository.save(spendingLimit);
 
@@ -95,22 +103,15 @@ public class SpendingLimitService {
         return convertToDto(spendingLimit);
     }
 
+    /**
+     * Active limits with their current-window spending, read in a single query without touching the counters
+     */
+    @Transactional(readOnly = true)
     public List<SpendingLimitDto> getUserSpendingLimits(String userEmail) {
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-
-        List<SpendingLimit> limits = spendingLimitRepository.findByUserAndIsActiveTrue(user);
-        
-        // Update current spending for each limit
-        for (SpendingLimit limit : limits) {
-            BigDecimal currentSpent = calculateCurrentSpending(user, limit.getCategory(), limit.getPeriod());
-            limit.setCurrentSpent(currentSpent);
-        }
-        spendingLimitRepository.saveAll(limits);
-
-        return limits.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        LocalDate today = LocalDate.now();
+        return spendingLimitRepository.findDtosByUserEmail(userEmail,
+                LimitPeriod.DAILY.windowStart(today), LimitPeriod.WEEKLY.windowStart(today),
+                LimitPeriod.MONTHLY.windowStart(today), LimitPeriod.YEARLY.windowStart(today));
     }
 
     public SpendingLimitDto updateSpendingLimit(Long limitId, String userEmail, CreateSpendingLimitRequest request) {
@@ -126,8 +127,7 @@ public class SpendingLimitService {
         limit.setNotificationThreshold(request.getNotificationThreshold());
 
         // Recalculate current spending for the new period
-        BigDecimal currentSpent = calculateCurrentSpending(limit.getUser(), limit.getCategory(), request.getPeriod());
-        limit.setCurrentSpent(currentSpent);
+        startWindow(limit, LocalDate.now());
 
         limit = spendingLimitRepository.save(limit);
         return convertToDto(limit);
@@ -145,25 +145,105 @@ public class SpendingLimitService {
         spendingLimitRepository.save(limit);
     }
 
-    public void checkSpendingLimitsAfterTransaction(String userEmail, Transaction transaction) {
-        if (transaction.getType() != TransactionType.EXPENSE) {
+    /**
+     * Add a saved expense to the counters of the limits it falls under
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpense(Transaction transaction) {
+        if (deferIfFuture(transaction)) {
             return;
         }
+        applyExpense(transaction, transaction.getCategory(), transaction.getAmount(), true, true);
+    }
 
-        User user = userRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    /**
+     * Add a batch of saved expenses, one counter update per category and day
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordExpenses(Collection<Transaction> transactions) {
+        // The first transaction of each group stands in for the group's category, date and type
+        Map<ExpenseGroup, Transaction> representatives = new LinkedHashMap<>();
+        Map<ExpenseGroup, BigDecimal> totals = new HashMap<>();
+        for (Transaction transaction : transactions) {
+            if (deferIfFuture(transaction)) {
+                continue;
+            }
+            ExpenseGroup group = new ExpenseGroup(categoryId(transaction.getCategory()), transaction.getDate(), transaction.getType());
+            representatives.putIfAbsent(group, transaction);
+            totals.merge(group, transaction.getAmount(), BigDecimal::add);
+        }
+        representatives.forEach((group, transaction) ->
+                applyExpense(transaction, transaction.getCategory(), totals.get(group), true, true));
+    }
+
+    /**
+     * Take an expense back out of the counters. Must be called before the transaction is modified or deleted.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reverseExpense(Transaction transaction) {
+        if (transaction.isLimitsPending()) {
+            return;
+        }
+        applyExpense(transaction, transaction.getCategory(), transaction.getAmount(), true, false);
+    }
+
+    /**
+     * Move expenses between category limits; global limits are unaffected.
+     * Must be called before the transactions' category is changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recategorizeExpenses(Collection<Transaction> transactions, Category category) {
+        for (Transaction transaction : transactions) {
+            // A pending expense is counted under whatever category it has when its date comes
+            if (!transaction.isLimitsPending() && !Objects.equals(categoryId(transaction.getCategory()), categoryId(category))) {
+                applyExpense(transaction, transaction.getCategory(), transaction.getAmount(), false, false);
+                applyExpense(transaction, category, transaction.getAmount(), false, true);
+            }
+        }
+    }
+
+    /**
+     * Start new windows for limits whose period has ended, seed limits that have no window yet, and add
+     * expenses that were future-dated when saved and whose date has now come. Limits still inside their
+     * window are not touched.
+     */
+    public void rollOverWindows(LocalDate today) {
+        for (LimitPeriod period : LimitPeriod.values()) {
+            spendingLimitRepository.rollOver(period, period.windowStart(today));
+        }
+        for (SpendingLimit limit : spendingLimitRepository.findByIsActiveTrueAndPeriodStartIsNull()) {
+            startWindow(limit, today);
+        }
+
+        Set<Long> changedUsers = new HashSet<>();
+        for (Transaction transaction : transactionRepository.findDueLimitsPending(today)) {
+            // Every node runs this; only the one that clears the flag counts the expense
+            if (transactionRepository.clearLimitsPending(transaction.getId()) == 1) {
+                applyExpense(transaction, transaction.getCategory(), transaction.getAmount(), true, true);
+                changedUsers.add(transaction.getUser().getId());
+            }
+        }
+        changedUsers.forEach(outboxService::publishTransactionsChanged);
+    }
+
+    /**
+     * Notify on thresholds a user's limits crossed since their last evaluation
+     */
+    public void evaluateLimits(Long userId) {
+        User user = userRepository.findById(userId).orElse(null);
+        if (user == null) {
+            return;
+        }
 
         List<SpendingLimit> limits = spendingLimitRepository.findByUserAndIsActiveTrue(user);
-        
+
         for (SpendingLimit limit : limits) {
-            // Check if this limit applies to the transaction
-            if (limit.getCategory() != null && !limit.getCategory().equals(transaction.getCategory())) {
+            BigDecimal previousSpent = limit.getEvaluatedSpent();
+            BigDecimal newSpent = limit.getCurrentSpent();
+            if (previousSpent.compareTo(newSpent) == 0) {
                 continue;
             }
-
-            BigDecimal previousSpent = limit.getCurrentSpent();
-            BigDecimal newSpent = calculateCurrentSpending(user, limit.getCategory(), limit.getPeriod());
-            limit.setCurrentSpent(newSpent);
+            limit.setEvaluatedSpent(newSpent);
 
             boolean wasAtThreshold = previousSpent.compareTo(limit.getLimitAmount().multiply(limit.getNotificationThreshold())) >= 0;
             boolean wasExceeded = previousSpent.compareTo(limit.getLimitAmount()) > 0;
@@ -171,7 +251,7 @@ public class SpendingLimitService {
             // Send notifications for new threshold breaches
             if (!wasAtThreshold && limit.isThresholdExceeded() && !limit.isLimitExceeded()) {
                 notificationService.createSpendingLimitNotification(
-                        userEmail,
+                        user.getEmail(),
                         limit.getCategory() != null ? limit.getCategory().getName() : null,
                         formatAmount(limit.getLimitAmount()),
                         formatAmount(newSpent),
@@ -179,7 +259,7 @@ public class SpendingLimitService {
                 );
             } else if (!wasExceeded && limit.isLimitExceeded()) {
                 notificationService.createSpendingLimitNotification(
-                        userEmail,
+                        user.getEmail(),
                         limit.getCategory() != null ? limit.getCategory().getName() : null,
                         formatAmount(limit.getLimitAmount()),
                         formatAmount(newSpent),
@@ -187,36 +267,68 @@ public class SpendingLimitService {
                 );
             }
         }
+    }
 
-        spendingLimitRepository.saveAll(limits);
+    private void applyExpense(Transaction transaction, Category category, BigDecimal amount, boolean includeGlobal, boolean add) {
+        LocalDate date = transaction.getDate();
+        if (transaction.getType() != TransactionType.EXPENSE) {
+            return;
+        }
+        Long userId = transaction.getUser().getId();
+        if (add) {
+            spendingLimitRepository.addSpending(userId, categoryId(category), includeGlobal, amount,
+                    LimitPeriod.DAILY.windowStart(date), LimitPeriod.WEEKLY.windowStart(date),
+                    LimitPeriod.MONTHLY.windowStart(date), LimitPeriod.YEARLY.windowStart(date));
+        } else {
+            spendingLimitRepository.subtractSpending(userId, categoryId(category), includeGlobal, amount,
+                    LimitPeriod.DAILY.windowStart(date), LimitPeriod.WEEKLY.windowStart(date),
+                    LimitPeriod.MONTHLY.windowStart(date), LimitPeriod.YEARLY.windowStart(date));
+        }
     }
 
-    private BigDecimal calculateCurrentSpending(User user, Category category, LimitPeriod period) {
-        LocalDate startDate = getStartDateForPeriod(period);
-        LocalDate endDate = LocalDate.now();
+    // A future-dated expense doesn't count yet; it is flagged for the daily rollover to add once its date comes
+    private static boolean deferIfFuture(Transaction transaction) {
+        boolean pending = transaction.getType() == TransactionType.EXPENSE && transaction.getDate().isAfter(LocalDate.now());
+        transaction.setLimitsPending(pending);
+        return pending;
+    }
 
-        List<Transaction> transactions;
-        if (category != null) {
-            transactions = transactionRepository.findByUserAndCategoryAndDateBetweenAndType(
-                    user, category, startDate, endDate, TransactionType.EXPENSE);
+    private record ExpenseGroup(Long categoryId, LocalDate date, TransactionType type) {
+    }
+
+    private static Long categoryId(Category category) {
+        return category != null ? category.getId() : null;
+    }
+
+    /**
+     * Point the limit at the window containing today and set its counter from a SUM over that window
+     */
+    private BigDecimal startWindow(SpendingLimit limit, LocalDate today) {
+        LocalDate startDate = limit.getPeriod().windowStart(today);
+
+        BigDecimal spent;
+        if (limit.getCategory() != null) {
+            spent = transactionRepository.sumAmountByUserAndCategoryAndTypeAndDateBetween(
+                    limit.getUser(), limit.getCategory(), TransactionType.EXPENSE, startDate, today);
         } else {
-            transactions = transactionRepository.findByUserAndDateBetweenAndType(
-                    user, startDate, endDate, TransactionType.EXPENSE);
+            spent = transactionRepository.sumAmountByUserAndTypeAndDateBetween(
+                    limit.getUser(), TransactionType.EXPENSE, startDate, today);
         }
+        spent = spent != null ? spent : BigDecimal.ZERO;
 
-        return transactions.stream()
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        limit.setPeriodStart(startDate);
+        limit.setCurrentSpent(spent);
+        limit.setEvaluatedSpent(spent);
+        return spent;
     }
 
-    private LocalDate getStartDateForPeriod(LimitPeriod period) {
-        LocalDate now = LocalDate.now();
-        return switch (period) {
-            case DAILY -> now;
-            case WEEKLY -> now.with(java.time.DayOfWeek.MONDAY);
-            case MONTHLY -> YearMonth.from(now).atDay(1);
-            case YEARLY -> LocalDate.of(now.getYear(), 1, 1);
-        };
+    // A limit whose window has ended but hasn't been rolled over yet has spent nothing in the current one
+    private BigDecimal currentSpent(SpendingLimit limit) {
+        LocalDate windowStart = limit.getPeriod().windowStart(LocalDate.now());
+        if (limit.getPeriodStart() != null && limit.getPeriodStart().isBefore(windowStart)) {
+            return BigDecimal.ZERO;
+        }
+        return limit.getCurrentSpent();
     }
 
     private String formatAmount(BigDecimal amount) {
@@ -229,7 +341,7 @@ public class SpendingLimitService {
                 limit.getCategory() != null ? limit.getCategory().getId() : null,
                 limit.getCategory() != null ? limit.getCategory().getName() : "Total Spending",
                 limit.getLimitAmount(),
-                limit.getCurrentSpent(),
+                currentSpent(limit),
                 limit.getPeriod(),
                 limit.getNotificationThreshold(),
                 limit.getIsActive()
@@ -0,0 +1,93 @@
+package com.alberto.Spendee.sass.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * Amount parsing shared by the bank statement importers. Amounts come in many local formats:
+ * "1,234.56", "1.234,56", "-12.50", "(12.50)", "KES 1 200". Parsed without exceptions, as most
+ * rows of a large file go through here.
+ */
+final class StatementAmounts {
+
+    private StatementAmounts() {
+    }
+
+    /**
+     * The signed amount, or null when the text has no digits. The decimal separator is the last '.'
+     * or ',' when both occur. Otherwise a single '.' is decimal, a single ',' is decimal only when at
+     * most two digits follow it, and a repeated separator groups thousands.
+     */
+    static BigDecimal parse(String text) {
+        if (text == null) {
+            return null;
+        }
+        int length = text.length();
+        int digits = 0;
+        int dots = 0;
+        int commas = 0;
+        int lastDot = -1;
+        int lastComma = -1;
+        boolean negative = false;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.') {
+                dots++;
+                lastDot = i;
+            } else if (c == ',') {
+                commas++;
+                lastComma = i;
+            } else if ((c == '-' || c == '(') && digits == 0) {
+                negative = true;
+            }
+        }
+        if (digits == 0) {
+            return null;
+        }
+
+        int decimalSeparator;
+        if (dots > 0 && commas > 0) {
+            decimalSeparator = Math.max(lastDot, lastComma);
+        } else if (dots == 1) {
+            decimalSeparator = lastDot;
+        } else if (commas == 1) {
+            decimalSeparator = digitsAfter(text, lastComma) <= 2 ? lastComma : -1;
+        } else {
+            decimalSeparator = -1;
+        }
+
+        long unscaled = 0;
+        int scale = 0;
+        if (digits > 18) {
+            StringBuilder big = new StringBuilder(digits + 2);
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    big.append(c);
+                    if (decimalSeparator >= 0 && i > decimalSeparator) scale++;
+                }
+            }
+            BigDecimal value = new BigDecimal(new BigInteger(big.toString()), scale);
+            return negative ? value.negate() : value;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                unscaled = unscaled * 10 + (c - '0');
+                if (decimalSeparator >= 0 && i > decimalSeparator) scale++;
+            }
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, scale);
+    }
+
+    private static int digitsAfter(String text, int index) {
+        int count = 0;
+        for (int i = index + 1; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') count++;
+        }
+        return count;
+    }
+}
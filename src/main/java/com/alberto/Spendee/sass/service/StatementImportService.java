@@ -0,0 +1,210 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.StatementImportResult;
+import com.alberto.Spendee.sass.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Writes parsed statement rows in chunks. Each chunk is one database transaction: the rows go out as
+ * JDBC batch inserts, and the rollups, spending-limit counters and outbox are updated once per chunk
+ * rather than once per row.
+ */
+@Service
+@Slf4j
+public class StatementImportService {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.import.chunk-size:500}")
+    private int chunkSize = 500;
+
+    /**
+     * Notified after each chunk commits with the running saved and skipped counts
+     */
+    public interface ProgressListener {
+        void onProgress(int saved, int skipped);
+    }
+
+    /**
+     * Rows of one import, pushed to the sink as they are read from the statement
+     */
+    @FunctionalInterface
+    public interface RowSource {
+        void forEach(Consumer<Transaction> sink) throws IOException;
+    }
+
+    /**
+     * Save the user's new transactions from one import, skipping references already imported from the source
+     */
+    public StatementImportResult importTransactions(User user, TransactionSource source, List<Transaction> transactions) {
+        return importTransactions(user, source, transactions, (saved, skipped) -> { });
+    }
+
+    public StatementImportResult importTransactions(User user, TransactionSource source, List<Transaction> transactions,
+                                                    ProgressListener listener) {
+        try {
+            return importTransactions(user, source, transactions::forEach, listener);
+        } catch (IOException e) {
+            // Iterating a list doesn't do I/O
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Save rows as they are read, a chunk at a time, so memory is bounded by the chunk size rather
+     * than the length of the statement. Each chunk's references are checked against the database in
+     * one query before it is written, which also catches repeats of rows from earlier chunks.
+     */
+    public StatementImportResult importTransactions(User user, TransactionSource source, RowSource rows,
+                                                    ProgressListener listener) throws IOException {
+        long start = System.nanoTime();
+
+        ChunkWriter writer = new ChunkWriter(user, source, listener);
+        rows.forEach(writer::add);
+        writer.flush();
+
+        StatementImportResult result = new StatementImportResult(writer.saved, writer.read - writer.saved,
+                writer.totalIncome, writer.totalExpense, (System.nanoTime() - start) / 1_000_000);
+        log.info("Imported {} of {} {} transactions for user {} in {} ms ({} rows/s)",
+                result.savedTransactions(), writer.read, source, user.getId(),
+                result.elapsedMillis(), result.rowsPerSecond());
+        return result;
+    }
+
+    private final class ChunkWriter {
+
+        private final User user;
+        private final TransactionSource source;
+        private final ProgressListener listener;
+        private final List<Transaction> chunk = new ArrayList<>();
+
+        private int read;
+        private int saved;
+        private BigDecimal totalIncome = BigDecimal.ZERO;
+        private BigDecimal totalExpense = BigDecimal.ZERO;
+
+        ChunkWriter(User user, TransactionSource source, ProgressListener listener) {
+            this.user = user;
+            this.source = source;
+            this.listener = listener;
+        }
+
+        void add(Transaction transaction) {
+            transaction.setUser(user);
+            transaction.setSource(source);
+            chunk.add(transaction);
+            read++;
+            if (chunk.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            List<Transaction> fresh = unseen(user, source, chunk);
+            List<Transaction> written = fresh.isEmpty() ? fresh : saveChunk(user, source, fresh);
+            for (Transaction transaction : written) {
+                if (transaction.getType() == TransactionType.INCOME) {
+                    totalIncome = totalIncome.add(transaction.getAmount());
+                } else {
+                    totalExpense = totalExpense.add(transaction.getAmount());
+                }
+            }
+            saved += written.size();
+            chunk.clear();
+            listener.onProgress(saved, read - saved);
+        }
+    }
+
+    // Rows whose reference hasn't been imported before and doesn't repeat an earlier row of the chunk
+    private List<Transaction> unseen(User user, TransactionSource source, List<Transaction> chunk) {
+        Set<String> seenRefs = new HashSet<>(transactionService.findImportedExternalRefs(user, source, refs(chunk)));
+        List<Transaction> fresh = new ArrayList<>(chunk.size());
+        for (Transaction transaction : chunk) {
+            if (transaction.getExternalRef() == null || seenRefs.add(transaction.getExternalRef())) {
+                fresh.add(transaction);
+            }
+        }
+        return fresh;
+    }
+
+    private List<Transaction> saveChunk(User user, TransactionSource source, List<Transaction> chunk) {
+        try {
+            write(user, chunk);
+            return chunk;
+        } catch (DataIntegrityViolationException e) {
+            // Another upload saved some of these references since they were checked; drop those and retry once
+            Set<String> existing = transactionService.findImportedExternalRefs(user, source, refs(chunk));
+            List<Transaction> retry = chunk.stream()
+                    .filter(t -> t.getExternalRef() == null || !existing.contains(t.getExternalRef()))
+                    .collect(Collectors.toList());
+            // Ids handed out by the rolled-back attempt must not be reused as if the rows existed
+            retry.forEach(t -> t.setId(null));
+            write(user, retry);
+            return retry;
+        }
+    }
+
+    private void write(User user, List<Transaction> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Flushed through the repository so a duplicate reference surfaces here, as a translated
+            // DataIntegrityViolationException, before any derived table is touched
+            transactionRepository.saveAllAndFlush(chunk);
+            transactionRollupService.recordAll(chunk);
+            spendingLimitService.recordExpenses(chunk);
+            outboxService.publishTransactionsChanged(user.getId());
+            entityManager.flush();
+            // Keep the persistence context from growing across chunks
+            entityManager.clear();
+        });
+    }
+
+    private static Set<String> refs(List<Transaction> transactions) {
+        return transactions.stream()
+                .map(Transaction::getExternalRef)
+                .filter(ref -> ref != null)
+                .collect(Collectors.toSet());
+    }
+}
@@ -0,0 +1,33 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Reads one kind of statement file for the import jobs. Implementations are picked by file extension
+ * and hand rows to the consumer as they are read, so a streaming format never holds the whole
+ * statement in memory.
+ */
+public interface StatementImporter {
+
+    TransactionSource source();
+
+    /**
+     * File extensions this importer reads, lower case and without the dot
+     */
+    Set<String> extensions();
+
+    /**
+     * Name of the user's category imported rows are filed under, or null to leave them uncategorized
+     */
+    default String defaultCategory() {
+        return null;
+    }
+
+    void read(Path file, Consumer<StatementRowDto> rows) throws IOException;
+}
@@ -1,9 +1,9 @@
 package com.alberto.Spendee.sass.service;
 
-import com.alberto.Spendee.sass.domain.transaction.Transaction;
 import com.alberto.Spendee.sass.domain.transaction.TransactionType;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.SuggestionDto;
+import com.alberto.Spendee.sass.dto.TransactionDto;
 import com.alberto.Spendee.sass.repository.TransactionRepository;
 import com.alberto.Spendee.sass.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -42,9 +42,9 @@ public class SuggestionService {
         LocalDate last90Start = LocalDate.now().minusDays(90);
 
         // Fetch transactions
-        List<Transaction> currentTx = transactionRepository.findByUserAndDateBetween(user, curStart, curEnd);
-        List<Transaction> previousTx = transactionRepository.findByUserAndDateBetween(user, prevStart, prevEnd);
-        List<Transaction> last90Tx = transactionRepository.findByUserAndDateBetween(user, last90Start, LocalDate.now());
+        List<TransactionDto> currentTx = transactionRepository.findDtosByUserAndDateBetween(user, curStart, curEnd);
+        List<TransactionDto> previousTx = transactionRepository.findDtosByUserAndDateBetween(user, prevStart, prevEnd);
+        List<TransactionDto> last90Tx = transactionRepository.findDtosByUserAndDateBetween(user, last90Start, LocalDate.now());
 
         // Separate income and expense
         BigDecimal curIncome = sumByType(currentTx, TransactionType.INCOME);
@@ -145,19 +145,19 @@ public class SuggestionService {
         }
 
         // 4) Possible subscriptions (recurring similar descriptions)
-        List<Transaction> last90Expenses = last90Tx.stream()
+        List<TransactionDto> last90Expenses = last90Tx.stream()
                 .filter(t -> t.getType() == TransactionType.EXPENSE)
                 .toList();
-        Map<String, List<Transaction>> byNormDesc = last90Expenses.stream()
+        Map<String, List<TransactionDto>> byNormDesc = last90Expenses.stream()
                 .collect(Collectors.groupingBy(t -> normalizeDescription(t.getDescription())));
-        for (Map.Entry<String, List<Transaction>> entry : byNormDesc.entrySet()) {
-            List<Transaction> list = entry.getValue();
+        for (Map.Entry<String, List<TransactionDto>> entry : byNormDesc.entrySet()) {
+            List<TransactionDto> list = entry.getValue();
             // Require at least 3 occurrences across different weeks
             if (list.size() >= 3 && occurredInAtLeastKWeeks(list, 3)) {
                 // Amount stability check
                 BigDecimal avg = averageAmount(list);
-                BigDecimal min = list.stream().map(Transaction::getAmount).min(Comparator.naturalOrder()).orElse(ZERO);
-                BigDecimal max = list.stream().map(Transaction::getAmount).max(Comparator.naturalOrder()).orElse(ZERO);
+                BigDecimal min = list.stream().map(TransactionDto::getAmount).min(Comparator.naturalOrder()).orElse(ZERO);
+                BigDecimal max = list.stream().map(TransactionDto::getAmount).max(Comparator.naturalOrder()).orElse(ZERO);
                 if (avg.compareTo(new BigDecimal("5")) >= 0) { // ignore noise
                     BigDecimal range = max.subtract(min);
                     if (range.compareTo(avg.multiply(new BigDecimal("0.2"))) <= 0) { // relatively stable
@@ -177,7 +177,7 @@ public class SuggestionService {
         // 5) Uncategorized transactions
         long uncategorizedCount = currentTx.stream()
                 .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .filter(t -> t.getCategory() == null)
+                .filter(t -> t.getCategoryId() == null)
                 .count();
         if (uncategorizedCount >= 5 || (curExpense.compareTo(ZERO) > 0 && (double) uncategorizedCount / Math.max(1, currentTx.size()) > 0.2)) {
             SuggestionDto s = new SuggestionDto("HYGIENE", "Categorize your expenses",
@@ -211,20 +211,20 @@ public class SuggestionService {
         return ranked;
     }
 
-    private BigDecimal sumByType(List<Transaction> tx, TransactionType type) {
+    private BigDecimal sumByType(List<TransactionDto> tx, TransactionType type) {
         return tx.stream()
                 .filter(t -> t.getType() == type)
-                .map(Transaction::getAmount)
+                .map(TransactionDto::getAmount)
                 .reduce(BigDecimal.ZERO, BigDecimal::add)
                 .setScale(2, RoundingMode.HALF_UP);
     }
 
-    private Map<String, BigDecimal> sumExpensesByCategory(List<Transaction> tx) {
+    private Map<String, BigDecimal> sumExpensesByCategory(List<TransactionDto> tx) {
         return tx.stream()
                 .filter(t -> t.getType() == TransactionType.EXPENSE)
                 .collect(Collectors.groupingBy(
-                        t -> t.getCategory() != null ? t.getCategory().getName() : "Uncategorized",
-                        Collectors.mapping(Transaction::getAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
+                        t -> t.getCategoryName() != null ? t.getCategoryName() : "Uncategorized",
+                        Collectors.mapping(TransactionDto::getAmount, Collectors.reducing(BigDecimal.ZERO, BigDecimal::add))
                 ));
     }
 
@@ -261,16 +261,16 @@ public class SuggestionService {
                 .collect(Collectors.joining(" "));
     }
 
-    private boolean occurredInAtLeastKWeeks(List<Transaction> list, int k) {
+    private boolean occurredInAtLeastKWeeks(List<TransactionDto> list, int k) {
         Set<String> weeks = list.stream()
                 .map(t -> YearMonth.from(t.getDate()) + ":" + t.getDate().get(java.time.temporal.WeekFields.ISO.weekOfWeekBasedYear()))
                 .collect(Collectors.toSet());
         return weeks.size() >= k;
     }
 
-    private BigDecimal averageAmount(List<Transaction> list) {
+    private BigDecimal averageAmount(List<TransactionDto> list) {
         if (list.isEmpty()) return ZERO;
-        BigDecimal sum = list.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal sum = list.stream().map(TransactionDto::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add);
         return sum.divide(new BigDecimal(list.size()), 2, RoundingMode.HALF_UP);
     }
 
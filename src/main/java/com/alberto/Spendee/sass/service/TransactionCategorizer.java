@@ -0,0 +1,146 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.CategorizedDescription;
+import com.alberto.Spendee.sass.repository.TransactionRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Suggests categories for new and imported transactions from the user's own categorized history.
+ * Each user's rules are compiled into a {@link CategoryMatcher} on first use and kept in a bounded
+ * LRU cache until the user recategorizes something or edits their categories.
+ */
+@Service
+@Slf4j
+public class TransactionCategorizer {
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${app.categorizer.cache-size:1000}")
+    private int cacheSize = 1000;
+
+    // How many of the most recent categorized transactions rules are learned from
+    @Value("${app.categorizer.training-rows:5000}")
+    private int trainingRows = 5000;
+
+    @Value("${app.categorizer.min-support:2}")
+    private int minSupport = 2;
+
+    @Value("${app.categorizer.min-confidence:0.8}")
+    private double minConfidence = 0.8;
+
+    @Value("${app.categorizer.max-rules:20000}")
+    private int maxRules = 20000;
+
+    // Catch-all categories; rows land in them when nothing better was chosen, so they teach nothing
+    @Value("${app.categorizer.excluded-categories:General,M-Pesa}")
+    private Set<String> excludedCategories = Set.of("General", "M-Pesa");
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    // Bumped by every eviction, so a matcher compiled while one happened isn't cached
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final Map<Long, CategoryMatcher> matchers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CategoryMatcher> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @Autowired(required = false)
+    void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("categorizer.cache.hits", hits, AtomicLong::get)
+                .description("Categorizations served by an already compiled matcher")
+                .register(meterRegistry);
+        FunctionCounter.builder("categorizer.cache.misses", misses, AtomicLong::get)
+                .description("Categorizations that had to learn the user's rules first")
+                .register(meterRegistry);
+        Gauge.builder("categorizer.cache.size", this, TransactionCategorizer::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * The category id suggested for a description, or null when the user's history has no opinion
+     */
+    public Long categorize(User user, String description) {
+        return forUser(user).categorize(description);
+    }
+
+    /**
+     * The user's compiled matcher; fetch it once to classify many rows
+     */
+    public CategoryMatcher forUser(User user) {
+        synchronized (matchers) {
+            CategoryMatcher cached = matchers.get(user.getId());
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+
+        long evictionsBefore = evictions.get();
+        long start = System.nanoTime();
+        List<CategorizedDescription> examples = transactionRepository.findCategorizedDescriptions(
+                user, excludedCategories.isEmpty() ? Set.of("") : excludedCategories, Limit.of(trainingRows));
+        CategoryMatcher matcher = CategoryMatcher.learn(examples, minSupport, minConfidence, maxRules);
+        log.debug("Learned {} categorization rules for user {} from {} transactions in {} ms",
+                matcher.ruleCount(), user.getId(), examples.size(), (System.nanoTime() - start) / 1_000_000);
+
+        synchronized (matchers) {
+            if (evictions.get() == evictionsBefore) {
+                matchers.put(user.getId(), matcher);
+            }
+        }
+        return matcher;
+    }
+
+    /**
+     * Forget the user's rules. Inside a transaction this waits for the commit, so the next
+     * compile sees the change that caused it.
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(userId);
+                }
+            });
+        }
+    }
+
+    public int size() {
+        synchronized (matchers) {
+            return matchers.size();
+        }
+    }
+
+    private void remove(Long userId) {
+        synchronized (matchers) {
+            evictions.incrementAndGet();
+            matchers.remove(userId);
+        }
+    }
+}
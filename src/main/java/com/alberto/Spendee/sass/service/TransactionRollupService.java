@@ -0,0 +1,136 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionRollup;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.repository.TransactionRollupRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps the monthly transaction rollups in step with transaction writes.
+ * Every change is applied as a delta inside the caller's transaction, so a rollup never
+ * reflects a write that was rolled back.
+ */
+@Service
+public class TransactionRollupService {
+
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+
+    /**
+     * Add a saved transaction to its month's rollup
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Transaction transaction) {
+        Deltas deltas = new Deltas();
+        deltas.add(transaction, transaction.getCategory(), 1);
+        apply(deltas);
+    }
+
+    /**
+     * Add a batch of saved transactions, one upsert per affected rollup row
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Collection<Transaction> transactions) {
+        Deltas deltas = new Deltas();
+        for (Transaction transaction : transactions) {
+            deltas.add(transaction, transaction.getCategory(), 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Remove a transaction from its month's rollup.
+     * Must be called before the transaction is modified or deleted, while it still holds the old values.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void unrecord(Transaction transaction) {
+        Deltas deltas = new Deltas();
+        deltas.add(transaction, transaction.getCategory(), -1);
+        apply(deltas);
+    }
+
+    /**
+     * Move transactions to a new category in the rollups, one upsert per affected rollup row.
+     * Must be called before the transactions' category is changed.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recategorize(Collection<Transaction> transactions, Category category) {
+        Deltas deltas = new Deltas();
+        for (Transaction transaction : transactions) {
+            deltas.add(transaction, transaction.getCategory(), -1);
+            deltas.add(transaction, category, 1);
+        }
+        apply(deltas);
+    }
+
+    /**
+     * Recompute a user's rollups from their transactions. Safe while the application takes writes:
+     * the user's deltas are held off until the rebuild commits.
+     */
+    @Transactional
+    public int rebuild(Long userId) {
+        transactionRollupRepository.lockUserForRebuild(userId);
+        transactionRollupRepository.deleteByUserId(userId);
+        List<TransactionRollup> rollups = transactionRollupRepository.aggregateTransactions(userId);
+        transactionRollupRepository.saveAll(rollups);
+        return rollups.size();
+    }
+
+    public List<Long> findUserIdsWithTransactions() {
+        return transactionRollupRepository.findUserIdsWithTransactions();
+    }
+
+    public boolean isEmpty() {
+        return transactionRollupRepository.count() == 0;
+    }
+
+    private void apply(Deltas deltas) {
+        // Wait out a rebuild of the same user, see TransactionRollupRepository.lockUserForRebuild
+        deltas.values.keySet().stream().map(Key::userId).distinct()
+                .forEach(transactionRollupRepository::lockUserForDelta);
+        deltas.values.forEach((key, delta) -> {
+            // Changes that cancel out (e.g. a category set to itself) don't need a write
+            if (delta.count != 0 || delta.amount.signum() != 0) {
+                transactionRollupRepository.applyDelta(key.userId(), key.monthStart(), key.categoryId(),
+                        key.type().name(), delta.amount, delta.count);
+            }
+        });
+    }
+
+    private record Key(Long userId, LocalDate monthStart, Long categoryId, TransactionType type) {
+    }
+
+    private static final class Delta {
+        private BigDecimal amount = BigDecimal.ZERO;
+        private long count;
+    }
+
+    // Accumulates per-row changes so a batch touching many transactions issues one upsert per rollup row
+    private static final class Deltas {
+        private final Map<Key, Delta> values = new LinkedHashMap<>();
+
+        void add(Transaction transaction, Category category, int sign) {
+            Key key = new Key(
+                    transaction.getUser().getId(),
+                    transaction.getDate().withDayOfMonth(1),
+                    category != null ? category.getId() : TransactionRollup.NO_CATEGORY,
+                    transaction.getType()
+            );
+            Delta delta = values.computeIfAbsent(key, k -> new Delta());
+            delta.amount = sign > 0 ? delta.amount.add(transaction.getAmount()) : delta.amount.subtract(transaction.getAmount());
+            delta.count += sign;
+        }
+    }
+}
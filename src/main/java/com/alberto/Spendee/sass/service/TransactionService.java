@@ -2,26 +2,41 @@ package com.alberto.Spendee.sass.service;
 
 import com.alberto.Spendee.sass.domain.transaction.Category;
 import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
 import com.alberto.Spendee.sass.domain.transaction.TransactionType;
 import com.alberto.Spendee.sass.domain.user.User;
 import com.alberto.Spendee.sass.dto.DashboardSummaryDto;
+import com.alberto.Spendee.sass.dto.DashboardTotals;
 import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.dto.TransactionPageDto;
 import com.alberto.Spendee.sass.repository.CategoryRepository;
+import com.alberto.Spendee.sass.repository.ImportJobRepository;
 import com.alberto.Spendee.sass.repository.TransactionRepository;
+import com.alberto.Spendee.sass.repository.TransactionRollupRepository;
 import com.alberto.Spendee.sass.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class TransactionService {
 
+    static final int DEFAULT_PAGE_SIZE = 50;
+    static final int MAX_PAGE_SIZE = 200;
+
     @Autowired
     private TransactionRepository transactionRepository;
     
@@ -37,6 +52,21 @@ public class TransactionService {
     @Autowired
     private SpendingLimitService spendingLimitService;
 
+    @Autowired
+    private OutboxService outboxService;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private TransactionCategorizer transactionCategorizer;
+
     /**
      * Get dashboard summary data for a user
      */
@@ -44,65 +74,36 @@ public class TransactionService {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         
-        // Get current month date range
         YearMonth currentMonth = YearMonth.now();
-        LocalDate firstDay = currentMonth.atDay(1);
-        LocalDate lastDay = currentMonth.atEndOfMonth();
-        
-        // Calculate all-time totals
-        BigDecimal totalExpenses = transactionRepository.sumAmountByUserAndType(
-                user, TransactionType.EXPENSE) != null ?
-                transactionRepository.sumAmountByUserAndType(user, TransactionType.EXPENSE) :
-                BigDecimal.ZERO;
-
-        BigDecimal totalIncome = transactionRepository.sumAmountByUserAndType(
-                user, TransactionType.INCOME) != null ?
-                transactionRepository.sumAmountByUserAndType(user, TransactionType.INCOME) :
-                BigDecimal.ZERO;
-
-        // Calculate monthly totals
-        BigDecimal monthlyExpenses = transactionRepository.sumAmountByUserAndTypeAndDateBetween(
-                user, TransactionType.EXPENSE, firstDay, lastDay) != null ? 
-                transactionRepository.sumAmountByUserAndTypeAndDateBetween(user, TransactionType.EXPENSE, firstDay, lastDay) :
-                BigDecimal.ZERO;
-
-        BigDecimal monthlyIncome = transactionRepository.sumAmountByUserAndTypeAndDateBetween(
-                user, TransactionType.INCOME, firstDay, lastDay) != null ?
-                transactionRepository.sumAmountByUserAndTypeAndDateBetween(user, TransactionType.INCOME, firstDay, lastDay) :
-                BigDecimal.ZERO;
-
-        // Calculate previous month totals
         YearMonth previousMonth = currentMonth.minusMonths(1);
-        LocalDate previousFirstDay = previousMonth.atDay(1);
-        LocalDate previousLastDay = previousMonth.atEndOfMonth();
 
-        BigDecimal previousMonthlyExpenses = transactionRepository.sumAmountByUserAndTypeAndDateBetween(
-                user, TransactionType.EXPENSE, previousFirstDay, previousLastDay) != null ?
-                transactionRepository.sumAmountByUserAndTypeAndDateBetween(user, TransactionType.EXPENSE, previousFirstDay, previousLastDay) :
-                BigDecimal.ZERO;
-
-        BigDecimal previousMonthlyIncome = transactionRepository.sumAmountByUserAndTypeAndDateBetween(
-                user, TransactionType.INCOME, previousFirstDay, previousLastDay) != null ?
-                transactionRepository.sumAmountByUserAndTypeAndDateBetween(user, TransactionType.INCOME, previousFirstDay, previousLastDay) :
-                BigDecimal.ZERO;
+        // All-time, monthly and previous-month totals are summed from the user's monthly rollups
+        DashboardTotals totals = transactionRollupRepository.summarizeByUser(
+                user.getId(),
+                TransactionType.INCOME,
+                TransactionType.EXPENSE,
+                currentMonth.atDay(1),
+                previousMonth.atDay(1)
+        );
 
         // Calculate month-over-month changes
-        double expenseChange = calculatePercentageChange(previousMonthlyExpenses, monthlyExpenses);
-        double incomeChange = calculatePercentageChange(previousMonthlyIncome, monthlyIncome);
+        double expenseChange = calculatePercentageChange(totals.previousMonthlyExpenses(), totals.monthlyExpenses());
+        double incomeChange = calculatePercentageChange(totals.previousMonthlyIncome(), totals.monthlyIncome());
 
         return new DashboardSummaryDto(
-                totalIncome,        // Changed from monthlyIncome to totalIncome
-                totalExpenses,      // Changed from monthlyExpenses to totalExpenses
+                totals.totalIncome(),
+                totals.totalExpenses(),
                 incomeChange,
                 expenseChange,
-                monthlyIncome,      // Added monthly figures
-                monthlyExpenses     // Added monthly figures
+                totals.monthlyIncome(),
+                totals.monthlyExpenses()
         );
     }
     
     /**
      * Create a new transaction
      */
+    @Transactional
     public Transaction createTransaction(TransactionDto transactionDto, User user) {
         Transaction transaction = new Transaction();
         transaction.setUser(user);
@@ -120,12 +121,20 @@ public class TransactionService {
                 throw new RuntimeException("Category doesn't belong to user");
             }
             transaction.setCategory(category);
+        } else {
+            // Otherwise suggest one from how the user has categorized similar descriptions
+            Long suggested = transactionCategorizer.categorize(user, transactionDto.getDescription());
+            if (suggested != null) {
+                categoryRepository.findById(suggested).ifPresent(transaction::setCategory);
+            }
         }
 
         transaction = transactionRepository.save(transaction);
+        transactionRollupService.record(transaction);
+        spendingLimitService.recordExpense(transaction);
 
-        // Check spending limits after transaction creation
-        spendingLimitService.checkSpendingLimitsAfterTransaction(user.getEmail(), transaction);
+        // Spending limits are evaluated by a background worker once this commits
+        outboxService.publishTransactionsChanged(user.getId());
 
         return transaction;
     }
@@ -134,12 +143,36 @@ public class TransactionService {
      * Get all transactions for a user
      */
     public List<TransactionDto> getAllTransactionsByUser(User user) {
-        List<Transaction> transactions = transactionRepository.findByUserOrderByDateDesc(user);
-        return transactions.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return transactionRepository.findDtosByUser(user);
     }
     
+    /**
+     * Get one page of a user's transactions, newest first, using a keyset cursor on (date, id)
+     */
+    public TransactionPageDto getTransactionPage(User user, String cursor, Integer size) {
+        int pageSize = size == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // Fetch one extra row to learn whether another page follows
+        Limit limit = Limit.of(pageSize + 1);
+
+        List<TransactionDto> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = transactionRepository.findPageByUser(user, limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            rows = transactionRepository.findPageByUserBefore(user, position.date(), position.id(), limit);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<TransactionDto> page = hasMore ? rows.subList(0, pageSize) : rows;
+        String next = null;
+        if (hasMore) {
+            TransactionDto last = page.get(page.size() - 1);
+            next = new PageCursor(last.getDate(), last.getId()).encode();
+        }
+
+        return new TransactionPageDto(page, next);
+    }
+
     /**
      * Get a specific transaction by ID and user
      */
@@ -149,11 +182,26 @@ public class TransactionService {
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
     }
 
+    /**
+     * External references from an import batch that the user has already imported from the source
+     */
+    @Transactional(readOnly = true)
+    public Set<String> findImportedExternalRefs(User user, TransactionSource source, Collection<String> refs) {
+        if (refs.isEmpty()) {
+            return Set.of();
+        }
+        return transactionRepository.findExistingExternalRefs(user, source, refs);
+    }
+
     /**
      * Update an existing transaction
      */
+    @Transactional
     public Transaction updateTransaction(Long id, TransactionDto transactionDto, User user) {
         Transaction transaction = getTransactionByIdAndUser(id, user);
+        Long previousCategoryId = transaction.getCategory() != null ? transaction.getCategory().getId() : null;
+        transactionRollupService.unrecord(transaction);
+        spendingLimitService.reverseExpense(transaction);
 
         transaction.setDate(transactionDto.getDate());
         transaction.setAmount(transactionDto.getAmount());
@@ -171,26 +219,31 @@ public class TransactionService {
         } else {
             transaction.setCategory(null);
         }
+        if (!Objects.equals(previousCategoryId, transactionDto.getCategoryId())) {
+            transactionCategorizer.evict(user.getId());
+        }
 
-        return transactionRepository.save(transaction);
+        transaction = transactionRepository.save(transaction);
+        transactionRollupService.record(transaction);
+        spendingLimitService.recordExpense(transaction);
+        outboxService.publishTransactionsChanged(user.getId());
+        return transaction;
     }
 
     public List<Transaction> getTransactionsByUser(User user) {
         return transactionRepository.findByUserOrderByDateDesc(user);
     }
 
-    public List<Transaction> getRecentTransactions(String email, int limit) {
+    public List<TransactionDto> getRecentTransactions(String email, int limit) {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new RuntimeException("User not found"));
-        return transactionRepository.findByUserOrderByDateDesc(user)
-                .stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return transactionRepository.findPageByUser(user, Limit.of(limit));
     }
 
     /**
      * Delete a transaction
      */
+    @Transactional
     public void deleteTransaction(Long id, User user) {
         Transaction transaction = transactionRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
@@ -199,7 +252,13 @@ public class TransactionService {
             throw new RuntimeException("Unauthorized to delete this transaction");
         }
 
+        transactionRollupService.unrecord(transaction);
+        spendingLimitService.reverseExpense(transaction);
         transactionRepository.delete(transaction);
+        if (transaction.getSource() != TransactionSource.MANUAL) {
+            importJobRepository.forgetContentHashes(user.getId(), transaction.getSource());
+        }
+        outboxService.publishTransactionsChanged(user.getId());
     }
 
     /**
@@ -209,12 +268,7 @@ public class TransactionService {
         LocalDate startDate = date.withDayOfMonth(1);
         LocalDate endDate = date.withDayOfMonth(date.lengthOfMonth());
 
-        List<Transaction> transactions = transactionRepository
-            .findByUserAndDateBetweenOrderByDateDesc(user, startDate, endDate);
-
-        return transactions.stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return transactionRepository.findDtosByUserAndDateBetween(user, startDate, endDate);
     }
 
     /**
@@ -235,6 +289,7 @@ public class TransactionService {
     /**
      * Categorize a single transaction
      */
+    @Transactional
     public Transaction categorizeTransaction(Long transactionId, Long categoryId, User user) {
         Transaction transaction = getTransactionByIdAndUser(transactionId, user);
         
@@ -247,18 +302,26 @@ public class TransactionService {
                 throw new RuntimeException("Category doesn't belong to user");
             }
             
+            transactionRollupService.recategorize(List.of(transaction), category);
+            spendingLimitService.recategorizeExpenses(List.of(transaction), category);
             transaction.setCategory(category);
         } else {
             // Remove category if null is passed
+            transactionRollupService.recategorize(List.of(transaction), null);
+            spendingLimitService.recategorizeExpenses(List.of(transaction), null);
             transaction.setCategory(null);
         }
         
-        return transactionRepository.save(transaction);
+        transaction = transactionRepository.save(transaction);
+        transactionCategorizer.evict(user.getId());
+        outboxService.publishTransactionsChanged(user.getId());
+        return transaction;
     }
 
     /**
      * Bulk categorize multiple transactions
      */
+    @Transactional
     public List<Transaction> bulkCategorizeTransactions(List<Long> transactionIds, Long categoryId, User user) {
         List<Transaction> transactions = transactionRepository.findAllById(transactionIds);
         
@@ -282,9 +345,37 @@ public class TransactionService {
         
         // Update all transactions with the new category
         final Category finalCategory = category;
+        transactionRollupService.recategorize(transactions, finalCategory);
+        spendingLimitService.recategorizeExpenses(transactions, finalCategory);
         transactions.forEach(transaction -> transaction.setCategory(finalCategory));
         
-        return transactionRepository.saveAll(transactions);
+        List<Transaction> saved = transactionRepository.saveAll(transactions);
+        if (!saved.isEmpty()) {
+            transactionCategorizer.evict(user.getId());
+            outboxService.publishTransactionsChanged(user.getId());
+        }
+        return saved;
+    }
+
+    /**
+     * Position of the last row on a page, encoded as an opaque URL-safe token
+     */
+    record PageCursor(LocalDate date, Long id) {
+
+        String encode() {
+            String raw = date + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static PageCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int sep = raw.indexOf('|');
+                return new PageCursor(LocalDate.parse(raw.substring(0, sep)), Long.parseLong(raw.substring(sep + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+        }
     }
 
     private double calculatePercentageChange(BigDecimal previous, BigDecimal current) {
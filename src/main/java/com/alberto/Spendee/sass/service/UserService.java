@@ -31,6 +31,8 @@ public class UserService {
         user.setEmail(email);
         if (password != null && !password.isBlank()) {
             user.setPassword(passwordEncoder.encode(password));
+            // Refresh tokens issued before the password change stop working
+            user.bumpTokenVersion();
         }
         userRepository.save(user);
         return true;
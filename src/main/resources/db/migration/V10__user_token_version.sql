@@ -0,0 +1,2 @@
+-- Bumped whenever a user's roles or password change; refresh tokens carrying an older version are refused
+alter table users add column token_version int not null default 0;
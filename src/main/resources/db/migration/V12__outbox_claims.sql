@@ -0,0 +1,4 @@
+-- A node claims a user's pending events before evaluating them, so two nodes never handle the same
+-- user at once; a claim whose lease has run out (the node died) can be taken over
+alter table outbox_events add column claimed_by varchar(64);
+alter table outbox_events add column claimed_until datetime(6);
@@ -0,0 +1,5 @@
+-- The node running an import and when it last reported the job alive, so a node restarting or
+-- sweeping for dead imports only fails its own jobs and ones whose node has stopped
+alter table import_jobs add column node_id varchar(64);
+alter table import_jobs add column heartbeat_at datetime(6);
+create index idx_import_jobs_status_node on import_jobs (status, node_id);
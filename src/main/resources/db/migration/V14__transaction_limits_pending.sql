@@ -0,0 +1,5 @@
+-- Expenses dated in the future when saved are not in any spending limit counter yet. The daily rollover
+-- adds them once their date comes and clears the flag; the index keeps that lookup off the full table.
+alter table transactions add column limits_pending boolean not null default false;
+create index idx_transactions_limits_pending_date on transactions (limits_pending, date);
+update transactions set limits_pending = true where type = 'EXPENSE' and date > current_date;
@@ -0,0 +1,3 @@
+-- Optimistic locking for import jobs: a worker's progress save can no longer overwrite a job another
+-- node has meanwhile marked failed
+alter table import_jobs add column version bigint not null default 0;
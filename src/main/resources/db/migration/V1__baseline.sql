@@ -0,0 +1,101 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Existing databases are baselined at this version and skip it.
+
+create table users (
+    id bigint not null auto_increment,
+    email varchar(255) not null,
+    first_name varchar(255) not null,
+    last_name varchar(255) not null,
+    password varchar(255) not null,
+    photo longblob,
+    primary key (id)
+) engine=InnoDB;
+
+create table roles (
+    id bigint not null auto_increment,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table user_roles (
+    role_id bigint not null,
+    user_id bigint not null,
+    primary key (role_id, user_id)
+) engine=InnoDB;
+
+create table categories (
+    is_default bit not null,
+    id bigint not null auto_increment,
+    user_id bigint,
+    color varchar(255),
+    description varchar(255),
+    icon varchar(255),
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table transactions (
+    amount decimal(38,2) not null,
+    date date not null,
+    category_id bigint,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    description varchar(255) not null,
+    type enum ('EXPENSE','INCOME') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table goals (
+    completed bit not null,
+    current_amount decimal(19,2) not null,
+    deadline date,
+    start_date date not null,
+    target_amount decimal(19,2) not null,
+    created_at datetime(6) not null,
+    id bigint not null auto_increment,
+    updated_at datetime(6) not null,
+    user_id bigint not null,
+    icon varchar(255) not null,
+    name varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table notifications (
+    is_read bit not null,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    related_entity_id bigint,
+    user_id bigint not null,
+    message varchar(500) not null,
+    related_entity_type varchar(255),
+    title varchar(255) not null,
+    type enum ('BUDGET_ALERT','GENERAL','SPENDING_LIMIT_EXCEEDED','SPENDING_LIMIT_WARNING','TRANSACTION_ALERT') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table spending_limits (
+    current_spent decimal(10,2) not null,
+    is_active bit not null,
+    limit_amount decimal(10,2) not null,
+    notification_threshold decimal(5,2),
+    category_id bigint,
+    created_at datetime(6),
+    id bigint not null auto_increment,
+    updated_at datetime(6),
+    user_id bigint not null,
+    period enum ('DAILY','MONTHLY','WEEKLY','YEARLY') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table roles add constraint UKofx66keruapi6vyqpv6f2or37 unique (name);
+alter table users add constraint UK6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table categories add constraint FKghuylkwuedgl2qahxjt8g41kb foreign key (user_id) references users (id);
+alter table goals add constraint FKb1mp6ulyqkpcw6bc1a2mr7v1g foreign key (user_id) references users (id);
+alter table notifications add constraint FK9y21adhxn0ayjhfocscqox7bh foreign key (user_id) references users (id);
+alter table spending_limits add constraint FKo4l5085kj6w1i76l3fw0xs2kp foreign key (category_id) references categories (id);
+alter table spending_limits add constraint FK8vkw4gl3gj0retlxirgi3l24r foreign key (user_id) references users (id);
+alter table transactions add constraint FKsqqi7sneo04kast0o138h19mv foreign key (category_id) references categories (id);
+alter table transactions add constraint FKqwv7rmvc8va8rep7piikrojds foreign key (user_id) references users (id);
+alter table user_roles add constraint FKh8ciramu9cc9q3qcqiv4ue8a6 foreign key (role_id) references roles (id);
+alter table user_roles add constraint FKhfh9dx7w3ubf1co1vdev94g3f foreign key (user_id) references users (id);
@@ -0,0 +1,17 @@
+-- Profile photos move to the content-addressed store; the legacy blob column is
+-- emptied by LegacyPhotoMigrator at startup and can be dropped once that has run everywhere.
+alter table users add column photo_hash varchar(64);
+
+-- Monthly totals per user/category/type; filled by TransactionRollupBackfill on first start
+create table transaction_rollups (
+    month_start date not null,
+    total_amount decimal(19,2) not null,
+    category_id bigint not null,
+    id bigint not null auto_increment,
+    tx_count bigint not null,
+    user_id bigint not null,
+    type enum ('EXPENSE','INCOME') not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table transaction_rollups add constraint uk_transaction_rollups_key unique (user_id, month_start, category_id, type);
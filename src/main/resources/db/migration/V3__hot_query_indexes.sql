@@ -0,0 +1,17 @@
+-- Composite indexes for the query shapes in TransactionRepository, NotificationRepository
+-- and SpendingLimitRepository. Each leads with user_id so it also serves the user_id foreign key.
+
+-- Listing, keyset pagination and date-range reads, ordered by (date, id)
+create index idx_transactions_user_date on transactions (user_id, date);
+-- Per-type sums and type-filtered reports over a date range
+create index idx_transactions_user_type_date on transactions (user_id, type, date);
+-- Category spending for a limit's period and category-filtered reports
+create index idx_transactions_user_category_type_date on transactions (user_id, category_id, type, date);
+
+-- Notification list and recent notifications, newest first
+create index idx_notifications_user_created on notifications (user_id, created_at);
+-- Unread list and unread badge count
+create index idx_notifications_user_read_created on notifications (user_id, is_read, created_at);
+
+-- Active limits for a user, per category or global (category_id IS NULL)
+create index idx_spending_limits_user_active_category on spending_limits (user_id, is_active, category_id);
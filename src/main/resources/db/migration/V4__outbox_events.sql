@@ -0,0 +1,11 @@
+-- Transactional outbox: rows are written with the change and deleted once a worker has handled them
+create table outbox_events (
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    event_type varchar(64) not null,
+    created_at datetime(6) not null,
+    primary key (id)
+) engine=InnoDB;
+
+-- Grouping pending events per user and deleting a user's handled range
+create index idx_outbox_events_type_user on outbox_events (event_type, user_id, id);
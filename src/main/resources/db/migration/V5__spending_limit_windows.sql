@@ -0,0 +1,5 @@
+-- current_spent becomes a counter maintained by atomic deltas within the window starting at period_start.
+-- Existing limits get a NULL period_start and are recomputed once by SpendingLimitRolloverJob.
+alter table spending_limits add column period_start date;
+alter table spending_limits add column evaluated_spent decimal(10,2) not null default 0;
+update spending_limits set evaluated_spent = current_spent;
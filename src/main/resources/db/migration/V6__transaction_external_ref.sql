@@ -0,0 +1,5 @@
+-- Where a transaction came from and, for imports, the provider's reference (e.g. the M-Pesa receipt code).
+-- Manual transactions leave external_ref NULL, which the unique key allows any number of times.
+alter table transactions add column source varchar(32) not null default 'MANUAL';
+alter table transactions add column external_ref varchar(64);
+alter table transactions add constraint uk_transactions_user_source_external_ref unique (user_id, source, external_ref);
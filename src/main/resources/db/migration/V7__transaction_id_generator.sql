@@ -0,0 +1,10 @@
+-- Transaction ids come from a pooled table generator instead of AUTO_INCREMENT so Hibernate can batch inserts.
+-- The generator starts clear of existing ids; its first block is allocated below the stored value.
+create table id_generators (
+    sequence_name varchar(64) not null,
+    next_val bigint,
+    primary key (sequence_name)
+) engine=InnoDB;
+
+insert into id_generators (sequence_name, next_val)
+select 'transactions', coalesce(max(id), 0) + 100 from transactions;
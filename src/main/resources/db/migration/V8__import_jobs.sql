@@ -0,0 +1,20 @@
+-- Background statement imports and their progress
+create table import_jobs (
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    source varchar(32) not null,
+    file_name varchar(255),
+    status varchar(32) not null,
+    parsed_count integer not null,
+    saved_count integer not null,
+    skipped_count integer not null,
+    total_income decimal(19,2) not null,
+    total_expense decimal(19,2) not null,
+    error_message varchar(500),
+    created_at datetime(6) not null,
+    finished_at datetime(6),
+    primary key (id)
+) engine=InnoDB;
+
+alter table import_jobs add constraint fk_import_jobs_user foreign key (user_id) references users (id);
+create index idx_import_jobs_user_created on import_jobs (user_id, created_at);
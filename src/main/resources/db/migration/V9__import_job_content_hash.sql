@@ -0,0 +1,3 @@
+-- SHA-256 of the uploaded statement, so a repeat upload of an imported file can skip parsing
+alter table import_jobs add column content_sha256 varchar(64);
+create index idx_import_jobs_user_hash on import_jobs (user_id, content_sha256);
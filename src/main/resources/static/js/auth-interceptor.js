@@ -36,11 +36,22 @@ document.addEventListener('DOMContentLoaded', function() {
         }
 
         return originalFetch(url, options)
+            .then(response => {
+                // An expired access token is renewed once and the request retried before giving up
+                if (response.status === 401 && token && !options._retried && window.spendeeAuth
+                        && url.startsWith('/api/') && !url.startsWith('/api/auth/')) {
+                    return window.spendeeAuth.refresh().then(refreshed => refreshed
+                        ? window.fetch(url, { ...options, _retried: true })
+                        : response);
+                }
+                return response;
+            })
             .then(response => {
                 // Handle 401/403 responses by clearing JWT token and letting session auth handle it
                 if ((response.status === 401 || response.status === 403) && token) {
                     console.log('[auth-interceptor] JWT token expired or invalid, clearing token');
                     localStorage.removeItem('jwt_token');
+                    localStorage.removeItem('refresh_token');
                     localStorage.removeItem('user_email');
                     document.cookie = 'jwt_token=; path=/; expires=Thu, 01 Jan 1970 00:00:01 GMT;';
 
@@ -67,6 +78,7 @@ document.addEventListener('DOMContentLoaded', function() {
 
             // Clear all authentication data
             localStorage.removeItem('jwt_token');
+            localStorage.removeItem('refresh_token');
             localStorage.removeItem('user_email');
             localStorage.removeItem('user_roles');
             sessionStorage.clear();
@@ -80,6 +80,9 @@ document.addEventListener('DOMContentLoaded', function() {
                 if (data.token) {
                     // JWT login successful
                     localStorage.setItem('jwt_token', data.token);
+                    if (data.data && data.data.refreshToken) {
+                        localStorage.setItem('refresh_token', data.data.refreshToken);
+                    }
                     localStorage.setItem('user_email', emailField.value);
 
                     // Set token as cookie for server-side rendering
@@ -256,6 +259,7 @@ document.addEventListener('DOMContentLoaded', function() {
         notify?.success('You have been logged out successfully');
         // Clear any stored JWT tokens
         localStorage.removeItem('jwt_token');
+        localStorage.removeItem('refresh_token');
         localStorage.removeItem('user_email');
         document.cookie = 'jwt_token=; path=/; expires=Thu, 01 Jan 1970 00:00:01 GMT;';
     }
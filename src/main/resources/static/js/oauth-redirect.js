@@ -19,7 +19,7 @@ window.onload = function() {
         localStorage.setItem('user_email', tokenData.sub);
 
         // Check roles from the token and redirect accordingly
-        const roles = tokenData.roles.split(',');
+        const roles = Array.isArray(tokenData.roles) ? tokenData.roles : String(tokenData.roles || '').split(',');
         localStorage.setItem('user_roles', JSON.stringify(roles));
 
         if (roles.includes('ROLE_ADMIN')) {
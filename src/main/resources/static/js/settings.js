@@ -150,9 +150,11 @@ document.addEventListener('DOMContentLoaded', function() {
             if (data && data.success) {
                 showToast('success', 'Profile updated successfully');
 
-                // Refresh profile images without full reload (cache-bust)
-                const ts = Date.now();
-                const newPhotoUrl = `/api/user/photo?ts=${ts}`;
+                // Tokens name the user by email, so a changed email comes with a fresh pair
+                if (data.tokens && window.spendeeAuth) window.spendeeAuth.store(data.tokens);
+
+                // Refresh profile images without full reload; photo URLs are content-addressed
+                const newPhotoUrl = data.photoUrl || `/api/user/photo?ts=${Date.now()}`;
 
                 // Update preview on settings page
                 const preview = document.getElementById('settings-profile-photo-preview') || document.getElementById('profile-photo-preview');
@@ -0,0 +1,63 @@
+// Keeps the short-lived access token fresh. Shortly before it expires it is exchanged, with the
+// refresh token, for a new pair and stored where API calls (localStorage) and server-rendered pages
+// (the jwt_token cookie) look for it.
+(function() {
+    const REFRESH_MARGIN_MS = 60 * 1000;
+    let timer = null;
+    let inFlight = null;
+
+    function expiresAt(token) {
+        try {
+            const payload = JSON.parse(atob(token.split('.')[1].replace(/-/g, '+').replace(/_/g, '/')));
+            return payload.exp * 1000;
+        } catch (e) {
+            return 0;
+        }
+    }
+
+    function store(tokens) {
+        if (!tokens || !tokens.accessToken) return;
+        localStorage.setItem('jwt_token', tokens.accessToken);
+        if (tokens.refreshToken) localStorage.setItem('refresh_token', tokens.refreshToken);
+        document.cookie = `jwt_token=${tokens.accessToken}; path=/; SameSite=Strict`;
+        schedule();
+    }
+
+    // Resolves to true when a new access token was stored
+    function refresh() {
+        const refreshToken = localStorage.getItem('refresh_token');
+        if (!refreshToken) return Promise.resolve(false);
+        if (!inFlight) {
+            inFlight = fetch('/api/auth/refresh', {
+                method: 'POST',
+                headers: { 'Content-Type': 'application/json' },
+                body: JSON.stringify({ refreshToken })
+            })
+                .then(response => {
+                    if (response.ok) return response.json();
+                    // Expired, or the password or roles changed since it was issued
+                    if (response.status === 401) localStorage.removeItem('refresh_token');
+                    return null;
+                })
+                .then(body => {
+                    if (!body || !body.data) return false;
+                    store(body.data);
+                    return true;
+                })
+                .catch(() => false)
+                .finally(() => { inFlight = null; });
+        }
+        return inFlight;
+    }
+
+    function schedule() {
+        clearTimeout(timer);
+        const token = localStorage.getItem('jwt_token');
+        if (!token || !localStorage.getItem('refresh_token')) return;
+        const delay = expiresAt(token) - Date.now() - REFRESH_MARGIN_MS;
+        timer = setTimeout(refresh, Math.max(delay, 0));
+    }
+
+    window.spendeeAuth = { store, refresh };
+    schedule();
+})();
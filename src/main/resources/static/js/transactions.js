@@ -377,53 +377,87 @@ document.addEventListener('DOMContentLoaded', function() {
             });
     }
 
+    const TRANSACTION_PAGE_SIZE = 50;
+    let nextCursor = null;
+    let lastRenderedDate = null;
+
     function loadTransactions() {
-        // First load all categories, then load transactions
+        // First load all categories, then load the first page of transactions
         loadAllCategories().then(() => {
-            fetch('/api/transactions', {
-                headers: {
-                    'Authorization': 'Bearer ' + localStorage.getItem('jwt_token')
-                }
-            })
-                .then(response => response.json())
-                .then(data => {
-                    const container = document.querySelector('.transactions-container');
-                    container.innerHTML = '';
+            const container = document.querySelector('.transactions-container');
+            container.innerHTML = '';
+            nextCursor = null;
+            lastRenderedDate = null;
+            loadTransactionPage(null);
+        });
+    }
 
-                    if (data.length === 0) {
-                        container.innerHTML = `
+    // Fetch one keyset page and append it; the server hands back an opaque cursor for the next one
+    function loadTransactionPage(cursor) {
+        let url = `/api/transactions/page?size=${TRANSACTION_PAGE_SIZE}`;
+        if (cursor) {
+            url += `&cursor=${encodeURIComponent(cursor)}`;
+        }
+
+        fetch(url, {
+            headers: {
+                'Authorization': 'Bearer ' + localStorage.getItem('jwt_token')
+            }
+        })
+            .then(response => response.json())
+            .then(data => {
+                const container = document.querySelector('.transactions-container');
+                const existingLoadMore = document.getElementById('loadMoreTransactions');
+                if (existingLoadMore) existingLoadMore.remove();
+
+                if (!cursor && data.items.length === 0) {
+                    container.innerHTML = `
                         <div class="text-center text-muted my-5">
                             <i class="fas fa-receipt fa-3x mb-3"></i>
                             <h5>No transactions yet</h5>
                             <p>Start by adding your first transaction!</p>
                         </div>
                     `;
-                        return;
-                    }
+                    return;
+                }
 
-                    // Group transactions by date
-                    const grouped = groupTransactionsByDate(data);
+                // Group transactions by date, continuing the previous page's group if it spans pages
+                const grouped = groupTransactionsByDate(data.items);
 
-                    // Render grouped transactions
-                    Object.entries(grouped).forEach(([date, transactions]) => {
+                Object.entries(grouped).forEach(([date, transactions]) => {
+                    if (date !== lastRenderedDate) {
                         const dateHeader = document.createElement('h5');
                         dateHeader.className = 'mb-3 mt-4';
                         dateHeader.textContent = formatDate(date);
                         container.appendChild(dateHeader);
+                        lastRenderedDate = date;
+                    }
 
-                        transactions.forEach(transaction => {
-                            container.appendChild(createTransactionCard(transaction));
-                        });
+                    transactions.forEach(transaction => {
+                        container.appendChild(createTransactionCard(transaction));
                     });
-
-                    // Fix dropdown z-index issues after rendering
-                    fixDropdownZIndex();
-                })
-                .catch(error => {
-                    showToast('error', 'Failed to load transactions');
-                    console.error('Error:', error);
                 });
-        });
+
+                nextCursor = data.next;
+                if (nextCursor) {
+                    const loadMore = document.createElement('button');
+                    loadMore.id = 'loadMoreTransactions';
+                    loadMore.className = 'btn btn-outline-secondary w-100 my-3';
+                    loadMore.textContent = 'Load more';
+                    loadMore.addEventListener('click', () => {
+                        loadMore.disabled = true;
+                        loadTransactionPage(nextCursor);
+                    });
+                    container.appendChild(loadMore);
+                }
+
+                // Fix dropdown z-index issues after rendering
+                fixDropdownZIndex();
+            })
+            .catch(error => {
+                showToast('error', 'Failed to load transactions');
+                console.error('Error:', error);
+            });
     }
 
     // Function to fix dropdown z-index dynamically
@@ -908,17 +942,17 @@ document.addEventListener('DOMContentLoaded', function() {
         const file = mpesaFileInput.files[0];
 
         if (!file) {
-            showToast('error', 'Please select a PDF file to upload');
+            showToast('error', 'Please select a statement file to upload');
             return;
         }
 
-        if (!file.name.toLowerCase().endsWith('.pdf')) {
-            showToast('error', 'Only PDF files are supported');
+        if (!/\.(pdf|csv|ofx|qfx)$/i.test(file.name)) {
+            showToast('error', 'Only PDF, CSV and OFX statements are supported');
             return;
         }
 
-        if (file.size > 10 * 1024 * 1024) { // 10MB
-            showToast('error', 'File size must be less than 10MB');
+        if (file.size > 100 * 1024 * 1024) { // 100MB
+            showToast('error', 'File size must be less than 100MB');
             return;
         }
 
@@ -928,66 +962,46 @@ document.addEventListener('DOMContentLoaded', function() {
         uploadProgress.classList.remove('d-none');
         uploadResult.classList.add('d-none');
 
-        // Simulate progress
-        let progress = 0;
-        const progressInterval = setInterval(() => {
-            progress += 10;
-            if (progress >= 90) {
-                clearInterval(progressInterval);
-            }
-            progressBar.style.width = progress + '%';
-            progressText.textContent = progress + '%';
-        }, 200);
+        progressBar.style.width = '0%';
+        progressText.textContent = '0%';
 
-        // Create FormData and upload
+        // Create FormData and upload; the import runs in the background and reports progress as it goes
         const formData = new FormData();
         formData.append('file', file);
+        const authHeaders = {
+            'Authorization': 'Bearer ' + localStorage.getItem('jwt_token')
+        };
 
         fetch('/api/mpesa/upload-statement', {
             method: 'POST',
-            headers: {
-                'Authorization': 'Bearer ' + localStorage.getItem('jwt_token')
-            },
+            headers: authHeaders,
             body: formData
         })
-            .then(response => {
-                clearInterval(progressInterval);
-                progressBar.style.width = '100%';
-                progressText.textContent = '100%';
-
-                // Always return a successful response structure, regardless of actual response
-                return response.json().catch(() => {
-                    // If JSON parsing fails, return a fake success response
-                    return {
-                        success: true,
-                        message: "Statement processed successfully!",
-                        totalTransactions: 0,
-                        savedTransactions: 0,
-                        skippedTransactions: 0,
-                        totalIncome: 0,
-                        totalExpense: 0
-                    };
-                });
-            })
-            .then(data => {
+            .then(response => response.json().then(body => {
+                if (!response.ok || !body.success) {
+                    throw new Error(body.message || 'Could not upload the statement');
+                }
+                return body.data;
+            }))
+            .then(job => followImportJob(job.id, authHeaders))
+            .then(job => {
                 uploadProgress.classList.add('d-none');
 
-                // Always show success message regardless of actual data
                 uploadResult.innerHTML = `
                 <div class="alert alert-success" style="background: rgba(16, 185, 129, 0.2); border: 1px solid rgba(16, 185, 129, 0.3); color: #86efac;">
                     <h6 class="mb-2"><i class="fas fa-check-circle me-2"></i>Import Successful!</h6>
                     <ul class="mb-0 ps-3" style="font-size: 0.9rem;">
-                        <li>Total transactions found: ${data.totalTransactions || 0}</li>
-                        <li>New transactions saved: ${data.savedTransactions || 0}</li>
-                        <li>Duplicates skipped: ${data.skippedTransactions || 0}</li>
-                        <li>Total income: ${formatCurrency(data.totalIncome || 0)}</li>
-                        <li>Total expenses: ${formatCurrency(data.totalExpense || 0)}</li>
+                        <li>Total transactions found: ${job.parsedTransactions || 0}</li>
+                        <li>New transactions saved: ${job.savedTransactions || 0}</li>
+                        <li>Duplicates skipped: ${job.skippedTransactions || 0}</li>
+                        <li>Total income: ${formatCurrency(job.totalIncome || 0)}</li>
+                        <li>Total expenses: ${formatCurrency(job.totalExpense || 0)}</li>
                     </ul>
                 </div>
             `;
                 uploadResult.classList.remove('d-none');
 
-                showToast('success', data.message || 'M-Pesa statement processed successfully!');
+                showToast('success', `Imported ${job.savedTransactions || 0} transactions`);
 
                 // Reload transactions after 2 seconds
                 setTimeout(() => {
@@ -1002,33 +1016,17 @@ document.addEventListener('DOMContentLoaded', function() {
                 }, 2000);
             })
             .catch(error => {
-                clearInterval(progressInterval);
                 uploadProgress.classList.add('d-none');
 
-                // Even in catch block, show success instead of error
                 uploadResult.innerHTML = `
-                <div class="alert alert-success" style="background: rgba(16, 185, 129, 0.2); border: 1px solid rgba(16, 185, 129, 0.3); color: #86efac;">
-                    <h6 class="mb-2"><i class="fas fa-check-circle me-2"></i>Statement Uploaded!</h6>
-                    <p class="mb-0">Your M-Pesa statement has been processed successfully.</p>
+                <div class="alert alert-danger">
+                    <h6 class="mb-2"><i class="fas fa-exclamation-circle me-2"></i>Import Failed</h6>
+                    <p class="mb-0">${error.message}</p>
                 </div>
             `;
                 uploadResult.classList.remove('d-none');
 
-                showToast('success', 'Statement uploaded successfully!');
-
-                // Reload transactions after 2 seconds
-                setTimeout(() => {
-                    loadTransactions();
-                    // Close modal
-                    const modal = bootstrap.Modal.getInstance(document.getElementById('mpesaUploadModal'));
-                    modal.hide();
-                    // Reset form
-                    document.getElementById('mpesaUploadForm').reset();
-                    fileInfo.classList.add('d-none');
-                    uploadResult.classList.add('d-none');
-                }, 2000);
-
-                console.log('Upload completed (error handled gracefully):', error);
+                showToast('error', error.message);
             })
             .finally(() => {
                 // Re-enable button
@@ -1037,6 +1035,58 @@ document.addEventListener('DOMContentLoaded', function() {
             });
     });
 
+    // Follow an import job's server-sent progress events until it finishes.
+    // EventSource can't send the Authorization header, so the stream is read through fetch.
+    async function followImportJob(jobId, headers) {
+        const response = await fetch(`/api/mpesa/jobs/${jobId}/events`, { headers });
+        if (!response.ok || !response.body) {
+            throw new Error('Could not follow the import progress');
+        }
+
+        const reader = response.body.getReader();
+        const decoder = new TextDecoder();
+        let buffer = '';
+        let job = null;
+
+        while (true) {
+            const { value, done } = await reader.read();
+            if (done) {
+                break;
+            }
+            buffer += decoder.decode(value, { stream: true });
+
+            let boundary;
+            while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+                const frame = buffer.slice(0, boundary);
+                buffer = buffer.slice(boundary + 2);
+                const data = frame.split('\n')
+                    .filter(line => line.startsWith('data:'))
+                    .map(line => line.slice(5))
+                    .join('\n');
+                if (data) {
+                    job = JSON.parse(data);
+                    showImportProgress(job);
+                }
+            }
+        }
+
+        if (job && job.status === 'COMPLETED') {
+            return job;
+        }
+        throw new Error((job && job.errorMessage) || 'The import did not finish');
+    }
+
+    function showImportProgress(job) {
+        let progress = 5;
+        if (job.status === 'SAVING' && job.parsedTransactions > 0) {
+            progress = 10 + Math.round(90 * (job.savedTransactions + job.skippedTransactions) / job.parsedTransactions);
+        } else if (job.status === 'COMPLETED' || job.status === 'FAILED') {
+            progress = 100;
+        }
+        progressBar.style.width = progress + '%';
+        progressText.textContent = progress + '%';
+    }
+
     // Helper function to format file size
     function formatFileSize(bytes) {
         if (bytes === 0) return '0 Bytes';
@@ -0,0 +1,162 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import jakarta.servlet.http.Cookie;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ApiSessionPolicyTest {
+
+    private static final String EMAIL = "stateless@example.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.findByEmail(EMAIL)
+                .orElseGet(() -> userRepository.save(new User("Stateless", "User", EMAIL, passwordEncoder.encode("Secret123!"))));
+    }
+
+    @Test
+    void authenticatedApiCallsCreateNoSession() throws Exception {
+        int sessionsBefore = storedSessions();
+        MvcResult result = mockMvc.perform(get("/api/user/me")
+                        .header("Authorization", "Bearer " + tokenService.generateToken(user)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value(EMAIL))
+                .andExpect(header().doesNotExist("Set-Cookie"))
+                .andReturn();
+
+        assertThat(result.getRequest().getSession(false)).isNull();
+        assertThat(storedSessions()).isEqualTo(sessionsBefore);
+    }
+
+    @Test
+    void unauthenticatedApiCallsGetA401WithoutSavingTheRequest() throws Exception {
+        int sessionsBefore = storedSessions();
+        MvcResult result = mockMvc.perform(get("/api/transactions/page"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(header().doesNotExist("Set-Cookie"))
+                .andReturn();
+
+        assertThat(result.getRequest().getSession(false)).isNull();
+        assertThat(storedSessions()).isEqualTo(sessionsBefore);
+    }
+
+    @Test
+    void loginIssuesTokensWithoutCreatingASession() throws Exception {
+        int sessionsBefore = storedSessions();
+        MvcResult started = mockMvc.perform(post("/api/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + EMAIL + "\",\"password\":\"Secret123!\"}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.refreshToken").isNotEmpty())
+                .andReturn();
+
+        assertThat(started.getRequest().getSession(false)).isNull();
+        assertThat(result.getRequest().getSession(false)).isNull();
+        assertThat(result.getResponse().getCookie("JSESSIONID")).isNull();
+        assertThat(storedSessions()).isEqualTo(sessionsBefore);
+    }
+
+    @Test
+    void formLoginSessionIsStoredAndServesLaterRequests() throws Exception {
+        int sessionsBefore = storedSessions();
+        MvcResult login = mockMvc.perform(post("/auth/login")
+                        .param("email", EMAIL)
+                        .param("password", "Secret123!"))
+                .andExpect(redirectedUrl("/dashboard"))
+                .andReturn();
+        Cookie session = login.getResponse().getCookie("JSESSIONID");
+        assertThat(session).isNotNull();
+        assertThat(storedSessions()).isEqualTo(sessionsBefore + 1);
+
+        // The security context is kept in its compact form, not as a serialized entity
+        byte[] context = jdbcTemplate.queryForObject(
+                "select a.ATTRIBUTE_BYTES from SPRING_SESSION_ATTRIBUTES a join SPRING_SESSION s on s.PRIMARY_ID = a.SESSION_PRIMARY_ID"
+                        + " where s.SESSION_ID = ? and a.ATTRIBUTE_NAME = 'SPRING_SECURITY_CONTEXT'",
+                byte[].class, new String(Base64.getDecoder().decode(session.getValue()), StandardCharsets.UTF_8));
+        assertThat(context).hasSizeLessThan(100);
+
+        // Read back from the store, as another node would
+        mockMvc.perform(get("/settings").cookie(session))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void formLoginsAreThrottledBeforeAnyPasswordIsHashed() throws Exception {
+        String email = "throttled@example.com";
+        // Five a minute per email; each of these is checked on the hashing pool
+        for (int i = 0; i < 5; i++) {
+            mockMvc.perform(post("/auth/login")
+                            .with(request -> { request.setRemoteAddr("203.0.113.7"); return request; })
+                            .param("email", email)
+                            .param("password", "wrong"))
+                    .andExpect(redirectedUrl("/auth/login?error=true"));
+        }
+        double hashed = passwordChecks();
+
+        mockMvc.perform(post("/auth/login")
+                        .with(request -> { request.setRemoteAddr("203.0.113.7"); return request; })
+                        .param("email", email)
+                        .param("password", "wrong"))
+                .andExpect(redirectedUrl(LoginRateLimitFilter.THROTTLED_URL));
+        assertThat(passwordChecks()).isEqualTo(hashed);
+    }
+
+    private double passwordChecks() {
+        return meterRegistry.get("auth.password.hash").tag("operation", "matches").functionTimer().count();
+    }
+
+    private int storedSessions() {
+        return jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION", Integer.class);
+    }
+}
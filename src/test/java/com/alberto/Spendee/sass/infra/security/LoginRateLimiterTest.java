@@ -0,0 +1,46 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LoginRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        limiter = new LoginRateLimiter();
+        ReflectionTestUtils.setField(limiter, "perIpPerMinute", 4);
+        ReflectionTestUtils.setField(limiter, "perEmailPerMinute", 2);
+        limiter.nanoClock = now::get;
+    }
+
+    @Test
+    void emailBucketEmptiesWhateverTheAddressAndRefillsOverTime() {
+        assertThat(limiter.tryAcquire("10.0.0.1", "jane@example.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.2", " Jane@Example.com ")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.3", "jane@example.com")).isFalse();
+        assertThat(limiter.tryAcquire("10.0.0.3", "mark@example.com")).isTrue();
+
+        // Two a minute: one token back after thirty seconds
+        now.addAndGet(TimeUnit.SECONDS.toNanos(30));
+        assertThat(limiter.tryAcquire("10.0.0.4", "jane@example.com")).isTrue();
+        assertThat(limiter.tryAcquire("10.0.0.4", "jane@example.com")).isFalse();
+    }
+
+    @Test
+    void addressBucketLimitsAttemptsAcrossEmails() {
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire("10.0.0.1", "user" + i + "@example.com")).isTrue();
+        }
+        assertThat(limiter.tryAcquire("10.0.0.1", "user9@example.com")).isFalse();
+        assertThat(limiter.tryAcquire("10.0.0.2", "user9@example.com")).isTrue();
+    }
+}
@@ -0,0 +1,176 @@
+package com.alberto.Spendee.sass.infra.security;
+
+import com.alberto.Spendee.sass.domain.role.Role;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.AuthTokensDto;
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.algorithms.Algorithm;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenServiceTest {
+
+    private static final String SECRET = "test-secret";
+
+    private TokenService tokenService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        tokenService = new TokenService(SECRET);
+
+        user = new User();
+        user.setId(42L);
+        user.setEmail("jane@example.com");
+        user.setRoles(Set.of(new Role("ROLE_USER"), new Role("ROLE_ADMIN")));
+        user.bumpTokenVersion();
+    }
+
+    @Test
+    void accessTokenCarriesEverythingAuthenticationNeeds() {
+        AuthTokensDto tokens = tokenService.issueTokens(user);
+
+        User principal = tokenService.principalOf(tokenService.decodeToken(tokens.accessToken()));
+
+        assertThat(principal.getId()).isEqualTo(42L);
+        assertThat(principal.getEmail()).isEqualTo("jane@example.com");
+        assertThat(principal.getTokenVersion()).isEqualTo(1);
+        assertThat(principal.getAuthorities())
+                .extracting(Object::toString)
+                .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+        assertThat(tokens.expiresIn()).isEqualTo(Duration.ofMinutes(15).toSeconds());
+    }
+
+    @Test
+    void accessAndRefreshTokensAreNotInterchangeable() {
+        AuthTokensDto tokens = tokenService.issueTokens(user);
+
+        assertThat(tokenService.decodeToken(tokens.refreshToken())).isNull();
+        assertThat(tokenService.decodeRefreshToken(tokens.accessToken())).isNull();
+        assertThat(tokenService.decodeRefreshToken(tokens.refreshToken()).getClaim("ver").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsExpiredForgedAndVersionlessTokens() {
+        ReflectionTestUtils.setField(tokenService, "accessTtl", Duration.ofSeconds(-1));
+        assertThat(tokenService.decodeToken(tokenService.generateToken(user))).isNull();
+
+        String forged = JWT.create()
+                .withIssuer("Spendee")
+                .withSubject(user.getEmail())
+                .withClaim("typ", "access")
+                .withClaim("id", 1L)
+                .withClaim("ver", 0)
+                .withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256("some-other-secret"));
+        assertThat(tokenService.decodeToken(forged)).isNull();
+
+        // Tokens issued before versions existed must not authenticate
+        String legacy = JWT.create()
+                .withIssuer("Spendee")
+                .withSubject(user.getEmail())
+                .withClaim("typ", "access")
+                .withClaim("id", 42L)
+                .withExpiresAt(Instant.now().plusSeconds(60))
+                .sign(Algorithm.HMAC256(SECRET));
+        assertThat(tokenService.decodeToken(legacy)).isNull();
+        assertThat(tokenService.decodeToken(null)).isNull();
+    }
+
+    @Test
+    void repeatPresentationsAreServedFromTheCaches() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        tokenService.registerMetrics(registry);
+        String token = tokenService.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        var first = tokenService.decodeToken(token);
+        assertThat(tokenService.decodeToken(token)).isSameAs(first);
+        assertThat(tokenService.decodeToken(tampered)).isNull();
+        assertThat(tokenService.decodeToken(tampered)).isNull();
+
+        assertThat(registry.get("auth.token.cache.hits").tag("result", "valid").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("auth.token.cache.hits").tag("result", "invalid").functionCounter().count()).isEqualTo(1);
+        assertThat(registry.get("auth.token.cache.misses").functionCounter().count()).isEqualTo(2);
+        assertThat(registry.get("auth.token.verify").functionTimer().count()).isEqualTo(2);
+        assertThat(tokenService.verifiedCacheSize()).isEqualTo(1);
+        assertThat(tokenService.rejectedCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void cachedTokensAreNotServedPastTheirExpiry() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        tokenService = new TokenService(SECRET, clock);
+        String token = tokenService.generateToken(user);
+        assertThat(tokenService.decodeToken(token)).isNotNull();
+
+        clock.advance(Duration.ofMinutes(14));
+        assertThat(tokenService.decodeToken(token)).isNotNull();
+
+        clock.advance(Duration.ofMinutes(2));
+        assertThat(tokenService.decodeToken(token)).isNull();
+        assertThat(tokenService.verifiedCacheSize()).isZero();
+    }
+
+    @Test
+    void tokensNotYetValidAreNotRememberedAsRejected() {
+        MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+        tokenService = new TokenService(SECRET, clock);
+        // Issued by a node whose clock runs a few seconds ahead
+        String early = JWT.create()
+                .withIssuer("Spendee")
+                .withSubject(user.getEmail())
+                .withClaim("typ", "access")
+                .withClaim("id", 42L)
+                .withClaim("ver", 1)
+                .withIssuedAt(clock.instant().plusSeconds(5))
+                .withNotBefore(clock.instant().plusSeconds(5))
+                .withExpiresAt(clock.instant().plus(Duration.ofMinutes(15)))
+                .sign(Algorithm.HMAC256(SECRET));
+
+        assertThat(tokenService.decodeToken(early)).isNull();
+        assertThat(tokenService.rejectedCacheSize()).isZero();
+
+        clock.advance(Duration.ofSeconds(10));
+        assertThat(tokenService.decodeToken(early)).isNotNull();
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
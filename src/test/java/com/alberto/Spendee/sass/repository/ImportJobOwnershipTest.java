@@ -0,0 +1,106 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJob;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks that a node restarting or sweeping for dead imports leaves other nodes' running jobs alone,
+ * and that a job it fails stays failed
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class ImportJobOwnershipTest {
+
+    private static final Set<ImportJobStatus> UNFINISHED =
+            EnumSet.of(ImportJobStatus.QUEUED, ImportJobStatus.PARSING, ImportJobStatus.SAVING);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    private User user;
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "jobs@example.com", "secret"));
+    }
+
+    @Test
+    void restartFailsOnlyThisNodesJobs() {
+        Long own = job("node-a", ImportJobStatus.PARSING, now);
+        Long other = job("node-b", ImportJobStatus.SAVING, now);
+
+        assertThat(importJobRepository.failUnfinishedOnNode("node-a", UNFINISHED, "restarted", now)).isEqualTo(1);
+
+        assertThat(status(own)).isEqualTo(ImportJobStatus.FAILED);
+        assertThat(status(other)).isEqualTo(ImportJobStatus.SAVING);
+    }
+
+    @Test
+    void sweepFailsOnlyJobsWhoseHeartbeatStopped() {
+        Long alive = job("node-b", ImportJobStatus.SAVING, now.minusMinutes(10));
+        Long dead = job("node-c", ImportJobStatus.QUEUED, now.minusMinutes(10));
+        Long finished = job("node-c", ImportJobStatus.COMPLETED, now.minusMinutes(10));
+
+        importJobRepository.heartbeat("node-b", UNFINISHED, now);
+        assertThat(importJobRepository.failStale(UNFINISHED, "node stopped", now, now.minusMinutes(5))).isEqualTo(1);
+
+        assertThat(status(alive)).isEqualTo(ImportJobStatus.SAVING);
+        assertThat(status(dead)).isEqualTo(ImportJobStatus.FAILED);
+        assertThat(status(finished)).isEqualTo(ImportJobStatus.COMPLETED);
+    }
+
+    @Test
+    void lateProgressSaveCannotReviveAFailedJob() {
+        Long jobId = job("node-c", ImportJobStatus.SAVING, now.minusMinutes(10));
+        entityManager.clear();
+        ImportJob workerCopy = importJobRepository.findById(jobId).orElseThrow();
+        entityManager.clear();
+
+        // The node's own heartbeat doesn't get in its way
+        importJobRepository.heartbeat("node-c", UNFINISHED, now.minusMinutes(10));
+        workerCopy.setSavedCount(10);
+        workerCopy.setVersion(importJobRepository.saveAndFlush(workerCopy).getVersion());
+        entityManager.clear();
+
+        importJobRepository.failStale(UNFINISHED, "node stopped", now, now.minusMinutes(5));
+        entityManager.clear();
+        workerCopy.setSavedCount(20);
+        assertThatThrownBy(() -> importJobRepository.saveAndFlush(workerCopy))
+                .isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(status(jobId)).isEqualTo(ImportJobStatus.FAILED);
+    }
+
+    private Long job(String nodeId, ImportJobStatus status, LocalDateTime heartbeatAt) {
+        ImportJob job = new ImportJob(user.getId(), TransactionSource.MPESA, "statement.pdf");
+        job.setNodeId(nodeId);
+        job.setStatus(status);
+        job.setHeartbeatAt(heartbeatAt);
+        return entityManager.persistAndFlush(job).getId();
+    }
+
+    private ImportJobStatus status(Long jobId) {
+        entityManager.clear();
+        return entityManager.find(ImportJob.class, jobId).getStatus();
+    }
+}
@@ -0,0 +1,66 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.outbox.OutboxEvent;
+import com.alberto.Spendee.sass.domain.outbox.PendingOutboxEvents;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that two nodes draining the outbox never both hold a user's events
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class OutboxEventClaimTest {
+
+    private static final String TYPE = OutboxEvent.TRANSACTIONS_CHANGED;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private OutboxEventRepository outboxEventRepository;
+
+    @Test
+    void claimedUsersAreHiddenFromOtherNodesUntilTheLeaseRunsOut() {
+        LocalDateTime now = LocalDateTime.now();
+        Long first = entityManager.persist(new OutboxEvent(1L, TYPE)).getId();
+        Long last = entityManager.persist(new OutboxEvent(1L, TYPE)).getId();
+        Long other = entityManager.persist(new OutboxEvent(2L, TYPE)).getId();
+
+        assertThat(outboxEventRepository.claim(TYPE, 1L, last, "node-a", now, now.plusMinutes(5))).isEqualTo(2);
+        entityManager.clear();
+
+        // Node b neither sees user 1 nor can claim their events
+        assertThat(outboxEventRepository.findPendingByUser(TYPE, now, Limit.of(10)))
+                .containsExactly(new PendingOutboxEvents(2L, other));
+        assertThat(outboxEventRepository.claim(TYPE, 1L, last, "node-b", now, now.plusMinutes(5))).isZero();
+        assertThat(outboxEventRepository.countClaimedByOthers(TYPE, 1L, "node-b", now)).isEqualTo(2);
+        assertThat(outboxEventRepository.countClaimedByOthers(TYPE, 1L, "node-a", now)).isZero();
+
+        // A newer event node b claims alone still shows node a's claim, so node b backs off
+        Long newer = entityManager.persist(new OutboxEvent(1L, TYPE)).getId();
+        assertThat(outboxEventRepository.claim(TYPE, 1L, newer, "node-b", now, now.plusMinutes(5))).isEqualTo(1);
+        assertThat(outboxEventRepository.countClaimedByOthers(TYPE, 1L, "node-b", now)).isEqualTo(2);
+        outboxEventRepository.release(TYPE, 1L, "node-b");
+
+        // Only the claiming node deletes what it handled
+        assertThat(outboxEventRepository.deleteHandled(TYPE, 1L, last, "node-b")).isZero();
+        assertThat(outboxEventRepository.deleteHandled(TYPE, 1L, last, "node-a")).isEqualTo(2);
+        assertThat(outboxEventRepository.findById(first)).isEmpty();
+
+        // After node a dies its lease expires and node b takes the remaining events over
+        outboxEventRepository.claim(TYPE, 2L, other, "node-a", now, now.plusMinutes(5));
+        LocalDateTime later = now.plusMinutes(6);
+        assertThat(outboxEventRepository.findPendingByUser(TYPE, later, Limit.of(10)))
+                .containsExactly(new PendingOutboxEvents(2L, other), new PendingOutboxEvents(1L, newer));
+        assertThat(outboxEventRepository.claim(TYPE, 2L, other, "node-b", later, later.plusMinutes(5))).isEqualTo(1);
+    }
+}
@@ -0,0 +1,104 @@
+package com.alberto.Spendee.sass.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs EXPLAIN for the hot query shapes against the Flyway-migrated schema and checks that each one
+ * is answered from its composite index rather than a table scan.
+ * The stand-in is H2 in MySQL mode (see application-test.properties); the same statements can be
+ * run through EXPLAIN on a real MySQL instance to compare plans.
+ * ANALYZE commits, so the fixture lives in its own database and is seeded once outside a test transaction.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:explain;MODE=MySQL;DATABASE_TO_LOWER=TRUE")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class QueryIndexExplainTest {
+
+    private static final int USERS = 20;
+    private static final int TRANSACTIONS_PER_USER = 50;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        if (jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Integer.class) > 0) {
+            return;
+        }
+        for (int u = 1; u <= USERS; u++) {
+            jdbcTemplate.update("INSERT INTO users (id, email, first_name, last_name, password) VALUES (?, ?, 'Test', 'User', 'secret')",
+                    u, "user" + u + "@example.com");
+            jdbcTemplate.update("INSERT INTO categories (id, is_default, user_id, name) VALUES (?, false, ?, 'Food')", u, u);
+            jdbcTemplate.update("INSERT INTO spending_limits (current_spent, is_active, limit_amount, user_id, category_id, period) " +
+                    "VALUES (0, true, 100, ?, ?, 'MONTHLY')", u, u);
+            jdbcTemplate.update("INSERT INTO spending_limits (current_spent, is_active, limit_amount, user_id, category_id, period) " +
+                    "VALUES (0, true, 500, ?, NULL, 'MONTHLY')", u);
+            for (int i = 0; i < 4; i++) {
+                // Replaced limits stay behind as inactive rows
+                jdbcTemplate.update("INSERT INTO spending_limits (current_spent, is_active, limit_amount, user_id, category_id, period) " +
+                        "VALUES (0, false, 50, ?, NULL, 'WEEKLY')", u);
+            }
+            jdbcTemplate.update("INSERT INTO notifications (is_read, created_at, user_id, message, title, type) " +
+                    "VALUES (false, CURRENT_TIMESTAMP, ?, 'Message', 'Title', 'GENERAL')", u);
+
+            List<Object[]> rows = new ArrayList<>();
+            for (int i = 0; i < TRANSACTIONS_PER_USER; i++) {
+                rows.add(new Object[]{"10.00", "2025-01-01", i % 2 == 0 ? u : null, u, "Purchase", i % 3 == 0 ? "INCOME" : "EXPENSE"});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO transactions (amount, date, category_id, user_id, description, type) " +
+                    "VALUES (?, DATEADD('DAY', -RAND() * 365, CAST(? AS DATE)), ?, ?, ?, ?)", rows);
+        }
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void monthlyTransactionsUseUserDateIndex() {
+        assertThat(plan("SELECT * FROM transactions WHERE user_id = 7 " +
+                "AND date BETWEEN DATE '2024-06-01' AND DATE '2024-06-30' ORDER BY date DESC, id DESC"))
+                .contains("idx_transactions_user_date");
+    }
+
+    @Test
+    void typeTotalsUseUserTypeDateIndex() {
+        assertThat(plan("SELECT SUM(amount) FROM transactions WHERE user_id = 7 AND type = 'EXPENSE' " +
+                "AND date BETWEEN DATE '2024-06-01' AND DATE '2024-06-30'"))
+                .contains("idx_transactions_user_type_date");
+    }
+
+    @Test
+    void categorySpendingUsesUserCategoryTypeDateIndex() {
+        assertThat(plan("SELECT SUM(amount) FROM transactions WHERE user_id = 7 AND category_id = 7 AND type = 'EXPENSE' " +
+                "AND date BETWEEN DATE '2024-06-01' AND DATE '2024-06-30'"))
+                .contains("idx_transactions_user_category_type_date");
+    }
+
+    @Test
+    void unreadNotificationsUseUserReadIndex() {
+        assertThat(plan("SELECT COUNT(*) FROM notifications WHERE user_id = 7 AND is_read = false"))
+                .contains("idx_notifications_user_read_created");
+    }
+
+    @Test
+    void activeSpendingLimitsAvoidTableScan() {
+        // H2 ties idx_spending_limits_user_active_category with the user_id foreign key index here
+        // (few rows per user, boolean column), so only the absence of a scan is checked
+        assertThat(plan("SELECT * FROM spending_limits WHERE user_id = 7 AND is_active = true"))
+                .doesNotContain("tableScan");
+    }
+
+    private String plan(String sql) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+    }
+}
@@ -0,0 +1,72 @@
+package com.alberto.Spendee.sass.repository;
+
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Checks the set-based import dedupe lookup and the unique (user_id, source, external_ref) key behind it
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class TransactionExternalRefTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User user;
+    private User otherUser;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "import@example.com", "secret"));
+        otherUser = entityManager.persist(new User("Other", "User", "other@example.com", "secret"));
+    }
+
+    @Test
+    void findsOnlyRefsAlreadyImportedByUserFromSource() {
+        save(user, TransactionSource.MPESA, "QAB1CD2EF3");
+        save(user, TransactionSource.MANUAL, "QAB1CD2EF4");
+        save(otherUser, TransactionSource.MPESA, "QAB1CD2EF5");
+        save(user, TransactionSource.MANUAL, null);
+        save(user, TransactionSource.MANUAL, null);
+
+        assertThat(transactionRepository.findExistingExternalRefs(user, TransactionSource.MPESA,
+                List.of("QAB1CD2EF3", "QAB1CD2EF4", "QAB1CD2EF5", "QAB1CD2EF6")))
+                .containsExactly("QAB1CD2EF3");
+    }
+
+    @Test
+    void sameRefCannotBeSavedTwice() {
+        save(user, TransactionSource.MPESA, "QAB1CD2EF3");
+
+        assertThatThrownBy(() -> save(user, TransactionSource.MPESA, "QAB1CD2EF3"))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
+    private void save(User owner, TransactionSource source, String externalRef) {
+        Transaction transaction = new Transaction("Import", new BigDecimal("10.00"), LocalDate.now(),
+                TransactionType.EXPENSE, owner, null);
+        transaction.setSource(source);
+        transaction.setExternalRef(externalRef);
+        transactionRepository.saveAndFlush(transaction);
+    }
+}
@@ -0,0 +1,71 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.dto.CategorizedDescription;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CategoryMatcherTest {
+
+    private static final Long FOOD = 1L;
+    private static final Long TRANSPORT = 2L;
+    private static final Long BILLS = 3L;
+
+    @Test
+    void learnsWordsSeenConsistentlyInOneCategory() {
+        CategoryMatcher matcher = CategoryMatcher.learn(List.of(
+                new CategorizedDescription("Buy Goods - NAIVAS Westlands", FOOD),
+                new CategorizedDescription("Buy Goods - Naivas Karen", FOOD),
+                new CategorizedDescription("UBER *TRIP 8H2K", TRANSPORT),
+                new CategorizedDescription("Uber trip", TRANSPORT),
+                new CategorizedDescription("Pay Bill Online to 888880 - KPLC PREPAID", BILLS),
+                new CategorizedDescription("Pay Bill Online to 888880 - KPLC PREPAID", BILLS)), 2, 0.8, 100);
+
+        assertThat(matcher.categorize("NAIVAS SUPERMARKET, Thika Road")).isEqualTo(FOOD);
+        assertThat(matcher.categorize("uber   trip #22")).isEqualTo(TRANSPORT);
+        assertThat(matcher.categorize("Pay Bill to 888880 - KPLC")).isEqualTo(BILLS);
+        // "buy goods" is only ever food here, but "goods" inside another word doesn't match
+        assertThat(matcher.categorize("Buy Goods - Java House")).isEqualTo(FOOD);
+        assertThat(matcher.categorize("Goodsworth Ltd")).isNull();
+        assertThat(matcher.categorize("Airtime purchase")).isNull();
+    }
+
+    @Test
+    void ambiguousWordsDoNotBecomeRules() {
+        CategoryMatcher matcher = CategoryMatcher.learn(List.of(
+                new CategorizedDescription("Customer Transfer to Jane", FOOD),
+                new CategorizedDescription("Customer Transfer to Mark", TRANSPORT),
+                new CategorizedDescription("Customer Transfer to Jane", FOOD)), 2, 0.8, 100);
+
+        assertThat(matcher.categorize("Customer Transfer to Peter")).isNull();
+        assertThat(matcher.categorize("Customer Transfer to Jane")).isEqualTo(FOOD);
+    }
+
+    @Test
+    void strongestCategoryWinsWhenRulesDisagree() {
+        List<CategorizedDescription> examples = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            examples.add(new CategorizedDescription("Shell fuel station", TRANSPORT));
+        }
+        examples.add(new CategorizedDescription("Java House coffee", FOOD));
+        examples.add(new CategorizedDescription("Java House coffee", FOOD));
+        CategoryMatcher matcher = CategoryMatcher.learn(examples, 2, 0.8, 100);
+
+        assertThat(matcher.categorize("Shell station coffee")).isEqualTo(TRANSPORT);
+    }
+
+    @Test
+    void ruleCountIsCapped() {
+        List<CategorizedDescription> examples = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            examples.add(new CategorizedDescription("merchant" + i, FOOD));
+            examples.add(new CategorizedDescription("merchant" + i, FOOD));
+        }
+
+        assertThat(CategoryMatcher.learn(examples, 2, 0.8, 10).ruleCount()).isEqualTo(10);
+        assertThat(CategoryMatcher.EMPTY.categorize("merchant1")).isNull();
+    }
+}
@@ -0,0 +1,107 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvStatementImporterTest {
+
+    private final CsvStatementImporter importer = new CsvStatementImporter();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void signedAmountColumnWithQuotedFields() throws IOException {
+        List<StatementRowDto> rows = read("""
+                Date,Description,Amount,Reference
+                2025-10-01,"Rent, October",-1500.00,TX1
+                2025-10-02,"Salary ""ACME""
+                Ltd",3000,TX2
+
+                2025-10-03 14:22:05,Coffee,"-4,50",
+                not a date,Ignored,1.00,TX4
+                """);
+
+        assertThat(rows).containsExactly(
+                new StatementRowDto(LocalDate.of(2025, 10, 1), "Rent, October", new BigDecimal("1500.00"), TransactionType.EXPENSE, "TX1"),
+                new StatementRowDto(LocalDate.of(2025, 10, 2), "Salary \"ACME\"\nLtd", new BigDecimal("3000"), TransactionType.INCOME, "TX2"),
+                new StatementRowDto(LocalDate.of(2025, 10, 3), "Coffee", new BigDecimal("4.50"), TransactionType.EXPENSE, null));
+    }
+
+    @Test
+    void debitAndCreditColumnsWithSemicolonsAndBom() throws IOException {
+        List<StatementRowDto> rows = read("\uFEFFBooking date;Narrative;Debit;Credit\r\n"
+                + "01.10.2025;Supermarket;1.234,56;\r\n"
+                + "02.10.2025;Transfer in;;250,00\r\n");
+
+        assertThat(rows).extracting(StatementRowDto::date)
+                .containsExactly(LocalDate.of(2025, 10, 1), LocalDate.of(2025, 10, 2));
+        assertThat(rows).extracting(StatementRowDto::type).containsExactly(TransactionType.EXPENSE, TransactionType.INCOME);
+        assertThat(rows.get(0).amount()).isEqualByComparingTo("1234.56");
+        assertThat(rows.get(1).amount()).isEqualByComparingTo("250.00");
+    }
+
+    @Test
+    void rowsAreFittedToTheTransactionColumns() throws IOException {
+        String longText = "x".repeat(StatementRowDto.MAX_DESCRIPTION_LENGTH + 10);
+        String longRef = "R".repeat(StatementRowDto.MAX_REFERENCE_LENGTH + 1);
+        List<StatementRowDto> rows = read("Date,Description,Amount,Reference\n"
+                + "2025-10-01," + longText + ",-1.00," + longRef + "\n");
+
+        assertThat(rows).singleElement().satisfies(row -> {
+            assertThat(row.description()).hasSize(StatementRowDto.MAX_DESCRIPTION_LENGTH);
+            assertThat(row.externalRef()).isNull();
+        });
+    }
+
+    @Test
+    void fileWithoutAmountColumnIsRejected() {
+        assertThatThrownBy(() -> read("Date,Description\n2025-10-01,Rent\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("amount column");
+    }
+
+    @Test
+    void unterminatedQuoteIsRejectedOnceTheFieldOutgrowsTheCap() {
+        StringBuilder content = new StringBuilder("Date,Description,Amount\n2025-10-01,\"Rent,-1.00\n");
+        for (int i = 0; i < 1000; i++) {
+            content.append("2025-10-02,Coffee,-4.50\n");
+        }
+
+        assertThatThrownBy(() -> read(content.toString()))
+                .isInstanceOf(MpesaStatementParserService.StatementRejectedException.class)
+                .hasMessageContaining("unclosed quote");
+    }
+
+    @Test
+    void amountsInLocalFormats() {
+        assertThat(StatementAmounts.parse("1,234.56")).isEqualByComparingTo("1234.56");
+        assertThat(StatementAmounts.parse("1.234,56")).isEqualByComparingTo("1234.56");
+        assertThat(StatementAmounts.parse("1,234,567")).isEqualByComparingTo("1234567");
+        assertThat(StatementAmounts.parse("(12.50)")).isEqualByComparingTo("-12.50");
+        assertThat(StatementAmounts.parse("KES 1 200")).isEqualByComparingTo("1200");
+        assertThat(StatementAmounts.parse("12345678901234567890.12")).isEqualByComparingTo("12345678901234567890.12");
+        assertThat(StatementAmounts.parse("n/a")).isNull();
+    }
+
+    private List<StatementRowDto> read(String content) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("export.csv"), content, StandardCharsets.UTF_8);
+        List<StatementRowDto> rows = new ArrayList<>();
+        importer.read(file, rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,117 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ImportJobDto;
+import com.alberto.Spendee.sass.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks the repeat-upload shortcut against the database: it holds while the imported rows exist
+ * and stops once they have been deleted, so uploading the file again restores them
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({ImportJobService.class, CsvStatementImporter.class, StatementImportService.class, TransactionService.class,
+        TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class, NotificationService.class,
+        TransactionRollupService.class, OutboxService.class, NodeIdentity.class,
+        ImportJobRepeatUploadTest.InlineImports.class})
+class ImportJobRepeatUploadTest {
+
+    private static final String STATEMENT = """
+            Date,Description,Amount,Reference
+            2026-01-05,Coffee,-4.50,R1
+            2026-01-06,Salary,1000.00,R2
+            """;
+
+    @TestConfiguration
+    static class InlineImports {
+
+        @Bean
+        TaskExecutor importExecutor() {
+            return new SyncTaskExecutor();
+        }
+
+        // Initialized and shut down with the context
+        @Bean
+        TaskScheduler taskScheduler() {
+            return new ThreadPoolTaskScheduler();
+        }
+    }
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ImportJobService importJobService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "reupload@example.com", "secret"));
+    }
+
+    @Test
+    void deletingImportedRowsLetsTheSameFileRestoreThem() throws Exception {
+        assertThat(upload().savedTransactions()).isEqualTo(2);
+
+        ImportJobDto repeat = upload();
+        assertThat(repeat.status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(repeat.skippedTransactions()).isEqualTo(2);
+
+        for (Transaction transaction : imported()) {
+            transactionService.deleteTransaction(transaction.getId(), user);
+        }
+        assertThat(imported()).isEmpty();
+
+        ImportJobDto restored = upload();
+        assertThat(restored.status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(restored.savedTransactions()).isEqualTo(2);
+        assertThat(imported()).extracting(Transaction::getExternalRef).containsExactlyInAnyOrder("R1", "R2");
+
+        // With the rows back, the shortcut applies again
+        assertThat(upload().skippedTransactions()).isEqualTo(2);
+    }
+
+    private ImportJobDto upload() throws Exception {
+        ImportJobDto submitted = importJobService.submitStatement(user,
+                new MockMultipartFile("file", "export.csv", "text/csv", STATEMENT.getBytes(StandardCharsets.UTF_8)));
+        entityManager.flush();
+        entityManager.clear();
+        return importJobService.getJob(submitted.id(), user);
+    }
+
+    private List<Transaction> imported() {
+        entityManager.flush();
+        entityManager.clear();
+        return transactionRepository.findAll().stream()
+                .filter(t -> t.getUser().getId().equals(user.getId()))
+                .toList();
+    }
+}
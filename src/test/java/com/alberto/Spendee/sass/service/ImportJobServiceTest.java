@@ -0,0 +1,216 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.importjob.ImportJob;
+import com.alberto.Spendee.sass.domain.importjob.ImportJobStatus;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ImportJobDto;
+import com.alberto.Spendee.sass.dto.MpesaTransactionDTO;
+import com.alberto.Spendee.sass.dto.StatementImportResult;
+import com.alberto.Spendee.sass.repository.CategoryRepository;
+import com.alberto.Spendee.sass.repository.ImportJobRepository;
+import com.alberto.Spendee.sass.repository.UserRepository;
+import com.alberto.Spendee.sass.service.StatementImportService.ProgressListener;
+import com.alberto.Spendee.sass.service.StatementImportService.RowSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class ImportJobServiceTest {
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private MpesaStatementParserService parserService;
+
+    @Mock
+    private StatementImportService statementImportService;
+
+    @Mock
+    private TransactionCategorizer transactionCategorizer;
+
+    @Mock
+    private NodeIdentity nodeIdentity;
+
+    @InjectMocks
+    private ImportJobService importJobService;
+
+    private final List<Transaction> imported = new ArrayList<>();
+    private final List<ImportJobStatus> savedStatuses = new ArrayList<>();
+    private User user;
+    private ImportJob job;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        job = new ImportJob(1L, TransactionSource.MPESA, "statement.pdf");
+        job.setId(7L);
+        ReflectionTestUtils.setField(importJobService, "importers", List.of(new MpesaStatementImporter(parserService)));
+        Mockito.lenient().when(transactionCategorizer.forUser(user)).thenReturn(CategoryMatcher.EMPTY);
+        Mockito.lenient().when(nodeIdentity.getId()).thenReturn("node-a");
+        Mockito.lenient().when(importJobRepository.save(any(ImportJob.class))).thenAnswer(invocation -> {
+            ImportJob saved = invocation.getArgument(0);
+            saved.setId(7L);
+            savedStatuses.add(saved.getStatus());
+            return saved;
+        });
+    }
+
+    @Test
+    void jobMovesThroughParseAndSaveToCompleted() throws IOException {
+        Path file = Files.createTempFile("statement", ".pdf");
+        Mockito.when(importJobRepository.findById(7L)).thenReturn(Optional.of(job));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(parserService.parseStatement(file)).thenReturn(List.of(
+                new MpesaTransactionDTO(LocalDate.now(), "Airtime", new BigDecimal("50.00"), "EXPENSE", "QAB123", "", null, null)));
+        Mockito.when(statementImportService.importTransactions(eq(user), eq(TransactionSource.MPESA), any(RowSource.class), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<RowSource>getArgument(2).forEach(imported::add);
+                    invocation.<ProgressListener>getArgument(3).onProgress(1, 0);
+                    return new StatementImportResult(1, 0, BigDecimal.ZERO, new BigDecimal("50.00"), 5);
+                });
+
+        importJobService.runImport(7L, file, mpesaImporter());
+
+        assertThat(savedStatuses).containsExactly(ImportJobStatus.PARSING, ImportJobStatus.SAVING, ImportJobStatus.COMPLETED);
+        assertThat(job.getParsedCount()).isEqualTo(1);
+        assertThat(job.getSavedCount()).isEqualTo(1);
+        assertThat(job.getTotalExpense()).isEqualByComparingTo("50.00");
+        assertThat(imported).singleElement().satisfies(t -> {
+            assertThat(t.getDescription()).isEqualTo("Airtime");
+            assertThat(t.getType()).isEqualTo(TransactionType.EXPENSE);
+            assertThat(t.getExternalRef()).isEqualTo("QAB123");
+        });
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void jobFailedByAnotherNodeStopsWithoutBeingOverwritten() throws IOException {
+        Path file = Files.createTempFile("statement", ".pdf");
+        ImportJob failedElsewhere = new ImportJob(1L, TransactionSource.MPESA, "statement.pdf");
+        failedElsewhere.setId(7L);
+        failedElsewhere.setStatus(ImportJobStatus.FAILED);
+        Mockito.when(importJobRepository.findById(7L)).thenReturn(Optional.of(job), Optional.of(failedElsewhere));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(statementImportService.importTransactions(eq(user), eq(TransactionSource.MPESA), any(RowSource.class), any()))
+                .thenAnswer(invocation -> {
+                    // The stale sweep failed the job before this progress save
+                    Mockito.when(importJobRepository.save(any(ImportJob.class)))
+                            .thenThrow(new ObjectOptimisticLockingFailureException(ImportJob.class, 7L));
+                    invocation.<ProgressListener>getArgument(3).onProgress(1, 0);
+                    return null;
+                });
+
+        importJobService.runImport(7L, file, mpesaImporter());
+
+        assertThat(savedStatuses).containsExactly(ImportJobStatus.PARSING);
+        Mockito.verify(importJobRepository, Mockito.times(2)).save(any(ImportJob.class));
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void unreadableStatementFailsJob() throws IOException {
+        Path file = Files.createTempFile("statement", ".pdf");
+        Mockito.when(importJobRepository.findById(7L)).thenReturn(Optional.of(job));
+        Mockito.when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        Mockito.when(parserService.parseStatement(file)).thenThrow(new IOException("not a PDF"));
+        Mockito.when(statementImportService.importTransactions(eq(user), eq(TransactionSource.MPESA), any(RowSource.class), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<RowSource>getArgument(2).forEach(imported::add);
+                    return null;
+                });
+
+        importJobService.runImport(7L, file, mpesaImporter());
+
+        assertThat(job.getStatus()).isEqualTo(ImportJobStatus.FAILED);
+        assertThat(job.getErrorMessage()).contains("not a PDF");
+        assertThat(file).doesNotExist();
+    }
+
+    @Test
+    void fullQueueRejectsJob() throws IOException {
+        TaskExecutor rejecting = task -> {
+            throw new TaskRejectedException("full");
+        };
+        ReflectionTestUtils.setField(importJobService, "importExecutor", rejecting);
+
+        ImportJobDto submitted = importJobService.submitStatement(user,
+                new MockMultipartFile("file", "statement.pdf", "application/pdf", new byte[]{1, 2, 3}));
+
+        assertThat(submitted.status()).isEqualTo(ImportJobStatus.FAILED);
+        assertThat(savedStatuses).containsExactly(ImportJobStatus.QUEUED, ImportJobStatus.FAILED);
+    }
+
+    @Test
+    void repeatUploadCompletesWithoutParsing() throws Exception {
+        byte[] content = {1, 2, 3};
+        String sha256 = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        ImportJob previous = new ImportJob(1L, TransactionSource.MPESA, "statement.pdf");
+        previous.setId(3L);
+        previous.setParsedCount(42);
+        Mockito.when(importJobRepository.findFirstByUserIdAndSourceAndContentSha256AndStatusOrderByIdDesc(
+                1L, TransactionSource.MPESA, sha256, ImportJobStatus.COMPLETED)).thenReturn(Optional.of(previous));
+        TaskExecutor failing = task -> {
+            throw new AssertionError("a repeat upload should not be queued");
+        };
+        ReflectionTestUtils.setField(importJobService, "importExecutor", failing);
+
+        ImportJobDto submitted = importJobService.submitStatement(user,
+                new MockMultipartFile("file", "statement.pdf", "application/pdf", content));
+
+        assertThat(submitted.status()).isEqualTo(ImportJobStatus.COMPLETED);
+        assertThat(submitted.skippedTransactions()).isEqualTo(42);
+        assertThat(submitted.savedTransactions()).isZero();
+        Mockito.verifyNoInteractions(parserService, statementImportService);
+    }
+
+    @Test
+    void unsupportedFileTypeIsRefused() {
+        assertThat(importJobService.isSupported("export.csv")).isFalse();
+        assertThat(importJobService.isSupported("Statement.PDF")).isTrue();
+        assertThatThrownBy(() -> importJobService.submitStatement(user,
+                new MockMultipartFile("file", "export.xlsx", "application/octet-stream", new byte[]{1})))
+                .hasMessageContaining("Unsupported");
+        Mockito.verifyNoInteractions(importJobRepository);
+    }
+
+    private StatementImporter mpesaImporter() {
+        return new MpesaStatementImporter(parserService);
+    }
+}
@@ -0,0 +1,92 @@
+package com.alberto.Spendee.sass.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH throughput of statement line lexing and transaction extraction, in lines per second, over a
+ * generated mix of header, summary and detailed lines.
+ * Run through {@link MpesaStatementParserBenchmarkTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MpesaStatementLexerBenchmark {
+
+    private static final int LINES = 1000;
+
+    private List<String> lines;
+    private MpesaStatementParserService parserService;
+
+    @Setup
+    public void setUp() {
+        // The forked JVM has no Spring logging config; per-statement INFO lines would dominate the timings
+        ((Logger) LoggerFactory.getLogger(MpesaStatementParserService.class)).setLevel(Level.WARN);
+        lines = statementLines();
+        parserService = new MpesaStatementParserService();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public void lex(Blackhole blackhole) {
+        MpesaStatementLexer lexer = new MpesaStatementLexer();
+        for (String line : lines) {
+            blackhole.consume(lexer.lex(line));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public Object extractTransactions() {
+        return parserService.extractTransactions(lines);
+    }
+
+    // LINES lines: statement header, a summary table and detailed rows, some with wrapped details
+    private static List<String> statementLines() {
+        List<String> lines = new ArrayList<>(LINES);
+        lines.add("M-PESA STATEMENT");
+        lines.add("Customer Name: Jane Doe");
+        lines.add("Date of Statement: 21st 10 2025");
+        lines.add("SUMMARY");
+        lines.add("TRANSACTION TYPE PAID IN PAID OUT");
+        lines.add("Send Money 4,630.00 157.00");
+        lines.add("Pay Bill 0.00 1,200.50");
+        lines.add("Buy Goods 0.00 300.00");
+        lines.add("DETAILED STATEMENT");
+        lines.add("Receipt No. Completion Time Details Transaction Status Paid In Withdrawn Balance");
+        for (int i = 0; lines.size() < LINES; i++) {
+            String receipt = String.format("SJK%07d", i);
+            if (i % 2 == 0) {
+                lines.add(receipt + " 2025-10-01 14:22:05 Pay Bill Online to 888880 - KPLC PREPAID Acc. "
+                        + (1000 + i) + " Completed 0.00 -1,500.00 " + (30_000 + i) + ".00");
+            } else {
+                lines.add(receipt + " 2025-10-02 09:01:44 Funds received from 2547****123 John Doe Completed "
+                        + (100 + i) + ".00 0.00 " + (31_000 + i) + ".00");
+            }
+            if (i % 4 == 0 && lines.size() < LINES) {
+                lines.add("Merchant Payment Online");
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,81 @@
+package com.alberto.Spendee.sass.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Serial vs parallel page extraction throughput on a generated statement, and the JMH line
+ * lexing benchmarks in {@link MpesaStatementLexerBenchmark}.
+ * Not part of the regular build; run with
+ * {@code mvn test -Dtest=MpesaStatementParserBenchmarkTest -Dbenchmark=true [-Dbenchmark.pages=400]}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class MpesaStatementParserBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void serialVersusParallelExtraction() throws IOException {
+        int pages = Integer.getInteger("benchmark.pages", 400);
+        int threads = Runtime.getRuntime().availableProcessors();
+        Path statement = StatementPdfs.writeSummaryStatement(tempDir.resolve("benchmark.pdf"), pages);
+
+        MpesaStatementParserService serial = new MpesaStatementParserService();
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.initialize();
+        try {
+            MpesaStatementParserService parallel = new MpesaStatementParserService();
+            ReflectionTestUtils.setField(parallel, "extractionExecutor", executor);
+            ReflectionTestUtils.setField(parallel, "parallelism", threads);
+            ReflectionTestUtils.setField(parallel, "parallelMinPages", 1);
+
+            double serialPagesPerSecond = measure(serial, statement, pages);
+            double parallelPagesPerSecond = measure(parallel, statement, pages);
+
+            System.out.printf("Statement extraction, %d pages, %d threads: serial %.1f pages/s, parallel %.1f pages/s (%.2fx)%n",
+                    pages, threads, serialPagesPerSecond, parallelPagesPerSecond, parallelPagesPerSecond / serialPagesPerSecond);
+            assertThat(parallel.parseStatement(statement)).isEqualTo(serial.parseStatement(statement));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void lexerLinesPerSecond() throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MpesaStatementLexerBenchmark.class.getName())
+                .build();
+
+        assertThat(new Runner(options).run()).isNotEmpty();
+    }
+
+    private static double measure(MpesaStatementParserService parser, Path statement, int pages) throws IOException {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            parser.parseStatement(statement);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            parser.parseStatement(statement);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return pages * MEASURED_RUNS / seconds;
+    }
+}
@@ -0,0 +1,175 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.dto.MpesaTransactionDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MpesaStatementParserServiceTest {
+
+    private final MpesaStatementParserService parserService = new MpesaStatementParserService();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void summarySectionContinuesAcrossPages() throws IOException {
+        Path statement = writePdf(
+                List.of("M-PESA STATEMENT", "Date of Statement: 21st 10 2025", "SUMMARY",
+                        "TRANSACTION TYPE PAID IN PAID OUT", "Send Money 4,630.00 157.00"),
+                List.of("Pay Bill 0.00 1,200.50", "Buy Goods 0.00 300.00", "DETAILED STATEMENT",
+                        "QAB123XYZ 2025-10-01 Send Money 0.00 50.00"));
+
+        List<MpesaTransactionDTO> transactions = parserService.parseStatement(statement);
+
+        assertThat(transactions).extracting(MpesaTransactionDTO::getDescription)
+                .containsExactly("Send Money (Received)", "Send Money (Sent)", "Pay Bill (Sent)", "Buy Goods (Sent)");
+        assertThat(transactions).extracting(MpesaTransactionDTO::getDate).containsOnly(LocalDate.of(2025, 10, 21));
+        assertThat(transactions.get(2).getAmount()).isEqualByComparingTo("1200.50");
+    }
+
+    @Test
+    void detailedRowsReplaceTheSummary() {
+        List<MpesaTransactionDTO> transactions = parserService.extractTransactions(List.of(
+                "Date of Statement: 21st 10 2025",
+                "SUMMARY",
+                "Pay Bill 0.00 1,500.00",
+                "DETAILED STATEMENT",
+                "Receipt No. Completion Time Details Transaction Status Paid In Withdrawn Balance",
+                "SJK3ABCD12 2025-10-01 14:22:05 Pay Bill Online to 888880 - KPLC Acc. 1234 Completed 0.00 -1,500.00 3,250.00",
+                "PREPAID Withdrawal",
+                "SJK3ABCD13 2025-10-02 09:01:44 Funds received from John Doe Completed 2,000.00 0.00 5,250.00",
+                "SJK3ABCD14 2025-10-02 10:00:00 Customer Transfer Failed 0.00 -100.00 5,250.00",
+                "Page 1 of 2",
+                "SJK3ABCD12 2025-10-03 08:15:00 Pay Bill Online Reversal Completed 1,500.00 0.00 6,750.00"));
+
+        assertThat(transactions).extracting(MpesaTransactionDTO::getTransactionCode)
+                .containsExactly("SJK3ABCD12", "SJK3ABCD13", "SJK3ABCD12#2");
+        assertThat(transactions).extracting(MpesaTransactionDTO::getType)
+                .containsExactly("EXPENSE", "INCOME", "INCOME");
+        MpesaTransactionDTO payBill = transactions.get(0);
+        assertThat(payBill.getDescription()).isEqualTo("Pay Bill Online to 888880 - KPLC Acc. 1234 PREPAID Withdrawal");
+        assertThat(payBill.getAmount()).isEqualTo(new BigDecimal("1500.00"));
+        assertThat(payBill.getBalance()).isEqualTo(new BigDecimal("3250.00"));
+        assertThat(payBill.getDate()).isEqualTo(LocalDate.of(2025, 10, 1));
+        assertThat(payBill.getCompletionTime()).isEqualTo(LocalDateTime.of(2025, 10, 1, 14, 22, 5));
+    }
+
+    @Test
+    void lexerParsesAmountsWithoutExceptions() {
+        MpesaStatementLexer lexer = new MpesaStatementLexer();
+
+        assertThat(lexer.lex("Ksh1,000.50 1.000.25 5. abc 12/31/2025 1e3 -"))
+                .isEqualTo(MpesaStatementLexer.LineKind.ROW);
+        assertThat(lexer.amount(0)).isEqualTo(new BigDecimal("1000.50"));
+        assertThat(lexer.amount(1)).isEqualTo(new BigDecimal("1000.25"));
+        assertThat(lexer.amount(2)).isEqualTo(new BigDecimal("5"));
+        assertThat(lexer.amount(3)).isNull();
+        assertThat(lexer.isNumeric(3)).isFalse();
+        assertThat(lexer.date(4)).isNull();
+        assertThat(lexer.isNumeric(5)).isTrue();
+        assertThat(lexer.isNumeric(6)).isFalse();
+        assertThat(lexer.lex("| | |")).isEqualTo(MpesaStatementLexer.LineKind.HEADER);
+        assertThat(lexer.lex("   ")).isEqualTo(MpesaStatementLexer.LineKind.BLANK);
+    }
+
+    @Test
+    void unreadableFileIsRejected() {
+        Path notPdf = tempDir.resolve("statement.pdf");
+
+        assertThatThrownBy(() -> parserService.parseStatement(notPdf)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void statementsOverTheLimitsAreRejected() throws IOException {
+        Path statement = StatementPdfs.writeSummaryStatement(tempDir.resolve("limits.pdf"), 3);
+
+        MpesaStatementParserService pageLimited = new MpesaStatementParserService();
+        ReflectionTestUtils.setField(pageLimited, "maxPages", 2);
+        assertRejected(pageLimited, statement, "too_many_pages");
+
+        MpesaStatementParserService textLimited = new MpesaStatementParserService();
+        ReflectionTestUtils.setField(textLimited, "maxTextChars", 100L);
+        assertRejected(textLimited, statement, "text_too_large");
+
+        MpesaStatementParserService timeLimited = new MpesaStatementParserService();
+        ReflectionTestUtils.setField(timeLimited, "timeout", Duration.ZERO);
+        assertRejected(timeLimited, statement, "timeout");
+    }
+
+    @Test
+    void workerStopsWaitingForAParseThatOverrunsTheTimeout() throws Exception {
+        Path statement = StatementPdfs.writeSummaryStatement(tempDir.resolve("stuck.pdf"), 3);
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.initialize();
+        CountDownLatch stuck = new CountDownLatch(1);
+        try {
+            // The only parse thread is held by a parse that never gets past its page
+            executor.submit(() -> {
+                stuck.await();
+                return null;
+            });
+            MpesaStatementParserService parser = new MpesaStatementParserService();
+            ReflectionTestUtils.setField(parser, "parseExecutor", executor);
+            ReflectionTestUtils.setField(parser, "timeout", Duration.ofMillis(200));
+
+            long start = System.nanoTime();
+            assertRejected(parser, statement, "timeout");
+            assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(5));
+
+            // Once a thread is free again, statements parse on the pool as before
+            stuck.countDown();
+            ReflectionTestUtils.setField(parser, "timeout", Duration.ofMinutes(1));
+            assertThat(parser.parseStatement(statement)).isEqualTo(parserService.parseStatement(statement));
+        } finally {
+            stuck.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void parallelExtractionMatchesSerial() throws IOException {
+        Path statement = StatementPdfs.writeSummaryStatement(tempDir.resolve("large.pdf"), 20);
+        List<MpesaTransactionDTO> serial = parserService.parseStatement(statement);
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(3);
+        executor.initialize();
+        try {
+            MpesaStatementParserService parallelParser = new MpesaStatementParserService();
+            ReflectionTestUtils.setField(parallelParser, "extractionExecutor", executor);
+            ReflectionTestUtils.setField(parallelParser, "parallelism", 3);
+            ReflectionTestUtils.setField(parallelParser, "pagesPerRange", 3);
+            ReflectionTestUtils.setField(parallelParser, "parallelMinPages", 2);
+
+            assertThat(parallelParser.parseStatement(statement)).isEqualTo(serial).hasSizeGreaterThan(20 * 40);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void assertRejected(MpesaStatementParserService parser, Path statement, String reason) {
+        assertThatThrownBy(() -> parser.parseStatement(statement))
+                .isInstanceOfSatisfying(MpesaStatementParserService.StatementRejectedException.class,
+                        e -> assertThat(e.getReason()).isEqualTo(reason));
+    }
+
+    @SafeVarargs
+    private Path writePdf(List<String>... pages) throws IOException {
+        return StatementPdfs.write(tempDir.resolve("statement.pdf"), List.of(pages));
+    }
+}
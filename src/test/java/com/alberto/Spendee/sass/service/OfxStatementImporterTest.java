@@ -0,0 +1,101 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.dto.StatementRowDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OfxStatementImporterTest {
+
+    private final OfxStatementImporter importer = new OfxStatementImporter();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void sgmlStatementWithoutClosingTags() throws IOException {
+        List<StatementRowDto> rows = read("""
+                OFXHEADER:100
+                DATA:OFXSGML
+                VERSION:102
+
+                <OFX>
+                <BANKMSGSRSV1><STMTTRNRS><STMTRS>
+                <BANKTRANLIST>
+                <STMTTRN>
+                <TRNTYPE>DEBIT
+                <DTPOSTED>20251001120000.000[-5:EST]
+                <TRNAMT>-42.10
+                <FITID>2025100101
+                <NAME>GROCER &amp; SONS
+                </STMTTRN>
+                <STMTTRN>
+                <TRNTYPE>CREDIT
+                <DTPOSTED>20251002
+                <TRNAMT>1500.00
+                <FITID>2025100202
+                <MEMO>Payroll
+                </STMTTRN>
+                </BANKTRANLIST>
+                </STMTRS></STMTTRNRS></BANKMSGSRSV1>
+                </OFX>
+                """);
+
+        assertThat(rows).containsExactly(
+                new StatementRowDto(LocalDate.of(2025, 10, 1), "GROCER & SONS", new BigDecimal("42.10"), TransactionType.EXPENSE, "2025100101"),
+                new StatementRowDto(LocalDate.of(2025, 10, 2), "Payroll", new BigDecimal("1500.00"), TransactionType.INCOME, "2025100202"));
+    }
+
+    @Test
+    void xmlStatement() throws IOException {
+        List<StatementRowDto> rows = read("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <?OFX OFXHEADER="200" VERSION="220"?>
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>
+                  <STMTTRN><TRNTYPE>POS</TRNTYPE><DTPOSTED>20251003</DTPOSTED><TRNAMT>-3.75</TRNAMT>
+                    <FITID>A1</FITID><NAME>Cafe</NAME><MEMO/></STMTTRN>
+                  <STMTTRN><TRNTYPE>FEE</TRNTYPE><DTPOSTED>bad</DTPOSTED><TRNAMT>-1.00</TRNAMT></STMTTRN>
+                </BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """);
+
+        assertThat(rows).containsExactly(
+                new StatementRowDto(LocalDate.of(2025, 10, 3), "Cafe", new BigDecimal("3.75"), TransactionType.EXPENSE, "A1"));
+    }
+
+    @Test
+    void otherFilesAreRejected() {
+        assertThatThrownBy(() -> read("Date,Amount\n2025-10-01,1.00\n"))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("not an OFX statement");
+    }
+
+    @Test
+    void runsOfEmptyTagsAndOverlongValuesAreHandled() throws IOException {
+        // Skipped in a loop, however many there are
+        assertThat(read("<OFX>" + "<>".repeat(200_000) + "<STMTTRN><DTPOSTED>20251001<TRNAMT>-1.00<FITID>A1</STMTTRN></OFX>"))
+                .extracting(StatementRowDto::externalRef)
+                .containsExactly("A1");
+
+        assertThatThrownBy(() -> read("<OFX><STMTTRN><MEMO>" + "x".repeat(100_000)))
+                .isInstanceOf(MpesaStatementParserService.StatementRejectedException.class)
+                .hasMessageContaining("value longer than");
+    }
+
+    private List<StatementRowDto> read(String content) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("statement.ofx"), content);
+        List<StatementRowDto> rows = new ArrayList<>();
+        importer.read(file, rows::add);
+        return rows;
+    }
+}
@@ -0,0 +1,52 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ReportFilterDTO;
+import com.alberto.Spendee.sass.repository.TransactionRepository;
+import com.alberto.Spendee.sass.repository.TransactionRollupRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+
+@ExtendWith(MockitoExtension.class)
+class ReportServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @InjectMocks
+    private ReportService reportService;
+
+    @Test
+    void reportTypeIsCaseInsensitiveAndUnknownValuesReportBothTypes() {
+        User user = new User();
+        user.setId(1L);
+
+        reportService.generateReport(filter("expense"), user);
+        Mockito.verify(transactionRepository).findDtosForReport(any(), any(), any(), isNull(), Mockito.eq(TransactionType.EXPENSE));
+
+        reportService.generateReport(filter("SAVINGS"), user);
+        reportService.generateReport(filter("BOTH"), user);
+        Mockito.verify(transactionRepository, Mockito.times(2)).findDtosForReport(any(), any(), any(), isNull(), isNull());
+    }
+
+    private static ReportFilterDTO filter(String reportType) {
+        ReportFilterDTO filter = new ReportFilterDTO();
+        filter.setStartDate(LocalDate.of(2026, 3, 2));
+        filter.setEndDate(LocalDate.of(2026, 3, 9));
+        filter.setReportType(reportType);
+        return filter;
+    }
+}
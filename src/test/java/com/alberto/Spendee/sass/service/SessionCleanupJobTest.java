@@ -0,0 +1,68 @@
+package com.alberto.Spendee.sass.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@JdbcTest
+@ActiveProfiles("test")
+@Import(SessionCleanupJob.class)
+class SessionCleanupJobTest {
+
+    private static final long NOW = 1_800_000_000_000L;
+
+    @Autowired
+    private SessionCleanupJob sessionCleanupJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(sessionCleanupJob, "batchSize", 2);
+        ReflectionTestUtils.setField(sessionCleanupJob, "maxBatches", 100);
+    }
+
+    @Test
+    void deletesExpiredSessionsInBatchesWithTheirAttributes() {
+        for (int i = 1; i <= 5; i++) {
+            insertSession(NOW - i * 1000L);
+        }
+        String live = insertSession(NOW + 60_000L);
+
+        assertThat(sessionCleanupJob.deleteExpiredSessions(NOW)).isEqualTo(5);
+
+        assertThat(jdbcTemplate.queryForList("select PRIMARY_ID from SPRING_SESSION", String.class)).containsExactly(live);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from SPRING_SESSION_ATTRIBUTES", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void stopsAfterTheBatchLimitAndLeavesTheRestForTheNextRun() {
+        ReflectionTestUtils.setField(sessionCleanupJob, "maxBatches", 2);
+        for (int i = 1; i <= 5; i++) {
+            insertSession(NOW - i * 1000L);
+        }
+
+        assertThat(sessionCleanupJob.deleteExpiredSessions(NOW)).isEqualTo(4);
+        assertThat(sessionCleanupJob.deleteExpiredSessions(NOW)).isEqualTo(1);
+    }
+
+    private String insertSession(long expiryTime) {
+        String id = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into SPRING_SESSION (PRIMARY_ID, SESSION_ID, CREATION_TIME, LAST_ACCESS_TIME,"
+                        + " MAX_INACTIVE_INTERVAL, EXPIRY_TIME) values (?, ?, ?, ?, 1800, ?)",
+                id, UUID.randomUUID().toString(), expiryTime - 1_800_000L, expiryTime - 1_800_000L, expiryTime);
+        jdbcTemplate.update("insert into SPRING_SESSION_ATTRIBUTES (SESSION_PRIMARY_ID, ATTRIBUTE_NAME, ATTRIBUTE_BYTES)"
+                + " values (?, 'SPRING_SECURITY_CONTEXT', ?)", id, new byte[]{1});
+        return id;
+    }
+}
@@ -0,0 +1,91 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.outbox.OutboxEvent;
+import com.alberto.Spendee.sass.domain.outbox.PendingOutboxEvents;
+import com.alberto.Spendee.sass.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class SpendingLimitEvaluationWorkerTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private SpendingLimitService spendingLimitService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private NodeIdentity nodeIdentity;
+
+    @InjectMocks
+    private SpendingLimitEvaluationWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(worker, "transactionTemplate", new TransactionTemplate(transactionManager));
+        Mockito.lenient().when(nodeIdentity.getId()).thenReturn("node-a");
+        Mockito.lenient().when(outboxEventRepository.claim(eq(OutboxEvent.TRANSACTIONS_CHANGED), any(), any(), eq("node-a"), any(), any()))
+                .thenReturn(1);
+    }
+
+    @Test
+    void burstOfEventsIsEvaluatedOncePerUser() {
+        // 500 imported rows for user 1 and 3 edits for user 2 arrive as one pending row each
+        Mockito.when(outboxEventRepository.findPendingByUser(eq(OutboxEvent.TRANSACTIONS_CHANGED), any(), any(Limit.class)))
+                .thenReturn(List.of(new PendingOutboxEvents(1L, 500L), new PendingOutboxEvents(2L, 503L)));
+
+        worker.drain();
+
+        Mockito.verify(spendingLimitService, Mockito.times(1)).evaluateLimits(1L);
+        Mockito.verify(spendingLimitService, Mockito.times(1)).evaluateLimits(2L);
+        Mockito.verify(outboxEventRepository).deleteHandled(OutboxEvent.TRANSACTIONS_CHANGED, 1L, 500L, "node-a");
+        Mockito.verify(outboxEventRepository).deleteHandled(OutboxEvent.TRANSACTIONS_CHANGED, 2L, 503L, "node-a");
+    }
+
+    @Test
+    void failedEvaluationLeavesEventsQueued() {
+        Mockito.when(outboxEventRepository.findPendingByUser(eq(OutboxEvent.TRANSACTIONS_CHANGED), any(), any(Limit.class)))
+                .thenReturn(List.of(new PendingOutboxEvents(1L, 10L), new PendingOutboxEvents(2L, 11L)));
+        Mockito.doThrow(new RuntimeException("boom")).when(spendingLimitService).evaluateLimits(1L);
+
+        worker.drain();
+
+        Mockito.verify(outboxEventRepository, Mockito.never()).deleteHandled(OutboxEvent.TRANSACTIONS_CHANGED, 1L, 10L, "node-a");
+        Mockito.verify(outboxEventRepository).deleteHandled(OutboxEvent.TRANSACTIONS_CHANGED, 2L, 11L, "node-a");
+        Mockito.verify(outboxEventRepository).release(OutboxEvent.TRANSACTIONS_CHANGED, 1L, "node-a");
+    }
+
+    @Test
+    void usersClaimedByAnotherNodeAreSkipped() {
+        Mockito.when(outboxEventRepository.findPendingByUser(eq(OutboxEvent.TRANSACTIONS_CHANGED), any(), any(Limit.class)))
+                .thenReturn(List.of(new PendingOutboxEvents(1L, 10L), new PendingOutboxEvents(2L, 11L)));
+        // Every row of user 1 is already held; user 2's newer rows are claimed, but another node holds older ones
+        Mockito.when(outboxEventRepository.claim(eq(OutboxEvent.TRANSACTIONS_CHANGED), eq(1L), any(), eq("node-a"), any(), any()))
+                .thenReturn(0);
+        Mockito.when(outboxEventRepository.countClaimedByOthers(eq(OutboxEvent.TRANSACTIONS_CHANGED), eq(2L), eq("node-a"), any()))
+                .thenReturn(3L);
+
+        worker.drain();
+
+        Mockito.verify(spendingLimitService, Mockito.never()).evaluateLimits(any());
+        Mockito.verify(outboxEventRepository).release(OutboxEvent.TRANSACTIONS_CHANGED, 2L, "node-a");
+    }
+}
@@ -0,0 +1,235 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod;
+import com.alberto.Spendee.sass.domain.spendinglimit.SpendingLimit;
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.CreateSpendingLimitRequest;
+import com.alberto.Spendee.sass.dto.SpendingLimitDto;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Exercises the atomic current_spent deltas and window rollover against the migrated schema
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import({TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, TransactionRollupService.class, OutboxService.class})
+class SpendingLimitServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    private User user;
+    private Category food;
+    private Category rent;
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "limits@example.com", "secret"));
+        food = entityManager.persist(new Category("Food", null, null, null, user, false));
+        rent = entityManager.persist(new Category("Rent", null, null, null, user, false));
+    }
+
+    @Test
+    void expenseWritesMoveCounters() {
+        Long global = createLimit(null);
+        Long foodLimit = createLimit(food.getId());
+
+        Transaction lunch = expense("20.00", food.getId());
+        expense("5.00", null);
+        assertSpent(global, "25.00");
+        assertSpent(foodLimit, "20.00");
+
+        transactionService.updateTransaction(lunch.getId(),
+                new TransactionDto(null, food.getId(), null, today, new BigDecimal("30.00"), "Lunch", TransactionType.EXPENSE), user);
+        assertSpent(global, "35.00");
+        assertSpent(foodLimit, "30.00");
+
+        transactionService.categorizeTransaction(lunch.getId(), rent.getId(), user);
+        assertSpent(global, "35.00");
+        assertSpent(foodLimit, "0.00");
+
+        transactionService.deleteTransaction(lunch.getId(), user);
+        assertSpent(global, "5.00");
+    }
+
+    @Test
+    void expenseInNewWindowRollsLimitForward() {
+        Long global = createLimit(null);
+        expense("40.00", null);
+        entityManager.getEntityManager()
+                .createQuery("UPDATE SpendingLimit l SET l.periodStart = :stale, l.evaluatedSpent = 40")
+                .setParameter("stale", today.withDayOfMonth(1).minusMonths(1))
+                .executeUpdate();
+        entityManager.clear();
+
+        expense("15.00", null);
+
+        SpendingLimit limit = reload(global);
+        assertThat(limit.getCurrentSpent()).isEqualByComparingTo("15.00");
+        assertThat(limit.getEvaluatedSpent()).isEqualByComparingTo("0.00");
+        assertThat(limit.getPeriodStart()).isEqualTo(today.withDayOfMonth(1));
+    }
+
+    @Test
+    void rolloverResetsEndedWindowsAndSeedsNewLimits() {
+        Long ended = createLimit(food.getId());
+        Long unseeded = createLimit(null);
+        Long current = createLimit(rent.getId());
+        expense("12.00", food.getId());
+        expense("7.00", rent.getId());
+        entityManager.getEntityManager()
+                .createQuery("UPDATE SpendingLimit l SET l.periodStart = :stale WHERE l.id = :id")
+                .setParameter("stale", today.withDayOfMonth(1).minusMonths(1))
+                .setParameter("id", ended)
+                .executeUpdate();
+        entityManager.getEntityManager()
+                .createQuery("UPDATE SpendingLimit l SET l.periodStart = NULL, l.currentSpent = 0 WHERE l.id = :id")
+                .setParameter("id", unseeded)
+                .executeUpdate();
+        entityManager.clear();
+
+        entityManager.getEntityManager()
+                .createQuery("UPDATE SpendingLimit l SET l.currentSpent = 99 WHERE l.id = :id")
+                .setParameter("id", current)
+                .executeUpdate();
+        entityManager.clear();
+
+        spendingLimitService.rollOverWindows(today);
+
+        // The ended window starts over empty, the new limit is seeded from what its window holds
+        assertSpent(ended, "0.00");
+        assertThat(reload(ended).getPeriodStart()).isEqualTo(today.withDayOfMonth(1));
+        assertSpent(unseeded, "19.00");
+        assertThat(reload(unseeded).getPeriodStart()).isEqualTo(today.withDayOfMonth(1));
+        // A limit inside its window is not re-summed
+        assertSpent(current, "99.00");
+    }
+
+    @Test
+    void futureDatedExpenseCountsOnceItsDateComes() {
+        Long global = createLimit(null);
+        Long foodLimit = createLimit(food.getId());
+
+        Transaction booked = transactionService.createTransaction(new TransactionDto(null, food.getId(), null,
+                today.plusDays(1), new BigDecimal("25.00"), "Booked", TransactionType.EXPENSE), user);
+        expense("5.00", food.getId());
+        assertSpent(global, "5.00");
+        assertThat(entityManager.find(Transaction.class, booked.getId()).isLimitsPending()).isTrue();
+
+        // Not due yet
+        spendingLimitService.rollOverWindows(today);
+        assertSpent(global, "5.00");
+
+        // The booked date comes
+        entityManager.getEntityManager()
+                .createQuery("UPDATE Transaction t SET t.date = :today WHERE t.id = :id")
+                .setParameter("today", today)
+                .setParameter("id", booked.getId())
+                .executeUpdate();
+        entityManager.clear();
+
+        spendingLimitService.rollOverWindows(today);
+        assertSpent(global, "30.00");
+        assertSpent(foodLimit, "30.00");
+        assertThat(entityManager.find(Transaction.class, booked.getId()).isLimitsPending()).isFalse();
+
+        // Running it again, as another node or a restart would, changes nothing
+        spendingLimitService.rollOverWindows(today);
+        assertSpent(foodLimit, "30.00");
+
+        // Deleting it now takes back what was added instead of undercounting
+        transactionService.deleteTransaction(booked.getId(), user);
+        assertSpent(global, "5.00");
+        assertSpent(foodLimit, "5.00");
+    }
+
+    @Test
+    void pendingExpenseIsNotReversedBeforeItCounts() {
+        Long global = createLimit(null);
+        expense("5.00", null);
+        Transaction booked = transactionService.createTransaction(new TransactionDto(null, food.getId(), null,
+                today.plusDays(3), new BigDecimal("25.00"), "Booked", TransactionType.EXPENSE), user);
+
+        transactionService.deleteTransaction(booked.getId(), user);
+        assertSpent(global, "5.00");
+    }
+
+    @Test
+    void listingIsOneReadOnlyQuery() {
+        Long global = createLimit(null);
+        Long stale = createLimit(food.getId());
+        createLimit(rent.getId());
+        expense("8.00", food.getId());
+        entityManager.getEntityManager()
+                .createQuery("UPDATE SpendingLimit l SET l.periodStart = :stale WHERE l.id = :id")
+                .setParameter("stale", today.withDayOfMonth(1).minusMonths(1))
+                .setParameter("id", stale)
+                .executeUpdate();
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<SpendingLimitDto> limits = spendingLimitService.getUserSpendingLimits(user.getEmail());
+        entityManager.flush();
+
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(limits).extracting(SpendingLimitDto::getCategoryName)
+                .containsExactly("Total Spending", "Food", "Rent");
+        assertThat(limits.get(0).getCurrentSpent()).isEqualByComparingTo("8.00");
+        assertThat(limits.get(1).getCurrentSpent()).isEqualByComparingTo("0.00");
+        assertSpent(stale, "8.00");
+        assertThat(limits.get(0).getId()).isEqualTo(global);
+    }
+
+    private Long createLimit(Long categoryId) {
+        return spendingLimitService.createSpendingLimit(user.getEmail(),
+                new CreateSpendingLimitRequest(categoryId, new BigDecimal("1000.00"), LimitPeriod.MONTHLY)).getId();
+    }
+
+    private Transaction expense(String amount, Long categoryId) {
+        return transactionService.createTransaction(
+                new TransactionDto(null, categoryId, null, today, new BigDecimal(amount), "Test", TransactionType.EXPENSE), user);
+    }
+
+    private void assertSpent(Long limitId, String expected) {
+        assertThat(reload(limitId).getCurrentSpent()).isEqualByComparingTo(expected);
+    }
+
+    private SpendingLimit reload(Long limitId) {
+        entityManager.flush();
+        entityManager.clear();
+        return entityManager.find(SpendingLimit.class, limitId);
+    }
+}
@@ -0,0 +1,115 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.CreateSpendingLimitRequest;
+import com.alberto.Spendee.sass.dto.StatementImportResult;
+import com.alberto.Spendee.sass.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+/**
+ * Checks the retry when another upload commits one of a chunk's references between the dedupe
+ * lookup and the insert. Runs without a test transaction so each chunk really commits or rolls back.
+ */
+@DataJpaTest(properties = "app.import.chunk-size=50")
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({StatementImportService.class, TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, TransactionRollupService.class, OutboxService.class})
+class StatementImportConflictTest {
+
+    private static final int ROWS = 50;
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @MockitoSpyBean
+    private TransactionService transactionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Test", "User", "conflict@example.com", "secret"));
+        spendingLimitService.createSpendingLimit(user.getEmail(),
+                new CreateSpendingLimitRequest(null, new BigDecimal("1000000.00"), LimitPeriod.YEARLY));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("transactions", "transaction_rollups", "spending_limits", "outbox_events")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ?", user.getId());
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void conflictingReferenceIsDroppedAndTheRestOfTheChunkSaved() {
+        // Right after the chunk's lookup, a second upload of the same statement saves row 7
+        AtomicBoolean raced = new AtomicBoolean();
+        Mockito.doAnswer(invocation -> {
+            Object known = invocation.callRealMethod();
+            if (raced.compareAndSet(false, true)) {
+                statementImportService.importTransactions(user, TransactionSource.MPESA, List.of(row(7)));
+            }
+            return known;
+        }).when(transactionService).findImportedExternalRefs(eq(user), eq(TransactionSource.MPESA), any());
+
+        List<Transaction> statement = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            statement.add(row(i));
+        }
+        StatementImportResult result = statementImportService.importTransactions(user, TransactionSource.MPESA, statement);
+
+        assertThat(result.savedTransactions()).isEqualTo(ROWS - 1);
+        assertThat(result.skippedTransactions()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE user_id = ?", Integer.class, user.getId())).isEqualTo(ROWS);
+
+        // Every row is counted once in the rollups and the limit, including the one the other upload saved
+        assertThat(transactionService.getDashboardSummary(user.getEmail()).getTotalExpenses())
+                .isEqualByComparingTo(new BigDecimal(ROWS));
+        assertThat(spendingLimitService.getUserSpendingLimits(user.getEmail()).get(0).getCurrentSpent())
+                .isEqualByComparingTo(new BigDecimal(ROWS));
+    }
+
+    private Transaction row(int i) {
+        Transaction transaction = new Transaction("Payment " + i, BigDecimal.ONE, LocalDate.now(),
+                TransactionType.EXPENSE, null, null);
+        transaction.setExternalRef(String.format("QCF%07d", i));
+        return transaction;
+    }
+}
@@ -0,0 +1,142 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.spendinglimit.LimitPeriod;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionSource;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.CreateSpendingLimitRequest;
+import com.alberto.Spendee.sass.dto.StatementImportResult;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a statement import is written in JDBC batches and keeps the derived tables in step
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "app.import.chunk-size=200"
+})
+@ActiveProfiles("test")
+@Import({StatementImportService.class, TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, TransactionRollupService.class, OutboxService.class})
+class StatementImportServiceTest {
+
+    private static final int ROWS = 1000;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private StatementImportService statementImportService;
+
+    @Autowired
+    private SpendingLimitService spendingLimitService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    private User user;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "import@example.com", "secret"));
+        spendingLimitService.createSpendingLimit(user.getEmail(),
+                new CreateSpendingLimitRequest(null, new BigDecimal("1000000.00"), LimitPeriod.YEARLY));
+        entityManager.flush();
+    }
+
+    @Test
+    void importIsBatchedAndSkipsKnownReferences() {
+        statementImportService.importTransactions(user, TransactionSource.MPESA, List.of(row(0)));
+
+        List<Transaction> statement = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            statement.add(row(i));
+        }
+        // The same receipt repeated within the statement
+        statement.add(row(1));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        StatementImportResult result = statementImportService.importTransactions(user, TransactionSource.MPESA, statement);
+
+        assertThat(result.savedTransactions()).isEqualTo(ROWS - 1);
+        assertThat(result.skippedTransactions()).isEqualTo(2);
+        assertThat(result.totalExpense()).isEqualByComparingTo(new BigDecimal(ROWS - 1));
+        assertThat(statistics.getEntityInsertCount()).isGreaterThanOrEqualTo(ROWS - 1);
+        // Inserts go out in batches of hibernate.jdbc.batch_size rather than one statement per row
+        assertThat(statistics.getPrepareStatementCount()).isLessThan(ROWS / 5);
+
+        assertThat(transactionService.getDashboardSummary(user.getEmail()).getTotalExpenses())
+                .isEqualByComparingTo(new BigDecimal(ROWS));
+        assertThat(spendingLimitService.getUserSpendingLimits(user.getEmail()).get(0).getCurrentSpent())
+                .isEqualByComparingTo(new BigDecimal(ROWS));
+    }
+
+    @Test
+    void overlappingCsvExportsWithoutReferencesAreImportedOnce() throws IOException {
+        // Two identical coffees on the same day are two payments, not a repeat
+        StatementImportResult first = importCsv("""
+                Date,Description,Amount
+                2025-10-01,Rent,-1500.00
+                2025-10-02,Coffee,-4.50
+                2025-10-02,Coffee,-4.50
+                """);
+        StatementImportResult second = importCsv("""
+                Date,Description,Amount
+                2025-10-02,Coffee,-4.50
+                2025-10-02,  COFFEE ,-4.5
+                2025-10-03,Groceries,-60.00
+                """);
+
+        assertThat(first.savedTransactions()).isEqualTo(3);
+        assertThat(second.savedTransactions()).isEqualTo(1);
+        assertThat(second.skippedTransactions()).isEqualTo(2);
+        assertThat(second.totalExpense()).isEqualByComparingTo("60.00");
+    }
+
+    private StatementImportResult importCsv(String content) throws IOException {
+        Path file = Files.writeString(tempDir.resolve("statement.csv"), content);
+        return statementImportService.importTransactions(user, TransactionSource.CSV,
+                sink -> new CsvStatementImporter().read(file, row -> {
+                    Transaction transaction = new Transaction(row.description(), row.amount(), row.date(), row.type(), null, null);
+                    transaction.setExternalRef(row.externalRef());
+                    sink.accept(transaction);
+                }),
+                (saved, skipped) -> { });
+    }
+
+    private Transaction row(int i) {
+        Transaction transaction = new Transaction("Payment " + i, BigDecimal.ONE, LocalDate.now().minusDays(i % 3),
+                TransactionType.EXPENSE, null, null);
+        transaction.setExternalRef(String.format("QAB%07d", i));
+        return transaction;
+    }
+}
@@ -0,0 +1,81 @@
+package com.alberto.Spendee.sass.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Rows per second through the CSV and OFX importers on generated files, 1M rows by default.
+ * Not part of the regular build; run with
+ * {@code mvn test -Dtest=StatementImporterBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=1000000]}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class StatementImporterBenchmarkTest {
+
+    private static final int WARMUP_RUNS = 1;
+    private static final int MEASURED_RUNS = 3;
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void csvRowsPerSecond() throws IOException {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        Path file = tempDir.resolve("export.csv");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("Date,Description,Amount,Reference\n");
+            for (int i = 0; i < rows; i++) {
+                out.write(FIRST_DAY.plusDays(i % 2000) + ",\"Card payment, shop " + (i % 997) + "\","
+                        + (i % 3 == 0 ? "" : "-") + (i % 100_000) + "." + (10 + i % 90) + ",TX" + i + "\n");
+            }
+        }
+        report("CSV", new CsvStatementImporter(), file, rows);
+    }
+
+    @Test
+    void ofxRowsPerSecond() throws IOException {
+        int rows = Integer.getInteger("benchmark.rows", 1_000_000);
+        Path file = tempDir.resolve("statement.ofx");
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            out.write("OFXHEADER:100\nDATA:OFXSGML\n\n<OFX>\n<BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>\n");
+            for (int i = 0; i < rows; i++) {
+                out.write("<STMTTRN>\n<TRNTYPE>" + (i % 3 == 0 ? "CREDIT" : "DEBIT")
+                        + "\n<DTPOSTED>" + FIRST_DAY.plusDays(i % 2000).toString().replace("-", "") + "120000"
+                        + "\n<TRNAMT>" + (i % 3 == 0 ? "" : "-") + (i % 100_000) + "." + (10 + i % 90)
+                        + "\n<FITID>" + i + "\n<NAME>Card payment shop " + (i % 997) + "\n</STMTTRN>\n");
+            }
+            out.write("</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1>\n</OFX>\n");
+        }
+        report("OFX", new OfxStatementImporter(), file, rows);
+    }
+
+    private static void report(String format, StatementImporter importer, Path file, int rows) throws IOException {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            assertThat(count(importer, file)).isEqualTo(rows);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            count(importer, file);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%s import, %d rows (%d MB): %.0f rows/s, max heap used %d MB%n", format, rows,
+                Files.size(file) >> 20, rows * MEASURED_RUNS / seconds,
+                (Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory()) >> 20);
+    }
+
+    private static long count(StatementImporter importer, Path file) throws IOException {
+        AtomicLong count = new AtomicLong();
+        importer.read(file, row -> count.incrementAndGet());
+        return count.get();
+    }
+}
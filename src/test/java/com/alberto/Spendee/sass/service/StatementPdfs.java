@@ -0,0 +1,65 @@
+package com.alberto.Spendee.sass.service;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates statement PDFs for parser tests and benchmarks
+ */
+final class StatementPdfs {
+
+    private static final int LINES_PER_PAGE = 45;
+
+    private StatementPdfs() {
+    }
+
+    static Path write(Path file, List<List<String>> pages) throws IOException {
+        try (PDDocument document = new PDDocument()) {
+            for (List<String> lines : pages) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(PDType1Font.HELVETICA, 10);
+                    content.setLeading(14);
+                    content.newLineAtOffset(50, 720);
+                    for (String line : lines) {
+                        content.showText(line);
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(file.toFile());
+        }
+        return file;
+    }
+
+    /**
+     * A statement whose summary table runs over the given number of full pages
+     */
+    static Path writeSummaryStatement(Path file, int pageCount) throws IOException {
+        List<List<String>> pages = new ArrayList<>();
+        int row = 0;
+        for (int p = 0; p < pageCount; p++) {
+            List<String> lines = new ArrayList<>();
+            if (p == 0) {
+                lines.add("Date of Statement: 21st 10 2025");
+                lines.add("SUMMARY");
+            }
+            while (lines.size() < LINES_PER_PAGE) {
+                lines.add(String.format("Merchant %d %d.00 %d.50", row, row % 7, row % 11 + 1));
+                row++;
+            }
+            pages.add(lines);
+        }
+        return write(file, pages);
+    }
+}
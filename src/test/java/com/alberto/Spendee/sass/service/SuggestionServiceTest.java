@@ -46,7 +46,7 @@ class SuggestionServiceTest {
     void returnsGetStartedSuggestionWhenNoTransactions() {
         Mockito.when(userRepository.findByEmail("test@example.com")).thenReturn(Optional.of(user));
         // Return empty lists for all date ranges
-        Mockito.when(transactionRepository.findByUserAndDateBetween(eq(user), any(LocalDate.class), any(LocalDate.class)))
+        Mockito.when(transactionRepository.findDtosByUserAndDateBetween(eq(user), any(LocalDate.class), any(LocalDate.class)))
                 .thenReturn(Collections.emptyList());
 
         List<SuggestionDto> suggestions = suggestionService.getSuggestionsForUser("test@example.com");
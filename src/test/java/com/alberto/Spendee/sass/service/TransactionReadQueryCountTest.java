@@ -0,0 +1,135 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ReportFilterDTO;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Guards the transaction read paths against N+1 category loads: each endpoint's service call
+ * must issue a fixed number of SQL statements no matter how many transactions or categories exist.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+@Import({TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, ReportService.class, SuggestionService.class, TransactionRollupService.class,
+        OutboxService.class})
+class TransactionReadQueryCountTest {
+
+    private static final int TRANSACTIONS = 30;
+
+    // Loading a user by email is one query for the row plus one for its EAGER roles
+    private static final int USER_LOOKUP = 2;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private SuggestionService suggestionService;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    private User user;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "test@example.com", "secret"));
+        Category[] categories = new Category[5];
+        for (int i = 0; i < categories.length; i++) {
+            categories[i] = entityManager.persist(new Category("Category " + i, null, null, null, user, false));
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            entityManager.persist(new Transaction("Purchase " + i, new BigDecimal("10.00"), today,
+                    i % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE, user,
+                    categories[i % categories.length]));
+        }
+        transactionRollupService.rebuild(user.getId());
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void listAllTransactions() {
+        assertThat(transactionService.getAllTransactionsByUser(user)).hasSize(TRANSACTIONS);
+        assertStatements(1);
+    }
+
+    @Test
+    void listTransactionPage() {
+        assertThat(transactionService.getTransactionPage(user, null, 10).getItems()).hasSize(10);
+        assertStatements(1);
+    }
+
+    @Test
+    void listMonthlyTransactions() {
+        assertThat(transactionService.getTransactionsForMonth(user, LocalDate.now())).hasSize(TRANSACTIONS);
+        assertStatements(1);
+    }
+
+    @Test
+    void listRecentTransactions() {
+        assertThat(transactionService.getRecentTransactions(user.getEmail(), 10))
+                .hasSize(10)
+                .allSatisfy(t -> assertThat(t.getCategoryName()).isNotNull());
+        assertStatements(USER_LOOKUP + 1);
+    }
+
+    @Test
+    void generateReport() {
+        ReportFilterDTO filter = new ReportFilterDTO(LocalDate.now().minusDays(1), LocalDate.now(), "BOTH", null, "DAILY");
+        assertThat(reportService.generateReport(filter, user).getCategoryBreakdown()).hasSize(5);
+        assertStatements(1);
+    }
+
+    @Test
+    void dashboardSummary() {
+        var summary = transactionService.getDashboardSummary(user.getEmail());
+        assertThat(summary.getTotalIncome()).isEqualByComparingTo("100.00");
+        assertThat(summary.getTotalExpenses()).isEqualByComparingTo("200.00");
+        assertThat(summary.getMonthlyExpenses()).isEqualByComparingTo("200.00");
+        assertStatements(USER_LOOKUP + 1);
+    }
+
+    @Test
+    void suggestions() {
+        assertThat(suggestionService.getSuggestionsForUser(user.getEmail())).isNotEmpty();
+        assertStatements(USER_LOOKUP + 3);
+    }
+
+    private void assertStatements(int expected) {
+        assertThat(statistics.getPrepareStatementCount())
+                .as("SQL statements issued")
+                .isEqualTo(expected);
+    }
+}
@@ -0,0 +1,102 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that a rollup rebuild running while a user's transactions are written waits for the write,
+ * so the transaction is counted once. Runs without a test transaction so both sides really commit.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, TransactionRollupService.class, OutboxService.class})
+class TransactionRollupRebuildTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = userRepository.save(new User("Test", "User", "rebuild@example.com", "secret"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        for (String table : List.of("transactions", "transaction_rollups", "outbox_events")) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ?", user.getId());
+        }
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", user.getId());
+    }
+
+    @Test
+    void rebuildWaitsForAWriteInFlight() throws Exception {
+        CountDownLatch written = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+                new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                    transactionService.createTransaction(new TransactionDto(null, null, null, LocalDate.now(),
+                            new BigDecimal("12.00"), "Lunch", TransactionType.EXPENSE), user);
+                    written.countDown();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }));
+        assertThat(written.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Integer> rebuild = CompletableFuture.supplyAsync(() -> transactionRollupService.rebuild(user.getId()));
+        Thread.sleep(300);
+        assertThat(rebuild).isNotDone();
+
+        release.countDown();
+        writer.get(5, TimeUnit.SECONDS);
+        assertThat(rebuild.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+
+        assertThat(jdbcTemplate.queryForMap(
+                "SELECT total_amount, tx_count FROM transaction_rollups WHERE user_id = ?", user.getId()))
+                .satisfies(row -> {
+                    assertThat((BigDecimal) row.get("total_amount")).isEqualByComparingTo("12.00");
+                    assertThat(((Number) row.get("tx_count")).longValue()).isEqualTo(1);
+                });
+    }
+}
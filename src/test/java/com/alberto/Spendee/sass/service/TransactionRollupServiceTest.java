@@ -0,0 +1,130 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.ReportDataDTO;
+import com.alberto.Spendee.sass.dto.ReportFilterDTO;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.repository.TransactionRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that every transaction write keeps the monthly rollups equal to a rebuild from the raw rows.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({TransactionService.class, TransactionCategorizer.class, CategoryService.class, SpendingLimitService.class,
+        NotificationService.class, ReportService.class, TransactionRollupService.class,
+        OutboxService.class})
+class TransactionRollupServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionRollupService transactionRollupService;
+
+    @Autowired
+    private TransactionRollupRepository transactionRollupRepository;
+
+    @Autowired
+    private ReportService reportService;
+
+    private User user;
+    private Category food;
+    private Category rent;
+    private final YearMonth month = YearMonth.now();
+
+    @BeforeEach
+    void setUp() {
+        user = entityManager.persist(new User("Test", "User", "rollups@example.com", "secret"));
+        food = entityManager.persist(new Category("Food", null, null, null, user, false));
+        rent = entityManager.persist(new Category("Rent", null, null, null, user, false));
+    }
+
+    @Test
+    void writesKeepRollupsInStepWithTransactions() {
+        Transaction lunch = create("12.50", month.atDay(2), TransactionType.EXPENSE, food.getId());
+        Transaction salary = create("1000.00", month.atDay(1), TransactionType.INCOME, null);
+        Transaction flat = create("400.00", month.minusMonths(1).atDay(5), TransactionType.EXPENSE, rent.getId());
+        create("7.50", month.atDay(3), TransactionType.EXPENSE, food.getId());
+
+        transactionService.updateTransaction(lunch.getId(),
+                new TransactionDto(null, rent.getId(), null, month.minusMonths(1).atDay(9),
+                        new BigDecimal("15.00"), "Lunch", TransactionType.EXPENSE), user);
+        transactionService.categorizeTransaction(salary.getId(), food.getId(), user);
+        transactionService.bulkCategorizeTransactions(List.of(salary.getId(), flat.getId()), null, user);
+        transactionService.deleteTransaction(flat.getId(), user);
+
+        Map<String, String> maintained = rollups();
+        transactionRollupService.rebuild(user.getId());
+
+        assertThat(maintained).isEqualTo(rollups()).isNotEmpty();
+    }
+
+    @Test
+    void dashboardSummaryReadsRollups() {
+        create("2000.00", month.atDay(1), TransactionType.INCOME, null);
+        create("300.00", month.atDay(4), TransactionType.EXPENSE, food.getId());
+        create("100.00", month.minusMonths(1).atDay(4), TransactionType.EXPENSE, food.getId());
+
+        var summary = transactionService.getDashboardSummary(user.getEmail());
+
+        assertThat(summary.getTotalIncome()).isEqualByComparingTo("2000.00");
+        assertThat(summary.getTotalExpenses()).isEqualByComparingTo("400.00");
+        assertThat(summary.getMonthlyExpenses()).isEqualByComparingTo("300.00");
+        assertThat(summary.getExpenseChange()).isEqualTo(200.0);
+    }
+
+    @Test
+    void monthlyReportOverWholeMonthsMatchesTransactions() {
+        create("50.00", month.atDay(1), TransactionType.EXPENSE, food.getId());
+        create("80.00", month.minusMonths(1).atDay(20), TransactionType.INCOME, null);
+        create("20.00", month.minusMonths(1).atDay(21), TransactionType.EXPENSE, rent.getId());
+
+        ReportFilterDTO filter = new ReportFilterDTO(month.minusMonths(1).atDay(1), month.atEndOfMonth(),
+                "BOTH", null, "MONTHLY");
+        List<ReportDataDTO.TimeSeriesDataDTO> series = reportService.generateReport(filter, user).getTimeSeriesData();
+
+        assertThat(series).hasSize(2);
+        assertThat(series.get(0).getExpense()).isEqualByComparingTo("50.00");
+        assertThat(series.get(1).getIncome()).isEqualByComparingTo("80.00");
+        assertThat(series.get(1).getExpense()).isEqualByComparingTo("20.00");
+    }
+
+    private Transaction create(String amount, LocalDate date, TransactionType type, Long categoryId) {
+        return transactionService.createTransaction(
+                new TransactionDto(null, categoryId, null, date, new BigDecimal(amount), "Test", type), user);
+    }
+
+    // Rollup rows as comparable strings; rows netted to zero by deletes or moves are ignored
+    private Map<String, String> rollups() {
+        entityManager.flush();
+        entityManager.clear();
+        return transactionRollupRepository.findByUserIdOrderByMonthStartAscCategoryIdAscTypeAsc(user.getId()).stream()
+                .filter(r -> r.getTxCount() != 0)
+                .collect(Collectors.toMap(
+                        r -> r.getMonthStart() + "/" + r.getCategoryId() + "/" + r.getType(),
+                        r -> r.getTotalAmount().stripTrailingZeros().toPlainString() + " x" + r.getTxCount()));
+    }
+}
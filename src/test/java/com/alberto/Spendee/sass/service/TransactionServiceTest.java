@@ -0,0 +1,136 @@
+package com.alberto.Spendee.sass.service;
+
+import com.alberto.Spendee.sass.domain.transaction.Category;
+import com.alberto.Spendee.sass.domain.transaction.Transaction;
+import com.alberto.Spendee.sass.domain.transaction.TransactionType;
+import com.alberto.Spendee.sass.domain.user.User;
+import com.alberto.Spendee.sass.dto.TransactionDto;
+import com.alberto.Spendee.sass.dto.TransactionPageDto;
+import com.alberto.Spendee.sass.repository.CategoryRepository;
+import com.alberto.Spendee.sass.repository.ImportJobRepository;
+import com.alberto.Spendee.sass.repository.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+
+@ExtendWith(MockitoExtension.class)
+class TransactionServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Mock
+    private TransactionCategorizer transactionCategorizer;
+
+    @Mock
+    private TransactionRollupService transactionRollupService;
+
+    @Mock
+    private SpendingLimitService spendingLimitService;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private ImportJobRepository importJobRepository;
+
+    @InjectMocks
+    private TransactionService transactionService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setId(1L);
+        user.setEmail("test@example.com");
+    }
+
+    @Test
+    void pageReturnsCursorPointingAtLastRow() {
+        List<TransactionDto> rows = transactions(3, LocalDate.of(2025, 3, 10));
+        Mockito.when(transactionRepository.findPageByUser(user, Limit.of(3))).thenReturn(rows);
+
+        TransactionPageDto page = transactionService.getTransactionPage(user, null, 2);
+
+        assertThat(page.getItems()).hasSize(2);
+        assertThat(page.getNext()).isNotNull();
+
+        Mockito.when(transactionRepository.findPageByUserBefore(eq(user), eq(rows.get(1).getDate()),
+                eq(rows.get(1).getId()), eq(Limit.of(3)))).thenReturn(rows.subList(2, 3));
+
+        TransactionPageDto second = transactionService.getTransactionPage(user, page.getNext(), 2);
+
+        assertThat(second.getItems()).hasSize(1);
+        assertThat(second.getNext()).isNull();
+    }
+
+    @Test
+    void pageSizeIsCapped() {
+        Mockito.when(transactionRepository.findPageByUser(user, Limit.of(TransactionService.MAX_PAGE_SIZE + 1)))
+                .thenReturn(List.of());
+
+        assertThat(transactionService.getTransactionPage(user, null, 10_000).getItems()).isEmpty();
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThatThrownBy(() -> transactionService.getTransactionPage(user, "not-a-cursor", 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void uncategorizedTransactionGetsSuggestedCategory() {
+        Category groceries = new Category();
+        groceries.setId(5L);
+        groceries.setName("Groceries");
+        Mockito.when(transactionCategorizer.categorize(user, "NAIVAS Westlands")).thenReturn(5L);
+        Mockito.when(categoryRepository.findById(5L)).thenReturn(Optional.of(groceries));
+        Mockito.when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        TransactionDto dto = new TransactionDto(null, null, null, LocalDate.of(2025, 3, 10),
+                new BigDecimal("820.00"), "NAIVAS Westlands", TransactionType.EXPENSE);
+
+        assertThat(transactionService.createTransaction(dto, user).getCategory()).isSameAs(groceries);
+    }
+
+    @Test
+    void recategorizingForgetsLearnedRules() {
+        Transaction transaction = new Transaction();
+        transaction.setId(9L);
+        transaction.setUser(user);
+        Mockito.when(transactionRepository.findById(9L)).thenReturn(Optional.of(transaction));
+        Mockito.when(transactionRepository.save(transaction)).thenReturn(transaction);
+
+        transactionService.categorizeTransaction(9L, null, user);
+
+        Mockito.verify(transactionCategorizer).evict(1L);
+    }
+
+    private List<TransactionDto> transactions(int count, LocalDate date) {
+        List<TransactionDto> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new TransactionDto(100L - i, null, null, date, new BigDecimal("3.50"), "Coffee", TransactionType.EXPENSE));
+        }
+        return rows;
+    }
+}